@@ -0,0 +1,59 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import hudson.EnvVars;
+import hudson.model.Result;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Exporting the environment variables of a build that triggered many remote builds, i.e.: a fan-out or a loop in a
+ * build that triggers the same jobs over and over.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class BuildInfoExporterActionBenchmark {
+
+    @Param({ "100", "1000", "5000" })
+    public int                      references;
+
+    @Param({ "10", "100" })
+    public int                      projects;
+
+    private BuildInfoExporterAction action;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < this.references; i++) {
+            BuildInfoExporterAction.BuildReference reference = new BuildInfoExporterAction.BuildReference("project-"
+                    + i % this.projects, i / this.projects + 1, Result.SUCCESS);
+            if (this.action == null) {
+                this.action = new BuildInfoExporterAction(null, reference);
+            } else {
+                this.action.addBuildReference(reference);
+            }
+        }
+    }
+
+    @Benchmark
+    public EnvVars buildEnvVars() {
+        EnvVars env = new EnvVars();
+        this.action.buildEnvVars(null, env);
+        return env;
+    }
+}
@@ -0,0 +1,77 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.json.JSONObject;
+import net.sf.json.JSONSerializer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing the JSON of a remote job with a long history, and of one of its builds: the whole document (as a remote
+ * server without 'tree' support returns it) against reading only the fields the plugin asks for.
+ *
+ * The documents are generated by {@link RemoteApiDocuments}, to look like those of a real job.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class JsonParsingBenchmark {
+
+    @Param({ "100", "1000" })
+    public int     builds;
+
+    private String job;
+    private byte[] jobBytes;
+    private String build;
+    private byte[] buildBytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        this.job = RemoteApiDocuments.createJob(this.builds, 20).toString();
+        this.jobBytes = this.job.getBytes("UTF-8");
+        this.build = RemoteApiDocuments.createBuild(42, 20, 200).toString();
+        this.buildBytes = this.build.getBytes("UTF-8");
+    }
+
+    @Benchmark
+    public Object parseJob() {
+        return JSONSerializer.toJSON(this.job);
+    }
+
+    @Benchmark
+    public JSONObject readJobBuilds() throws IOException {
+        return StreamingJsonReader.read(new ByteArrayInputStream(this.jobBytes), ApiQuery.BUILDS.getTree());
+    }
+
+    @Benchmark
+    public Object parseBuild() {
+        return JSONSerializer.toJSON(this.build);
+    }
+
+    @Benchmark
+    public JSONObject readBuildStatus() throws IOException {
+        return StreamingJsonReader.read(new ByteArrayInputStream(this.buildBytes), ApiQuery.BUILD_STATUS.getTree());
+    }
+
+    @Benchmark
+    public JSONObject readBuildParameters() throws IOException {
+        return StreamingJsonReader.read(new ByteArrayInputStream(this.buildBytes),
+                ApiQuery.BUILD_PARAMETERS.getTree());
+    }
+}
@@ -0,0 +1,76 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import hudson.model.TaskListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cleaning up the configured parameters, and comparing the parameters of a remote build with the expected ones (which
+ * is done for every candidate build when the remote server hands out no queue item).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class ParametersBenchmark {
+
+    @Param({ "10", "100", "1000" })
+    public int                       parameters;
+
+    private RemoteBuildConfiguration configuration;
+    private List<String>             expected;
+    private JSONArray                remoteParameters;
+
+    @Setup
+    public void setUp() throws Exception {
+        StringBuilder text = new StringBuilder();
+        this.remoteParameters = new JSONArray();
+        for (int i = 0; i < this.parameters; i++) {
+            // every tenth line is a comment, and every tenth an empty line
+            if (i % 10 == 0) {
+                text.append("# parameter ").append(i).append('\n');
+            } else if (i % 10 == 5) {
+                text.append('\n');
+            }
+            text.append("PARAM_").append(i).append("=value ").append(i).append('\n');
+
+            JSONObject parameter = new JSONObject();
+            parameter.put("name", "PARAM_" + i);
+            parameter.put("value", "value " + i);
+            this.remoteParameters.add(parameter);
+        }
+        this.configuration = new RemoteBuildConfiguration("remote", false, "job", "", text.toString(), false, null,
+                null, false, true, 10);
+        this.expected = new ArrayList<String>(this.configuration.getCleanedParameters());
+    }
+
+    @Benchmark
+    public List<String> cleanedParameters() {
+        return this.configuration.getCleanedParameters();
+    }
+
+    @Benchmark
+    public boolean compareParameters() {
+        // all of them match, so every parameter is looked at
+        return this.configuration.compareParameters(TaskListener.NULL, this.remoteParameters, this.expected);
+    }
+}
@@ -0,0 +1,149 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
+/**
+ * Generates the JSON documents a remote server returns, without a 'tree' filter, for a job with a long history and for
+ * one of its builds.
+ */
+final class RemoteApiDocuments {
+
+    private RemoteApiDocuments() {
+    }
+
+    /**
+     * @param builds
+     *            number of builds in the history of the job
+     * @param parameters
+     *            number of parameters of the job
+     * @return the document of the job
+     */
+    static JSONObject createJob(int builds, int parameters) {
+        JSONObject job = new JSONObject();
+        JSONArray actions = new JSONArray();
+        JSONObject parameterDefinitions = new JSONObject();
+        JSONArray definitions = new JSONArray();
+        for (int i = 0; i < parameters; i++) {
+            JSONObject definition = new JSONObject();
+            definition.put("name", "PARAM_" + i);
+            definition.put("description", "A parameter of the remote job, number " + i);
+            definition.put("type", "StringParameterDefinition");
+            JSONObject defaultValue = new JSONObject();
+            defaultValue.put("name", "PARAM_" + i);
+            defaultValue.put("value", "default value " + i);
+            definition.put("defaultParameterValue", defaultValue);
+            definitions.add(definition);
+        }
+        parameterDefinitions.put("parameterDefinitions", definitions);
+        actions.add(parameterDefinitions);
+        actions.add(new JSONObject());
+        job.put("actions", actions);
+        job.put("description", "A remote job with a long history");
+        job.put("displayName", "benchmark");
+        job.put("name", "benchmark");
+        job.put("url", "http://remote/job/benchmark/");
+        job.put("buildable", true);
+
+        JSONArray buildList = new JSONArray();
+        for (int i = builds; i > 0; i--) {
+            JSONObject build = new JSONObject();
+            build.put("number", i);
+            build.put("url", "http://remote/job/benchmark/" + i + "/");
+            buildList.add(build);
+        }
+        job.put("builds", buildList);
+        job.put("firstBuild", buildList.get(buildList.size() - 1));
+        job.put("lastBuild", buildList.get(0));
+        job.put("lastCompletedBuild", buildList.get(0));
+        job.put("lastSuccessfulBuild", buildList.get(0));
+        JSONArray healthReport = new JSONArray();
+        JSONObject health = new JSONObject();
+        health.put("description", "Build stability: No recent builds failed.");
+        health.put("iconUrl", "health-80plus.png");
+        health.put("score", 100);
+        healthReport.add(health);
+        job.put("healthReport", healthReport);
+        job.put("inQueue", false);
+        job.put("keepDependencies", false);
+        job.put("nextBuildNumber", builds + 1);
+        job.put("concurrentBuild", false);
+        return job;
+    }
+
+    /**
+     * @param number
+     *            number of the build
+     * @param parameters
+     *            number of parameters the build was started with
+     * @param changes
+     *            number of changes in the change set of the build
+     * @return the document of the build
+     */
+    static JSONObject createBuild(int number, int parameters, int changes) {
+        JSONObject build = new JSONObject();
+        JSONArray actions = new JSONArray();
+        JSONObject parametersAction = new JSONObject();
+        JSONArray values = new JSONArray();
+        for (int i = 0; i < parameters; i++) {
+            JSONObject value = new JSONObject();
+            value.put("name", "PARAM_" + i);
+            value.put("value", "value " + i);
+            values.add(value);
+        }
+        parametersAction.put("parameters", values);
+        actions.add(parametersAction);
+        JSONObject causeAction = new JSONObject();
+        JSONArray causes = new JSONArray();
+        JSONObject cause = new JSONObject();
+        cause.put("shortDescription", "Started by remote host 10.0.0.1");
+        causes.add(cause);
+        causeAction.put("causes", causes);
+        actions.add(causeAction);
+        build.put("actions", actions);
+
+        JSONArray artifacts = new JSONArray();
+        for (int i = 0; i < 50; i++) {
+            JSONObject artifact = new JSONObject();
+            artifact.put("displayPath", "artifact-" + i + ".jar");
+            artifact.put("fileName", "artifact-" + i + ".jar");
+            artifact.put("relativePath", "target/artifact-" + i + ".jar");
+            artifacts.add(artifact);
+        }
+        build.put("artifacts", artifacts);
+        build.put("building", false);
+        build.put("description", null);
+        build.put("duration", 118000);
+        build.put("estimatedDuration", 120000);
+        build.put("fullDisplayName", "benchmark #" + number);
+        build.put("id", "2015-08-16_12-00-00");
+        build.put("keepLog", false);
+        build.put("number", number);
+        build.put("result", "SUCCESS");
+        build.put("timestamp", 1439724000000L);
+        build.put("url", "http://remote/job/benchmark/" + number + "/");
+        build.put("builtOn", "");
+
+        JSONObject changeSet = new JSONObject();
+        JSONArray items = new JSONArray();
+        for (int i = 0; i < changes; i++) {
+            JSONObject item = new JSONObject();
+            JSONArray affectedPaths = new JSONArray();
+            affectedPaths.add("src/main/java/org/example/Class" + i + ".java");
+            item.put("affectedPaths", affectedPaths);
+            item.put("commitId", Integer.toHexString(i * 7919) + "0123456789abcdef0123456789abcdef");
+            item.put("timestamp", 1439724000000L - i * 60000);
+            JSONObject author = new JSONObject();
+            author.put("absoluteUrl", "http://remote/user/developer" + (i % 10));
+            author.put("fullName", "Developer " + (i % 10));
+            item.put("author", author);
+            item.put("comment", "Change number " + i + " of the remote job, with a reasonably long commit message\n");
+            item.put("msg", "Change number " + i);
+            items.add(item);
+        }
+        changeSet.put("items", items);
+        changeSet.put("kind", "git");
+        build.put("changeSet", changeSet);
+        return build;
+    }
+}
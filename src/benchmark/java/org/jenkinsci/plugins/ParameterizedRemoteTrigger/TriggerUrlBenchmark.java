@@ -0,0 +1,63 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.json.JSONObject;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building the URL that triggers a remote build: encoding the job name, the token and every parameter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class TriggerUrlBenchmark {
+
+    @Param({ "10", "100", "1000" })
+    public int                       parameters;
+
+    private RemoteBuildConfiguration configuration;
+    private RemoteJenkinsServer      remoteServer;
+    private List<String>             params;
+    private String                   value;
+
+    @Setup
+    public void setUp() throws Exception {
+        this.remoteServer = new RemoteJenkinsServer("http://remote.example.com:8080/jenkins", "remote", false,
+                new JSONObject());
+        this.params = new ArrayList<String>();
+        for (int i = 0; i < this.parameters; i++) {
+            // a mix of plain and special characters, as in real parameter values
+            this.params.add("PARAM_" + i + "=value " + i + " & more/" + i + "?x=\u00e9");
+        }
+        this.configuration = new RemoteBuildConfiguration("remote", false, "folder job", "secret", "", false, null,
+                null, false, true, 10);
+        this.value = this.params.get(this.params.size() - 1);
+    }
+
+    @Benchmark
+    public String triggerUrl() {
+        return this.configuration.buildTriggerUrl(this.remoteServer, "folder job", "secret", this.params, true);
+    }
+
+    @Benchmark
+    public String encodeValue() {
+        return UrlBuilder.encode(this.value);
+    }
+}
@@ -0,0 +1,163 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+
+/**
+ * Builds JSON API URLs that only ask the remote server for the fields the plugin actually reads, using the 'tree'
+ * query parameter of the Jenkins remote access API.
+ *
+ * Without it the remote server serializes the whole object (every action, every build in the history, ...), which
+ * easily runs into hundreds of KB for jobs with a long history.
+ */
+public final class ApiQuery {
+
+    /**
+     * Next build number of a job.
+     */
+    public static final ApiQuery NEXT_BUILD_NUMBER = new ApiQuery("nextBuildNumber");
+
+    /**
+     * Parameter definitions of a job. Depending on the version of the remote server, they are either listed as an
+     * action or as a property of the job.
+     */
+    public static final ApiQuery JOB_PARAMETERS    = new ApiQuery(nested("actions", nested("parameterDefinitions", "name")),
+                                                           nested("property", nested("parameterDefinitions", "name")));
+
+    /**
+     * Next build number and parameter definitions of a job, in one call.
+     */
+    public static final ApiQuery JOB_METADATA      = new ApiQuery("nextBuildNumber", JOB_PARAMETERS.getTree());
+
+    /**
+     * Whether a build is running, and if not, how it ended.
+     */
+    public static final ApiQuery BUILD_STATUS      = new ApiQuery("building", "result", "url", "timestamp",
+                                                           "duration", "estimatedDuration");
+
+    /**
+     * Parameters a build was started with.
+     */
+    public static final ApiQuery BUILD_PARAMETERS  = new ApiQuery(nested("actions", nested("parameters", "name", "value")));
+
+    /**
+     * Status of all the builds of a job the remote server lists, see {@link #first(int)} to only get the newest ones.
+     */
+    public static final ApiQuery BUILDS            = new ApiQuery(nested("builds", "number", "building", "result",
+                                                           "timestamp", "duration", "estimatedDuration"));
+
+    /**
+     * What became of a queue item: the build it turned into once it left the queue, or why it is still waiting, and
+     * since when it is in the queue.
+     */
+    public static final ApiQuery QUEUE_ITEM        = new ApiQuery("cancelled", "why", "inQueueSince",
+                                                           nested("executable", "number"));
+
+    private final String         tree;
+
+    /**
+     * @param fields
+     *            the fields to fetch, nested fields can be built with {@link #nested(String, String...)}
+     */
+    public ApiQuery(String... fields) {
+        this.tree = join(fields);
+    }
+
+    /**
+     * @param name
+     *            name of the field holding an object or a list of objects
+     * @param fields
+     *            the fields to fetch from those objects
+     * @return the tree expression for the nested fields, i.e.: "builds[number,result]"
+     */
+    public static String nested(String name, String... fields) {
+        return name + "[" + join(fields) + "]";
+    }
+
+    private static String join(String... fields) {
+        StringBuilder joined = new StringBuilder();
+        for (String field : fields) {
+            if (joined.length() > 0) {
+                joined.append(',');
+            }
+            joined.append(field);
+        }
+        return joined.toString();
+    }
+
+    /**
+     * @param count
+     *            number of elements to fetch
+     * @return the same query for only the first elements of the list it fetches, i.e.: "builds[number]{0,10}"; this
+     *         query must be a single list
+     */
+    public ApiQuery first(int count) {
+        return new ApiQuery(this.tree + "{0," + count + "}");
+    }
+
+    /**
+     * @return the (unencoded) tree expression
+     */
+    public String getTree() {
+        return this.tree;
+    }
+
+    /**
+     * @param url
+     *            URL of the remote object (job, build, ...), with or without a trailing slash
+     * @return the URL of the JSON API of that object, restricted to the fields of this query
+     */
+    public String forUrl(String url) {
+        StringBuilder apiUrl = new StringBuilder(url);
+        if (!url.endsWith("/")) {
+            apiUrl.append('/');
+        }
+        apiUrl.append("api/json?tree=");
+
+        // the HTTP client takes brackets in the query as they are, but RFC 3986 only allows them in IPv6 hosts, so
+        // they are encoded all the same
+        for (int i = 0; i < this.tree.length(); i++) {
+            char c = this.tree.charAt(i);
+            if (c == '[') {
+                apiUrl.append("%5B");
+            } else if (c == ']') {
+                apiUrl.append("%5D");
+            } else if (c == '{') {
+                // the braces of a range, on the other hand, are rejected as they are
+                apiUrl.append("%7B");
+            } else if (c == '}') {
+                apiUrl.append("%7D");
+            } else {
+                apiUrl.append(c);
+            }
+        }
+        return apiUrl.toString();
+    }
+
+    /**
+     * @param url
+     *            a JSON API URL, as built by {@link #forUrl(String)}
+     * @return the (decoded) tree expression of that URL, or null if it does not restrict the fields
+     */
+    public static String treeOf(String url) {
+        int query = url.indexOf('?');
+        if (query < 0) {
+            return null;
+        }
+        for (String parameter : url.substring(query + 1).split("&")) {
+            if (parameter.startsWith("tree=")) {
+                try {
+                    return URLDecoder.decode(parameter.substring("tree=".length()), "UTF-8");
+                } catch (UnsupportedEncodingException e) {
+                    throw new AssertionError(e);
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return this.tree;
+    }
+}
@@ -0,0 +1,131 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import hudson.Extension;
+import hudson.XmlFile;
+import hudson.model.Run;
+import hudson.model.Saveable;
+import hudson.model.TaskListener;
+import hudson.model.listeners.SaveableListener;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.cloudbees.plugins.credentials.SystemCredentialsProvider;
+
+/**
+ * Everything a single build needs while it talks to the remote server: the build itself, where to log to, the remote
+ * server it was configured with and the 'Authorization' headers that were worked out for it.
+ *
+ * Working out a header means looking up the credentials, expanding the tokens in them and encoding the result. The
+ * credentials don't change while the build runs, so that is done once per build instead of on every call (and every
+ * poll) it makes. When credentials or remote servers are saved, the headers of all running builds are worked out
+ * again on their next call, see {@link CredentialsListener}.
+ *
+ * That only covers the global credentials of {@link SystemCredentialsProvider}. {@link Auth} looks the credentials up
+ * outside of any folder, so the stores of folders (and users) are never used to begin with. Credentials that another
+ * provider hands out on the global level are not saved through Jenkins, so a change to them is not noticed: running
+ * builds keep the header they worked out, the builds that start after the change get the new one.
+ */
+public class BuildContext {
+
+    /**
+     * Cached header of credentials that turned out to be empty, the calls are made without an 'Authorization' header.
+     */
+    public static final String       ANONYMOUS      = "";
+
+    // bumped whenever credentials may have changed, a cache of an older generation is thrown away
+    private static final AtomicLong  GENERATION     = new AtomicLong();
+
+    private final Run<?, ?>          build;
+    private final TaskListener       listener;
+    private final RemoteJenkinsServer remoteServer;
+    private final RemoteBuildTrace   trace;
+
+    // keyed by the configured credentials themselves, a changed configuration comes with new Auth objects
+    private final Map<Auth, String>  authorizations = new IdentityHashMap<Auth, String>();
+    private long                     generation     = GENERATION.get();
+
+    /**
+     * @param build
+     *            the build that is being triggered, a freestyle build or a Pipeline run
+     * @param listener
+     *            build listener
+     * @param remoteServer
+     *            the remote server the build talks to, looked up once when the build starts
+     */
+    public BuildContext(Run<?, ?> build, TaskListener listener, RemoteJenkinsServer remoteServer) {
+        this.build = build;
+        this.listener = listener;
+        this.remoteServer = remoteServer;
+        this.trace = new RemoteBuildTrace(remoteServer == null ? null : remoteServer.getDisplayName());
+    }
+
+    public Run<?, ?> getBuild() {
+        return this.build;
+    }
+
+    public TaskListener getListener() {
+        return this.listener;
+    }
+
+    /**
+     * @return the remote server the build talks to, or null if it is not (or no longer) defined
+     */
+    public RemoteJenkinsServer getRemoteServer() {
+        return this.remoteServer;
+    }
+
+    /**
+     * @return the timeline of the trigger, every call to the remote server is counted in it
+     */
+    public RemoteBuildTrace getTrace() {
+        return this.trace;
+    }
+
+    /**
+     * @param auth
+     *            the credentials the call is made with
+     * @return the 'Authorization' header worked out for them, {@link #ANONYMOUS} if there is none, or null if it
+     *         hasn't been worked out yet (or the credentials have changed since)
+     */
+    public synchronized String getAuthorization(Auth auth) {
+        long current = GENERATION.get();
+        if (this.generation != current) {
+            this.authorizations.clear();
+            this.generation = current;
+        }
+        return this.authorizations.get(auth);
+    }
+
+    /**
+     * @param auth
+     *            the credentials the call is made with
+     * @param authorization
+     *            the 'Authorization' header worked out for them, or null if there is none
+     */
+    public synchronized void putAuthorization(Auth auth, String authorization) {
+        this.authorizations.put(auth, authorization == null ? ANONYMOUS : authorization);
+    }
+
+    /**
+     * Makes every build work out its 'Authorization' headers again, on its next call.
+     */
+    public static void invalidateAuthorizations() {
+        GENERATION.incrementAndGet();
+    }
+
+    /**
+     * Invalidates the cached 'Authorization' headers whenever the credentials, or the remote servers that refer to
+     * them, are saved.
+     */
+    @Extension
+    public static class CredentialsListener extends SaveableListener {
+        @Override
+        public void onChange(Saveable o, XmlFile file) {
+            if (o instanceof SystemCredentialsProvider || o instanceof RemoteBuildConfiguration.DescriptorImpl) {
+                invalidateAuthorizations();
+            }
+        }
+    }
+}
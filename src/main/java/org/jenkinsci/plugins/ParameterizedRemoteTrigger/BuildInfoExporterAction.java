@@ -1,14 +1,15 @@
 package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
 
 import hudson.EnvVars;
+import hudson.model.Actionable;
 import hudson.model.EnvironmentContributingAction;
 import hudson.model.Result;
 import hudson.model.AbstractBuild;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 
 class BuildInfoExporterAction implements EnvironmentContributingAction {
 
@@ -19,42 +20,125 @@ class BuildInfoExporterAction implements EnvironmentContributingAction {
     public static final String BUILD_RESULT_VARIABLE_PREFIX = "TRIGGERED_BUILD_RESULT_";
     public static final String BUILD_RUN_COUNT_PREFIX = "TRIGGERED_BUILD_RUN_COUNT_";
     public static final String RUN = "_RUN_";
+    public static final String BUILD_IN_QUEUE_SINCE_PREFIX = "TRIGGERED_BUILD_IN_QUEUE_SINCE_";
+    public static final String BUILD_TIMESTAMP_PREFIX = "TRIGGERED_BUILD_TIMESTAMP_";
+    public static final String BUILD_DURATION_PREFIX = "TRIGGERED_BUILD_DURATION_";
+    public static final String BUILD_ESTIMATED_DURATION_PREFIX = "TRIGGERED_BUILD_ESTIMATED_DURATION_";
+    public static final String BUILD_QUEUE_WAIT_PREFIX = "TRIGGERED_BUILD_QUEUE_WAIT_";
 
     private List<BuildReference> builds;
 
+    // the builds per project, kept up to date as builds are added so that exporting them doesn't have to go through
+    // all the builds for every project; not saved with the build, it is rebuilt from the builds when it is first needed
+    private transient Map<String, ProjectBuilds> projects;
+
     public BuildInfoExporterAction(AbstractBuild<?, ?> parentBuild, BuildReference buildRef) {
+        this(buildRef);
+    }
+
+    BuildInfoExporterAction(BuildReference buildRef) {
         super();
 
         this.builds = new ArrayList<BuildReference>();
-        this.builds.add(buildRef);
+        this.addBuildReference(buildRef);
     }
 
+    // the targets of a fan-out record their builds at the same time
     static BuildInfoExporterAction addBuildInfoExporterAction(AbstractBuild<?, ?> parentBuild, String triggeredProject, int buildNumber, Result buildResult) {
-        BuildReference reference = new BuildReference(triggeredProject, buildNumber, buildResult);
-
-        BuildInfoExporterAction action = parentBuild.getAction(BuildInfoExporterAction.class);
-        if (action == null) {
-            action = new BuildInfoExporterAction(parentBuild, reference);
-            parentBuild.getActions().add(action);
-        } else {
-            action.addBuildReference(reference);
+        return addBuildInfoExporterAction(parentBuild, triggeredProject, buildNumber, buildResult, null);
+    }
+
+    // takes any Actionable rather than a build, so that it can be tested without Jenkins
+    static BuildInfoExporterAction addBuildInfoExporterAction(Actionable parentBuild, String triggeredProject, int buildNumber, Result buildResult, RemoteBuildTiming timing) {
+        BuildReference reference = new BuildReference(triggeredProject, buildNumber, buildResult, timing);
+
+        BuildInfoExporterAction action;
+        // only the targets of the same build have to wait for each other, and only to add the action once
+        synchronized (parentBuild) {
+            action = parentBuild.getAction(BuildInfoExporterAction.class);
+            if (action == null) {
+                action = new BuildInfoExporterAction(reference);
+                parentBuild.getActions().add(action);
+                return action;
+            }
         }
+        action.addBuildReference(reference);
         return action;
     }
 
-    public void addBuildReference(BuildReference buildRef) {
+    public synchronized void addBuildReference(BuildReference buildRef) {
         this.builds.add(buildRef);
+        if (this.projects != null) {
+            this.index(buildRef);
+        }
+    }
+
+    /**
+     * @return the builds per project, in the order the projects were first triggered
+     */
+    private Map<String, ProjectBuilds> getProjects() {
+        if (this.projects == null) {
+            // loaded from disk, or not needed before
+            this.projects = new LinkedHashMap<String, ProjectBuilds>();
+            for (BuildReference br : this.builds) {
+                this.index(br);
+            }
+        }
+        return this.projects;
+    }
+
+    private void index(BuildReference buildRef) {
+        ProjectBuilds projectBuilds = this.projects.get(buildRef.projectName);
+        if (projectBuilds == null) {
+            projectBuilds = new ProjectBuilds(buildRef.projectName);
+            this.projects.put(buildRef.projectName, projectBuilds);
+        }
+        projectBuilds.add(buildRef);
+    }
+
+    /**
+     * The builds of one project, with what the environment variables need of them worked out as they are added.
+     */
+    private static class ProjectBuilds {
+        final String               sanatizedBuildName;
+        final List<BuildReference> refs         = new ArrayList<BuildReference>();
+        // the numbers of the builds that have one, separated by commas
+        final StringBuilder        buildNumbers = new StringBuilder();
+        // the last build that has a number, null if none has
+        BuildReference             lastBuild;
+
+        ProjectBuilds(String project) {
+            this.sanatizedBuildName = project.replaceAll("[^a-zA-Z0-9]+", "_");
+        }
+
+        void add(BuildReference br) {
+            this.refs.add(br);
+            if (br.buildNumber != 0) {
+                if (this.lastBuild != null) {
+                    this.buildNumbers.append(',');
+                }
+                this.buildNumbers.append(br.buildNumber);
+                this.lastBuild = br;
+            }
+        }
     }
 
     public static class BuildReference {
         public final String projectName;
         public final int buildNumber;
         public final Result buildResult;
+        // how long the remote build waited in the queue and ran, null if it wasn't waited for
+        public final RemoteBuildTiming timing;
 
         public BuildReference(String projectName, int buildNumber, Result buildResult) {
+            this(projectName, buildNumber, buildResult, null);
+        }
+
+        public BuildReference(String projectName, int buildNumber, Result buildResult, RemoteBuildTiming timing) {
             this.projectName = projectName;
             this.buildNumber = buildNumber;
             this.buildResult = buildResult;
+            this.timing = timing;
         }
     }
 
@@ -73,79 +157,49 @@ class BuildInfoExporterAction implements EnvironmentContributingAction {
         return null;
     }
 
-    public void buildEnvVars(AbstractBuild<?, ?> build, EnvVars env) {
-        for (String project : getProjectsWithBuilds()) {
-            String sanatizedBuildName = project.replaceAll("[^a-zA-Z0-9]+", "_");
-            List<BuildReference> refs = getBuildRefs(project);
+    public synchronized void buildEnvVars(AbstractBuild<?, ?> build, EnvVars env) {
+        for (ProjectBuilds projectBuilds : this.getProjects().values()) {
+            BuildReference lastBuild = projectBuilds.lastBuild;
+            if (lastBuild == null) {
+                // none of the builds of the project got a number
+                continue;
+            }
+            String sanatizedBuildName = projectBuilds.sanatizedBuildName;
 
-            env.put(ALL_BUILD_NUMBER_VARIABLE_PREFIX + sanatizedBuildName, getBuildNumbersString(refs, ","));
-            env.put(BUILD_RUN_COUNT_PREFIX + sanatizedBuildName, Integer.toString(refs.size()));
-            for (BuildReference br : refs) {
+            env.put(ALL_BUILD_NUMBER_VARIABLE_PREFIX + sanatizedBuildName, projectBuilds.buildNumbers.toString());
+            env.put(BUILD_RUN_COUNT_PREFIX + sanatizedBuildName, Integer.toString(projectBuilds.refs.size()));
+            String runResultPrefix = BUILD_RESULT_VARIABLE_PREFIX + sanatizedBuildName + RUN;
+            for (BuildReference br : projectBuilds.refs) {
                 if (br.buildNumber != 0) {
-                    String tiggeredBuildRunResultKey = BUILD_RESULT_VARIABLE_PREFIX + sanatizedBuildName + RUN + Integer.toString(br.buildNumber);
-                    env.put(tiggeredBuildRunResultKey, br.buildResult.toString());
+                    env.put(runResultPrefix + Integer.toString(br.buildNumber), br.buildResult.toString());
                 }
             }
-            BuildReference lastBuild = null;
-            for (int i = (refs.size()); i > 0; i--) {
-                if (refs.get(i - 1).buildNumber != 0) {
-                    lastBuild = refs.get(i - 1);
-                    break;
-                }
-            }
-            if (lastBuild != null) {
-                env.put(BUILD_NUMBER_VARIABLE_PREFIX + sanatizedBuildName, Integer.toString(lastBuild.buildNumber));
-                env.put(BUILD_RESULT_VARIABLE_PREFIX + sanatizedBuildName, lastBuild.buildResult.toString());
+            env.put(BUILD_NUMBER_VARIABLE_PREFIX + sanatizedBuildName, Integer.toString(lastBuild.buildNumber));
+            env.put(BUILD_RESULT_VARIABLE_PREFIX + sanatizedBuildName, lastBuild.buildResult.toString());
+            if (lastBuild.timing != null) {
+                putTiming(env, sanatizedBuildName, lastBuild.timing);
             }
         }
     }
 
-    private List<BuildReference> getBuildRefs(String project) {
-        List<BuildReference> refs = new ArrayList<BuildReference>();
-        for (BuildReference br : builds) {
-            if (br.projectName.equals(project)) refs.add(br);
-        }
-        return refs;
-    }
-
     /**
-     * Gets a string for all of the build numbers
-     *
-     * @param refs List of build references to process.
-     * @param separator
-     * @return String containing all the build numbers from refs, never null but
-     * can be empty
+     * Exports the times the remote server gave for a build, leaving out the ones it didn't give.
      */
-    private String getBuildNumbersString(List<BuildReference> refs, String separator) {
-        StringBuilder buf = new StringBuilder();
-        boolean first = true;
-
-        for (BuildReference s : refs) {
-            if (s.buildNumber != 0) {
-                if (first) {
-                    first = false;
-                } else {
-                    buf.append(separator);
-                }
-                buf.append(s.buildNumber);
-            }
+    private void putTiming(EnvVars env, String sanatizedBuildName, RemoteBuildTiming timing) {
+        if (timing.getInQueueSince() > 0) {
+            env.put(BUILD_IN_QUEUE_SINCE_PREFIX + sanatizedBuildName, Long.toString(timing.getInQueueSince()));
         }
-        return buf.toString();
-    }
-
-    /**
-     * Gets the unique set of project names that have a linked build.
-     *
-     * @return Set of project names that have at least one build linked.
-     */
-    private Set<String> getProjectsWithBuilds() {
-        Set<String> projects = new HashSet<String>();
-
-        for (BuildReference br : this.builds) {
-            if (br.buildNumber != 0) {
-                projects.add(br.projectName);
-            }
+        if (timing.getTimestamp() > 0) {
+            env.put(BUILD_TIMESTAMP_PREFIX + sanatizedBuildName, Long.toString(timing.getTimestamp()));
+        }
+        if (timing.getExecutionTime() >= 0) {
+            env.put(BUILD_DURATION_PREFIX + sanatizedBuildName, Long.toString(timing.getExecutionTime()));
+        }
+        if (timing.getEstimatedDuration() >= 0) {
+            env.put(BUILD_ESTIMATED_DURATION_PREFIX + sanatizedBuildName, Long.toString(timing.getEstimatedDuration()));
+        }
+        if (timing.getQueueWait() >= 0) {
+            env.put(BUILD_QUEUE_WAIT_PREFIX + sanatizedBuildName, Long.toString(timing.getQueueWait()));
         }
-        return projects;
     }
-}
\ No newline at end of file
+}
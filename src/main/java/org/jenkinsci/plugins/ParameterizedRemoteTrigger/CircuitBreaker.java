@@ -0,0 +1,142 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stops every build from hammering a remote server that is down.
+ *
+ * There is one circuit breaker per remote server, shared by all builds. It is closed while the server answers. After
+ * 'failureThreshold' calls in a row could not reach the server (or got a 5xx response), it opens: calls then fail right
+ * away with a {@link CircuitOpenException}, without going to the network. Once 'openSeconds' have passed it is
+ * half-open, and a single call is let through as a probe: if that one reaches the server the breaker closes again,
+ * otherwise it stays open for another 'openSeconds'. Once the breaker has opened, only the probe decides whether it
+ * closes again; calls that were let through before it opened, and finish later, don't change it anymore.
+ */
+public class CircuitBreaker {
+
+    static final int  DEFAULT_FAILURE_THRESHOLD = Integer.getInteger(CircuitBreaker.class.getName()
+                                                        + ".failureThreshold", 5);
+    static final int  DEFAULT_OPEN_SECONDS      = Integer.getInteger(CircuitBreaker.class.getName() + ".openSeconds",
+                                                        30);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private int       failureThreshold          = DEFAULT_FAILURE_THRESHOLD;
+    private long      openMillis                = TimeUnit.SECONDS.toMillis(DEFAULT_OPEN_SECONDS);
+
+    private State     state                     = State.CLOSED;
+    private int       failures;
+    private long      openedAt;
+    private long      opened;
+
+    /**
+     * @param failureThreshold
+     *            failed calls in a row that open the breaker, 0 to never open it
+     * @param openMillis
+     *            how long the breaker stays open before a probe is let through
+     */
+    synchronized void configure(int failureThreshold, long openMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * Called before every call to the remote server.
+     *
+     * @param key
+     *            the remote server, used in the error message
+     * @return true if the call is the probe of a half-open breaker; whatever this returns is handed to the method that
+     *         is called once the call is done
+     * @throws CircuitOpenException
+     *             if the call must not be made, because the breaker is open or another call is probing the server
+     */
+    public synchronized boolean beforeCall(String key) throws CircuitOpenException {
+        if (this.state == State.CLOSED) {
+            return false;
+        }
+        long remaining = this.openedAt + this.openMillis - System.currentTimeMillis();
+        if (this.state == State.OPEN && remaining <= 0) {
+            // this call is the probe, every other call keeps failing until it is done
+            this.state = State.HALF_OPEN;
+            return true;
+        }
+        throw new CircuitOpenException("Remote server " + key + " is unavailable, not calling it for another "
+                + Math.max(1, TimeUnit.MILLISECONDS.toSeconds(remaining)) + " seconds.");
+    }
+
+    /**
+     * Called after a call that reached the remote server.
+     *
+     * @param probe
+     *            what {@link #beforeCall(String)} returned for the call
+     */
+    public synchronized void onSuccess(boolean probe) {
+        if (probe || this.state == State.CLOSED) {
+            this.failures = 0;
+            this.state = State.CLOSED;
+        }
+    }
+
+    /**
+     * Called after a call that could not reach the remote server, or got a 5xx response.
+     *
+     * @param probe
+     *            what {@link #beforeCall(String)} returned for the call
+     */
+    public synchronized void onFailure(boolean probe) {
+        if (probe) {
+            this.open();
+        } else if (this.state == State.CLOSED) {
+            this.failures++;
+            if (this.failureThreshold > 0 && this.failures >= this.failureThreshold) {
+                this.open();
+            }
+        }
+    }
+
+    /**
+     * Called if a call that {@link #beforeCall(String)} let through was not made after all.
+     *
+     * @param probe
+     *            what {@link #beforeCall(String)} returned for the call
+     */
+    public synchronized void onCancelled(boolean probe) {
+        if (probe) {
+            // the server was not probed after all; it stays open for another 'openSeconds', as after a failed probe,
+            // but that doesn't count as opening it again
+            this.state = State.OPEN;
+            this.openedAt = System.currentTimeMillis();
+        }
+    }
+
+    private void open() {
+        this.state = State.OPEN;
+        this.openedAt = System.currentTimeMillis();
+        this.opened++;
+    }
+
+    public synchronized State getState() {
+        return this.state;
+    }
+
+    /**
+     * @return number of times the breaker has opened
+     */
+    public synchronized long getOpened() {
+        return this.opened;
+    }
+
+    /**
+     * Thrown instead of calling a remote server whose circuit breaker is open.
+     */
+    public static class CircuitOpenException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public CircuitOpenException(String message) {
+            super(message);
+        }
+    }
+}
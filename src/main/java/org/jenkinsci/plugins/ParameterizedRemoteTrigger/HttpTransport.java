@@ -0,0 +1,816 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import hudson.Extension;
+import hudson.model.PeriodicWork;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.config.ConnectionConfig;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.HttpConnectionFactory;
+import org.apache.http.conn.ManagedHttpClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.ManagedHttpClientConnectionFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+/**
+ * Shared HTTP transport for every call made to a remote Jenkins server.
+ *
+ * There is exactly one transport per remote server entry, and its address (protocol, host and port); entries that
+ * share an address still get a transport each, with the settings of their own. Each one owns a pool of keep-alive
+ * connections, so that polling a remote build re-uses an open socket instead of paying for a new TCP and TLS
+ * handshake on every request. Connections that sit idle for longer than the configured timeout are evicted by
+ * {@link IdleConnectionEvictor}. Every request first waits for its turn with the {@link RequestGovernor} of the
+ * transport, which keeps the calls within the limits configured for the remote server, and then asks its
+ * {@link CircuitBreaker} whether the remote server is worth calling at all. Every request is sent with a connect and a
+ * read timeout, and is aborted if it isn't done by its deadline, so a remote server that accepts the connection but
+ * never answers can't hold up a build forever. The deadline covers the wait for its turn as well.
+ */
+public class HttpTransport {
+
+    /**
+     * Connections in the pool are checked for staleness before being re-used if they have been idle this long.
+     */
+    private static final int                                   VALIDATE_AFTER_INACTIVITY = 2000;
+
+    // aborts the requests that are still running at their deadline, shared by all transports
+    private static final ScheduledThreadPoolExecutor           DEADLINES                 = new ScheduledThreadPoolExecutor(
+                                                                                                 1,
+                                                                                                 new NamingThreadFactory(
+                                                                                                         new DaemonThreadFactory(),
+                                                                                                         "HttpTransport deadlines"));
+
+    private static final ConcurrentMap<String, HttpTransport> TRANSPORTS                = new ConcurrentHashMap<String, HttpTransport>();
+
+    private final String                                       key;
+    private final PoolingHttpClientConnectionManager           connectionManager;
+    private final CloseableHttpClient                          httpClient;
+    private final RequestGovernor                              governor                  = new RequestGovernor();
+    private final CircuitBreaker                               circuitBreaker            = new CircuitBreaker();
+    private final RemoteCallMetrics                            metrics;
+
+    private volatile int                                       connectionIdleTimeout;
+    // requests that are using the transport, -1 once it is closed; set once no remote server entry uses it anymore
+    private final AtomicInteger                                users                     = new AtomicInteger();
+    private volatile boolean                                   retired;
+    // used for requests that don't come with timeouts of their own
+    private volatile Timeouts                                  defaultTimeouts           = Timeouts.DEFAULT;
+
+    // every request leases a connection; a lease that had to open a new connection is a miss
+    private final AtomicLong                                   requests                  = new AtomicLong();
+    private final AtomicLong                                   misses                    = new AtomicLong();
+
+    // every attempt of a call, as seen by its RetryPolicy
+    private final AtomicLong                                   attempts                  = new AtomicLong();
+    private final AtomicLong                                   retries                   = new AtomicLong();
+    private final AtomicLong                                   failedAttempts            = new AtomicLong();
+    private final AtomicLong                                   attemptNanos              = new AtomicLong();
+
+    private final AtomicLong                                   connectTimeouts           = new AtomicLong();
+    private final AtomicLong                                   readTimeouts              = new AtomicLong();
+    private final AtomicLong                                   deadlinesExceeded         = new AtomicLong();
+    private final AtomicLong                                   poolTimeouts              = new AtomicLong();
+
+    private HttpTransport(String key) {
+        this.key = key;
+        this.metrics = new RemoteCallMetrics(key);
+
+        HttpConnectionFactory<HttpRoute, ManagedHttpClientConnection> connectionFactory = new HttpConnectionFactory<HttpRoute, ManagedHttpClientConnection>() {
+            public ManagedHttpClientConnection create(HttpRoute route, ConnectionConfig config) {
+                misses.incrementAndGet();
+                return ManagedHttpClientConnectionFactory.INSTANCE.create(route, config);
+            }
+        };
+
+        this.connectionManager = new PoolingHttpClientConnectionManager(RegistryBuilder
+                .<ConnectionSocketFactory> create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("https", SSLConnectionSocketFactory.getSystemSocketFactory()).build(), connectionFactory);
+        this.connectionManager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY);
+
+        this.httpClient = HttpClients.custom().useSystemProperties().setConnectionManager(this.connectionManager)
+                .build();
+    }
+
+    /**
+     * Looks up (or lazily creates) the transport for the given remote server, and applies the server's current pool
+     * settings to it.
+     *
+     * @param remoteServer
+     *            the remote server that is about to be called
+     * @return the transport shared by every caller of that server
+     */
+    public static HttpTransport forServer(RemoteJenkinsServer remoteServer) {
+        HttpTransport transport = forKey(getKey(remoteServer));
+        transport.configure(remoteServer.getMaxConnections(), remoteServer.getConnectionIdleTimeout());
+        transport.defaultTimeouts = remoteServer.getTimeouts();
+        transport.governor.configure(getMaxInFlight(remoteServer.getMaxConcurrentRequests(),
+                remoteServer.getMaxConnections()), remoteServer.getMaxRequestsPerSecond());
+        return transport;
+    }
+
+    /**
+     * Same as above, but for an address that does not (yet) belong to a configured remote server. The transport uses
+     * the default pool settings, it is not shared with the remote servers of the same address.
+     *
+     * @param address
+     *            address of the remote host
+     * @return the transport shared by every caller of that address
+     */
+    public static HttpTransport forAddress(URL address) {
+        return forKey(getKey(address));
+    }
+
+    private static HttpTransport forKey(String key) {
+        HttpTransport transport = TRANSPORTS.get(key);
+
+        if (transport == null) {
+            HttpTransport newTransport = new HttpTransport(key);
+            newTransport.configure(RemoteJenkinsServer.DEFAULT_MAX_CONNECTIONS,
+                    RemoteJenkinsServer.DEFAULT_CONNECTION_IDLE_TIMEOUT);
+            newTransport.governor.configure(RemoteJenkinsServer.DEFAULT_MAX_CONNECTIONS, 0);
+            transport = TRANSPORTS.putIfAbsent(key, newTransport);
+            if (transport == null) {
+                transport = newTransport;
+            } else {
+                // somebody else beat us to it
+                newTransport.close();
+            }
+        }
+        return transport;
+    }
+
+    /**
+     * Sends a single request over a transport of its own, which is closed right after. Unlike the transports above it
+     * is never listed, so calling an address that may never be used again (i.e. one that is being validated) leaves
+     * nothing behind.
+     *
+     * @param address
+     *            address of the remote host
+     * @return whatever the handler returned
+     * @throws IOException
+     *             same as {@link #execute(String, String, String, ResponseHandler, Timeouts)}
+     */
+    public static <T> T executeOnce(URL address, String requestType, String urlString, String authorization,
+            ResponseHandler<T> handler, Timeouts timeouts, RemoteCallMetrics.Endpoint endpoint) throws IOException {
+        HttpTransport transport = new HttpTransport(getKey(address));
+        try {
+            transport.configure(1, 0);
+            transport.governor.configure(1, 0);
+            return transport.execute(requestType, urlString, authorization, handler, timeouts, endpoint);
+        } finally {
+            transport.close();
+        }
+    }
+
+    /**
+     * @return every transport that has been used so far, ordered by their keys; except for those that were dropped by
+     *         {@link #retain(Collection)}
+     */
+    public static List<HttpTransport> all() {
+        List<HttpTransport> transports = new ArrayList<HttpTransport>(TRANSPORTS.values());
+        Collections.sort(transports, new Comparator<HttpTransport>() {
+            public int compare(HttpTransport a, HttpTransport b) {
+                return a.key.compareTo(b.key);
+            }
+        });
+        return transports;
+    }
+
+    /**
+     * Drops the transports that no configured remote server entry uses anymore: those of entries that were removed,
+     * renamed or moved to another address, and those of addresses that don't belong to an entry. Their connections are
+     * closed; a transport that is still in use is closed once its last request is done. A transport is created again
+     * if it is needed after all.
+     *
+     * @param remoteServers
+     *            the remote server entries that are configured
+     */
+    public static void retain(Collection<RemoteJenkinsServer> remoteServers) {
+        Set<String> keys = new HashSet<String>();
+        for (RemoteJenkinsServer remoteServer : remoteServers) {
+            keys.add(getKey(remoteServer));
+        }
+        for (Map.Entry<String, HttpTransport> entry : TRANSPORTS.entrySet()) {
+            if (!keys.contains(entry.getKey()) && TRANSPORTS.remove(entry.getKey(), entry.getValue())) {
+                entry.getValue().retire();
+            }
+        }
+    }
+
+    static String getKey(URL address) {
+        int port = address.getPort() == -1 ? address.getDefaultPort() : address.getPort();
+        return address.getProtocol().toLowerCase() + "://" + address.getHost().toLowerCase() + ":" + port;
+    }
+
+    /**
+     * @return the name of the remote server entry, along with its address
+     */
+    static String getKey(RemoteJenkinsServer remoteServer) {
+        return remoteServer.getDisplayName() + " (" + getKey(remoteServer.getAddress()) + ")";
+    }
+
+    /**
+     * Requests beyond the size of the connection pool wait for their turn in the governor, where they are let through
+     * in order and without a timeout, rather than for a connection in the pool.
+     *
+     * @return the number of requests the governor lets through at the same time
+     */
+    static int getMaxInFlight(int maxConcurrentRequests, int maxConnections) {
+        return maxConcurrentRequests > 0 ? Math.min(maxConcurrentRequests, maxConnections) : maxConnections;
+    }
+
+    private void configure(int maxConnections, int connectionIdleTimeout) {
+        if (this.connectionManager.getMaxTotal() != maxConnections) {
+            this.connectionManager.setMaxTotal(maxConnections);
+            this.connectionManager.setDefaultMaxPerRoute(maxConnections);
+        }
+        this.connectionIdleTimeout = connectionIdleTimeout;
+    }
+
+    /**
+     * Sends a single request to the remote server over a pooled connection.
+     *
+     * The connection is handed back to the pool (and kept alive) once the handler returns, so the handler must not
+     * hold on to the response entity.
+     *
+     * @param requestType
+     *            the type of request (GET, POST, etc)
+     * @param urlString
+     *            the URL that needs to be called
+     * @param authorization
+     *            value of the 'Authorization' header, or null if the call is anonymous
+     * @param handler
+     *            reads whatever it needs from the response
+     * @return whatever the handler returned
+     * @throws IOException
+     *             if the connection failed, the handler gave up on the response, or the thread was interrupted while
+     *             the request waited for its turn; a {@link CircuitBreaker.CircuitOpenException} if the remote server
+     *             is known to be down, and the request was not sent at all
+     */
+    public <T> T execute(String requestType, String urlString, String authorization, ResponseHandler<T> handler)
+            throws IOException {
+        return this.execute(requestType, urlString, authorization, handler, this.defaultTimeouts);
+    }
+
+    /**
+     * Same as above, but with the given timeouts instead of the ones of the remote server.
+     *
+     * @param timeouts
+     *            how long the request may take
+     * @throws IOException
+     *             same as above; a {@link java.net.SocketTimeoutException} if the request timed out, or was aborted at
+     *             its deadline; a {@link TurnTimeoutException} if it was not even its turn by then
+     */
+    public <T> T execute(String requestType, String urlString, String authorization, ResponseHandler<T> handler,
+            Timeouts timeouts) throws IOException {
+        return this.execute(requestType, urlString, authorization, handler, timeouts,
+                RemoteCallMetrics.Endpoint.forUrl(urlString));
+    }
+
+    /**
+     * Same as above, for a call whose URL doesn't tell what it is for.
+     *
+     * @param endpoint
+     *            what the call is for, it is counted as such in the {@link RemoteCallMetrics}
+     */
+    public <T> T execute(String requestType, String urlString, String authorization, final ResponseHandler<T> handler,
+            Timeouts timeouts, RemoteCallMetrics.Endpoint endpoint) throws IOException {
+        return this.execute(requestType, urlString, authorization, handler, timeouts, endpoint, true);
+    }
+
+    /**
+     * Same as above, but never waits for the turn of the request: if the {@link RequestGovernor} doesn't let it through
+     * right away, it is not sent. For callers that must not hold their thread, i.e.: the {@link RemoteBuildWatcher}.
+     *
+     * @throws IOException
+     *             same as above; a {@link TurnDeferredException} if it is not the turn of the request, it may be sent
+     *             again after the delay the exception tells
+     */
+    public <T> T executeNow(String requestType, String urlString, String authorization, ResponseHandler<T> handler,
+            Timeouts timeouts, RemoteCallMetrics.Endpoint endpoint) throws IOException {
+        return this.execute(requestType, urlString, authorization, handler, timeouts, endpoint, false);
+    }
+
+    private <T> T execute(String requestType, String urlString, String authorization, ResponseHandler<T> handler,
+            Timeouts timeouts, RemoteCallMetrics.Endpoint endpoint, boolean wait) throws IOException {
+        if (!this.use()) {
+            throw new IOException("No remote server entry uses " + this.key + " anymore, its connections are closed");
+        }
+        try {
+            return this.send(requestType, urlString, authorization, handler, timeouts, endpoint, wait);
+        } finally {
+            this.done();
+        }
+    }
+
+    private <T> T send(String requestType, String urlString, String authorization, final ResponseHandler<T> handler,
+            Timeouts timeouts, RemoteCallMetrics.Endpoint endpoint, boolean wait) throws IOException {
+        RequestBuilder request = RequestBuilder.create(requestType).setUri(urlString);
+        request.setHeader("Accept", "application/json");
+        if (authorization != null) {
+            request.setHeader("Authorization", authorization);
+        }
+        if ("POST".equals(requestType)) {
+            // Jenkins wants a Content-Length, even though we never send a body
+            request.setEntity(new ByteArrayEntity(new byte[0]));
+        }
+
+        // a remote server that is down isn't worth waiting for a turn
+        boolean probe = this.circuitBreaker.beforeCall(this.key);
+        long called = System.nanoTime();
+        RequestGovernor.Permit permit;
+        if (wait) {
+            try {
+                permit = this.governor.acquire(timeouts.getDeadlineMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                this.circuitBreaker.onCancelled(probe);
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting to send a request to " + this.key);
+            }
+        } else {
+            permit = this.governor.tryAcquire();
+            if (!permit.isGranted()) {
+                this.circuitBreaker.onCancelled(probe);
+                throw new TurnDeferredException("Request to " + urlString + " is not its turn yet",
+                        permit.getDelayMillis());
+            }
+        }
+        if (permit == null) {
+            this.circuitBreaker.onCancelled(probe);
+            this.deadlinesExceeded.incrementAndGet();
+            throw new TurnTimeoutException("Request to " + urlString + " did not get its turn within "
+                    + timeouts.getDeadlineMillis() + " ms");
+        }
+        // what is left of the deadline once it is our turn
+        final long remainingMillis = Math.max(1,
+                timeouts.getDeadlineMillis() - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - called));
+
+        // the governor keeps the requests within the pool size, a connection only has to be waited for while the
+        // pool is being resized; that wait is local and is not a connect timeout
+        request.setConfig(RequestConfig.custom().setConnectTimeout(timeouts.getConnectMillis())
+                .setConnectionRequestTimeout((int) Math.min(Integer.MAX_VALUE, remainingMillis))
+                .setSocketTimeout(timeouts.getReadMillis()).build());
+
+        // whether the remote server answered, as opposed to the connection failing or a proxy saying it is down
+        final boolean[] reached = new boolean[1];
+        // whether the request never left this side, which says nothing about the remote server
+        boolean local = false;
+        final HttpUriRequest httpRequest = request.build();
+        final AtomicBoolean aborted = new AtomicBoolean();
+        ScheduledFuture<?> deadline = DEADLINES.schedule(new Runnable() {
+            public void run() {
+                aborted.set(true);
+                httpRequest.abort();
+            }
+        }, remainingMillis, TimeUnit.MILLISECONDS);
+        final long[] bytes = new long[1];
+        IOException failure = null;
+        long start = System.nanoTime();
+        this.metrics.onStart();
+        try {
+            this.requests.incrementAndGet();
+            return this.httpClient.execute(httpRequest, new ResponseHandler<T>() {
+                public T handleResponse(HttpResponse response) throws IOException {
+                    reached[0] = response.getStatusLine().getStatusCode() < 500;
+                    if (response.getEntity() != null) {
+                        response.setEntity(new CountingEntity(response.getEntity(), bytes));
+                    }
+                    return handler.handleResponse(response);
+                }
+            });
+        } catch (IOException e) {
+            failure = e;
+            if (aborted.get()) {
+                this.deadlinesExceeded.incrementAndGet();
+                reached[0] = false;
+                SocketTimeoutException timeout = new SocketTimeoutException("Request to " + urlString
+                        + " did not complete within " + timeouts.getDeadlineMillis() + " ms");
+                timeout.initCause(e);
+                failure = timeout;
+                throw timeout;
+            } else if (e instanceof ConnectionPoolTimeoutException) {
+                this.poolTimeouts.incrementAndGet();
+                local = true;
+            } else if (e instanceof ConnectTimeoutException) {
+                this.connectTimeouts.incrementAndGet();
+            } else if (e instanceof SocketTimeoutException) {
+                // the remote server did not send anything for too long, be it the response or the rest of it
+                this.readTimeouts.incrementAndGet();
+                reached[0] = false;
+            }
+            throw e;
+        } finally {
+            long latency = System.nanoTime() - start;
+            this.metrics.onDone(endpoint, latency, bytes[0], failure != null);
+            RemoteCallListener.fireCall(this.key, endpoint, latency, bytes[0], failure);
+
+            deadline.cancel(false);
+            this.governor.release(permit);
+            if (local) {
+                this.circuitBreaker.onCancelled(probe);
+            } else if (reached[0]) {
+                this.circuitBreaker.onSuccess(probe);
+            } else {
+                this.circuitBreaker.onFailure(probe);
+            }
+        }
+    }
+
+    /**
+     * Mimics the status handling of {@link java.net.HttpURLConnection}: a 404 or 410 still has a body worth reading,
+     * any other error status is treated like a failed connection.
+     *
+     * @param response
+     *            the response to check
+     * @param urlString
+     *            the URL that was called, used in the error message
+     * @throws IOException
+     *             if the response code indicates a failure
+     */
+    public static void checkResponseCode(HttpResponse response, String urlString) throws IOException {
+        int responseCode = response.getStatusLine().getStatusCode();
+        if (responseCode >= 400 && responseCode != 404 && responseCode != 410) {
+            throw new StatusException(responseCode, urlString);
+        }
+    }
+
+    /**
+     * Thrown for a response with an error status, so that the status can tell whether the call is worth retrying.
+     */
+    public static class StatusException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private final int         statusCode;
+
+        public StatusException(int statusCode, String urlString) {
+            super("Server returned HTTP response code: " + statusCode + " for URL: " + urlString);
+            this.statusCode = statusCode;
+        }
+
+        public int getStatusCode() {
+            return this.statusCode;
+        }
+    }
+
+    /**
+     * Thrown for a request that waited for its turn with the {@link RequestGovernor} until its deadline, and was never
+     * sent.
+     */
+    public static class TurnTimeoutException extends SocketTimeoutException {
+        private static final long serialVersionUID = 1L;
+
+        public TurnTimeoutException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Thrown by {@link HttpTransport#executeNow} for a request that was not let through by the {@link RequestGovernor}
+     * right away, and was not sent.
+     */
+    public static class TurnDeferredException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private final long        delayMillis;
+
+        public TurnDeferredException(String message, long delayMillis) {
+            super(message);
+            this.delayMillis = delayMillis;
+        }
+
+        /**
+         * @return milliseconds to wait before sending the request again
+         */
+        public long getDelayMillis() {
+            return this.delayMillis;
+        }
+    }
+
+    /**
+     * Closes all connections that have been idle for longer than the configured timeout, as well as all the
+     * connections the remote server has told us it will not keep alive any longer.
+     */
+    public void evictIdleConnections() {
+        this.connectionManager.closeExpiredConnections();
+        this.connectionManager.closeIdleConnections(this.connectionIdleTimeout, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return false if the transport is closed, and can't be used anymore
+     */
+    private boolean use() {
+        for (;;) {
+            int users = this.users.get();
+            if (users < 0) {
+                return false;
+            } else if (this.users.compareAndSet(users, users + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void done() {
+        if (this.users.decrementAndGet() == 0 && this.retired && this.users.compareAndSet(0, -1)) {
+            this.close();
+        }
+    }
+
+    /**
+     * Closes the transport once it isn't used anymore, right away if it isn't used now.
+     */
+    private void retire() {
+        this.retired = true;
+        if (this.users.compareAndSet(0, -1)) {
+            this.close();
+        }
+    }
+
+    private void close() {
+        try {
+            this.httpClient.close();
+        } catch (IOException e) {
+            // the connections are dropped either way
+        }
+    }
+
+    public String getKey() {
+        return this.key;
+    }
+
+    /**
+     * @return the governor that keeps the requests of this transport within the limits of the remote server
+     */
+    public RequestGovernor getGovernor() {
+        return this.governor;
+    }
+
+    /**
+     * @return the numbers on the calls made over this transport
+     */
+    public RemoteCallMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * @return the circuit breaker that stops calls to the remote server while it is down
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return this.circuitBreaker;
+    }
+
+    /**
+     * Counts an attempt of a call to the remote server.
+     *
+     * @param attempt
+     *            number of the attempt, anything after the first one is a retry
+     * @param latencyNanos
+     *            how long the attempt took
+     * @param failed
+     *            whether it failed
+     */
+    public void recordAttempt(int attempt, long latencyNanos, boolean failed) {
+        this.attempts.incrementAndGet();
+        if (attempt > 1) {
+            this.retries.incrementAndGet();
+        }
+        if (failed) {
+            this.failedAttempts.incrementAndGet();
+        }
+        this.attemptNanos.addAndGet(latencyNanos);
+    }
+
+    /**
+     * Counts a failed call that is about to be tried again.
+     *
+     * @param endpoint
+     *            what the call is for
+     * @param attempt
+     *            number of the attempt that failed
+     */
+    public void recordRetry(RemoteCallMetrics.Endpoint endpoint, int attempt) {
+        this.metrics.onRetry(endpoint);
+        RemoteCallListener.fireRetry(this.key, endpoint, attempt);
+    }
+
+    /**
+     * @return number of attempts made to call the remote server, retries included
+     */
+    public long getAttempts() {
+        return this.attempts.get();
+    }
+
+    /**
+     * @return number of attempts that were retries of a failed one
+     */
+    public long getRetries() {
+        return this.retries.get();
+    }
+
+    /**
+     * @return number of attempts that failed
+     */
+    public long getFailedAttempts() {
+        return this.failedAttempts.get();
+    }
+
+    /**
+     * @return average time (in milliseconds) an attempt took, or 0 if none was made yet
+     */
+    public long getAverageAttemptMillis() {
+        long attempts = this.attempts.get();
+        return attempts == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(this.attemptNanos.get() / attempts);
+    }
+
+    /**
+     * @return number of requests that could not connect in time
+     */
+    public long getConnectTimeouts() {
+        return this.connectTimeouts.get();
+    }
+
+    /**
+     * @return number of requests that got no data from the remote server for longer than the read timeout
+     */
+    public long getReadTimeouts() {
+        return this.readTimeouts.get();
+    }
+
+    /**
+     * @return number of requests that were aborted because they weren't done by their deadline
+     */
+    public long getDeadlinesExceeded() {
+        return this.deadlinesExceeded.get();
+    }
+
+    /**
+     * @return number of requests that gave up waiting for a connection from the pool, and were never sent
+     */
+    public long getPoolTimeouts() {
+        return this.poolTimeouts.get();
+    }
+
+    /**
+     * @return number of requests that were sent over an already open connection
+     */
+    public long getPoolHits() {
+        return Math.max(0, this.requests.get() - this.misses.get());
+    }
+
+    /**
+     * @return number of requests that needed a new connection to be opened
+     */
+    public long getPoolMisses() {
+        return this.misses.get();
+    }
+
+    /**
+     * @return number of connections that are currently in use
+     */
+    public int getLeasedConnections() {
+        return this.connectionManager.getTotalStats().getLeased();
+    }
+
+    /**
+     * @return number of idle connections that are being kept alive
+     */
+    public int getIdleConnections() {
+        return this.connectionManager.getTotalStats().getAvailable();
+    }
+
+    /**
+     * Counts the bytes of a response as the handler reads them.
+     */
+    private static class CountingEntity extends HttpEntityWrapper {
+        private final long[] bytes;
+
+        CountingEntity(HttpEntity entity, long[] bytes) {
+            super(entity);
+            this.bytes = bytes;
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            return new FilterInputStream(super.getContent()) {
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    if (b >= 0) {
+                        bytes[0]++;
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    int read = super.read(buffer, offset, length);
+                    if (read > 0) {
+                        bytes[0] += read;
+                    }
+                    return read;
+                }
+            };
+        }
+    }
+
+    /**
+     * How long a single request may take.
+     */
+    public static final class Timeouts {
+
+        public static final Timeouts DEFAULT = new Timeouts(RemoteJenkinsServer.DEFAULT_CONNECT_TIMEOUT * 1000,
+                                                     RemoteJenkinsServer.DEFAULT_READ_TIMEOUT * 1000,
+                                                     RemoteJenkinsServer.DEFAULT_REQUEST_DEADLINE * 1000L);
+
+        private final int            connectMillis;
+        private final int            readMillis;
+        private final long           deadlineMillis;
+
+        /**
+         * @param connectMillis
+         *            how long to wait for the connection to be open
+         * @param readMillis
+         *            how long to wait for the next data of the response
+         * @param deadlineMillis
+         *            time from the call after which the request is aborted, however busy the remote server is; it
+         *            covers the wait for its turn and for a connection from the pool as well
+         */
+        public Timeouts(int connectMillis, int readMillis, long deadlineMillis) {
+            this.connectMillis = connectMillis;
+            this.readMillis = readMillis;
+            this.deadlineMillis = deadlineMillis;
+        }
+
+        public int getConnectMillis() {
+            return this.connectMillis;
+        }
+
+        public int getReadMillis() {
+            return this.readMillis;
+        }
+
+        public long getDeadlineMillis() {
+            return this.deadlineMillis;
+        }
+    }
+
+    /**
+     * Periodically walks all transports and evicts their idle connections.
+     */
+    @Extension
+    public static class IdleConnectionEvictor extends PeriodicWork {
+
+        @Override
+        public long getRecurrencePeriod() {
+            return 10 * 1000;
+        }
+
+        @Override
+        protected void doRun() {
+            for (HttpTransport transport : TRANSPORTS.values()) {
+                transport.evictIdleConnections();
+            }
+            // the deadlines of requests that are done are cancelled, but stay queued until they are purged
+            DEADLINES.purge();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
+/**
+ * Remembers what the plugin needs to know about the jobs of one remote server before it triggers them: their parameter
+ * definitions, and so whether they are parameterized.
+ *
+ * That rarely changes, so there is no need to ask the remote server again every time the same job is triggered. Each
+ * entry is kept for the time-to-live configured for the remote server, and only the most recently used jobs are kept.
+ */
+public class JobMetadataCache {
+
+    /**
+     * Most jobs remembered per remote server, the least recently used job is dropped first.
+     */
+    static final int                                             MAX_JOBS = Integer.getInteger(
+                                                                          JobMetadataCache.class.getName() + ".maxJobs",
+                                                                          500);
+
+    private static final ConcurrentMap<String, JobMetadataCache> CACHES   = new ConcurrentHashMap<String, JobMetadataCache>();
+
+    private final Map<String, JobMetadata>                       jobs;
+
+    JobMetadataCache(final int maxJobs) {
+        // access order, so that the eldest entry is the least recently used one
+        this.jobs = new LinkedHashMap<String, JobMetadata>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, JobMetadata> eldest) {
+                return this.size() > maxJobs;
+            }
+        };
+    }
+
+    /**
+     * @param remoteServer
+     *            the remote server
+     * @return the cache for the jobs of that server, shared by every build
+     */
+    public static JobMetadataCache forServer(RemoteJenkinsServer remoteServer) {
+        String key = remoteServer.getAddress().toString();
+        JobMetadataCache cache = CACHES.get(key);
+        if (cache == null) {
+            JobMetadataCache newCache = new JobMetadataCache(MAX_JOBS);
+            cache = CACHES.putIfAbsent(key, newCache);
+            if (cache == null) {
+                cache = newCache;
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * @param jobName
+     *            name of the remote job
+     * @param timeToLive
+     *            how long (in milliseconds) the metadata of a job may be used after it was fetched
+     * @return the metadata of the job, or null if it is not known (anymore)
+     */
+    public synchronized JobMetadata get(String jobName, long timeToLive) {
+        JobMetadata metadata = this.jobs.get(jobName);
+        if (metadata != null && System.currentTimeMillis() - metadata.getFetched() >= timeToLive) {
+            this.jobs.remove(jobName);
+            return null;
+        }
+        return metadata;
+    }
+
+    /**
+     * @param jobName
+     *            name of the remote job
+     * @param response
+     *            the response of the remote server to a query that includes {@link ApiQuery#JOB_PARAMETERS}
+     * @return the metadata of the job, as it is remembered from now on
+     */
+    public synchronized JobMetadata put(String jobName, JSONObject response) {
+        JobMetadata metadata = JobMetadata.fromJSON(response, System.currentTimeMillis());
+        this.jobs.put(jobName, metadata);
+        return metadata;
+    }
+
+    synchronized int size() {
+        return this.jobs.size();
+    }
+
+    /**
+     * What is known about a remote job.
+     */
+    public static class JobMetadata {
+        private final List<String> parameterNames;
+        private final long         fetched;
+
+        JobMetadata(List<String> parameterNames, long fetched) {
+            this.parameterNames = Collections.unmodifiableList(parameterNames);
+            this.fetched = fetched;
+        }
+
+        /**
+         * @param response
+         *            the response of the remote server to a query that includes {@link ApiQuery#JOB_PARAMETERS}
+         * @param fetched
+         *            when the response came in
+         * @return the metadata in the response
+         */
+        static JobMetadata fromJSON(JSONObject response, long fetched) {
+            List<String> parameterNames = new ArrayList<String>();
+            // depending on the version of the remote server, they are listed as an action or as a property
+            addParameterNames(response, "actions", parameterNames);
+            addParameterNames(response, "property", parameterNames);
+            return new JobMetadata(parameterNames, fetched);
+        }
+
+        private static void addParameterNames(JSONObject response, String key, List<String> parameterNames) {
+            JSONArray items = response == null ? null : response.optJSONArray(key);
+            if (items == null) {
+                return;
+            }
+            for (int i = 0; i < items.size(); i++) {
+                JSONObject item = items.optJSONObject(i);
+                JSONArray definitions = item == null ? null : item.optJSONArray("parameterDefinitions");
+                if (definitions == null) {
+                    continue;
+                }
+                for (int j = 0; j < definitions.size(); j++) {
+                    JSONObject definition = definitions.optJSONObject(j);
+                    parameterNames.add(definition == null ? "" : definition.optString("name"));
+                }
+            }
+        }
+
+        /**
+         * @return names of the parameters the job defines
+         */
+        public List<String> getParameterNames() {
+            return this.parameterNames;
+        }
+
+        /**
+         * @return true if the job defines any parameters, and so has to be triggered with 'buildWithParameters'
+         */
+        public boolean isParameterized() {
+            return !this.parameterNames.isEmpty();
+        }
+
+        long getFetched() {
+            return this.fetched;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
+/**
+ * Counts how long calls took, in fixed buckets: by default from a few milliseconds to a minute.
+ *
+ * Recording is lock-free, so every call can be recorded without the calls of different builds waiting for each other.
+ * Percentiles are estimated from the buckets: they are the upper bound of the bucket the percentile falls in.
+ */
+public class LatencyHistogram {
+
+    /**
+     * Upper bounds (in milliseconds) of the buckets, the last bucket holds everything above the last bound.
+     */
+    static final long[]          BOUNDS  = { 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000 };
+
+    private final long[]          bounds;
+    private final AtomicLongArray buckets;
+    private final AtomicLong      count   = new AtomicLong();
+    private final AtomicLong      sum     = new AtomicLong();
+    private final AtomicLong      max     = new AtomicLong();
+
+    public LatencyHistogram() {
+        this(BOUNDS);
+    }
+
+    /**
+     * @param bounds
+     *            upper bounds (in milliseconds) of the buckets, in ascending order
+     */
+    public LatencyHistogram(long[] bounds) {
+        this.bounds = bounds.clone();
+        this.buckets = new AtomicLongArray(bounds.length + 1);
+    }
+
+    /**
+     * @param nanos
+     *            how long a call took
+     */
+    public void record(long nanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        int bucket = 0;
+        while (bucket < this.bounds.length && millis > this.bounds[bucket]) {
+            bucket++;
+        }
+        this.buckets.incrementAndGet(bucket);
+        this.count.incrementAndGet();
+        this.sum.addAndGet(millis);
+
+        long current = this.max.get();
+        while (millis > current && !this.max.compareAndSet(current, millis)) {
+            current = this.max.get();
+        }
+    }
+
+    public long getCount() {
+        return this.count.get();
+    }
+
+    /**
+     * @return average time (in milliseconds) a call took, or 0 if there were none
+     */
+    public long getMean() {
+        long count = this.count.get();
+        return count == 0 ? 0 : this.sum.get() / count;
+    }
+
+    /**
+     * @return longest time (in milliseconds) a call took
+     */
+    public long getMax() {
+        return this.max.get();
+    }
+
+    /**
+     * @param percentile
+     *            between 0 and 100
+     * @return time (in milliseconds) that the given percentage of the calls took at most, or 0 if there were none
+     */
+    public long getPercentile(double percentile) {
+        long count = this.count.get();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(count * percentile / 100);
+        long seen = 0;
+        for (int bucket = 0; bucket < this.bounds.length; bucket++) {
+            seen += this.buckets.get(bucket);
+            if (seen >= rank) {
+                return Math.min(this.bounds[bucket], this.max.get());
+            }
+        }
+        return this.max.get();
+    }
+
+    /**
+     * @return the number of calls in each bucket, in the order of the bounds
+     */
+    public long[] getBuckets() {
+        long[] counts = new long[this.buckets.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = this.buckets.get(i);
+        }
+        return counts;
+    }
+
+    public JSONObject toJSON() {
+        JSONObject json = new JSONObject();
+        json.put("count", this.getCount());
+        json.put("mean", this.getMean());
+        json.put("p50", this.getPercentile(50));
+        json.put("p90", this.getPercentile(90));
+        json.put("p99", this.getPercentile(99));
+        json.put("max", this.getMax());
+
+        JSONArray buckets = new JSONArray();
+        long[] counts = this.getBuckets();
+        for (int i = 0; i < counts.length; i++) {
+            JSONObject bucket = new JSONObject();
+            bucket.put("le", i < this.bounds.length ? Long.toString(this.bounds[i]) : "+Inf");
+            bucket.put("count", counts[i]);
+            buckets.add(bucket);
+        }
+        json.put("buckets", buckets);
+        return json;
+    }
+}
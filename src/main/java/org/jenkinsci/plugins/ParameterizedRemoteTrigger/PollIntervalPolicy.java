@@ -0,0 +1,106 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import java.util.Random;
+
+/**
+ * Decides how long to wait before polling a remote build again.
+ *
+ * Polling starts at the minimum interval and backs off exponentially (with some jitter, so that builds that were
+ * triggered together don't keep polling together) up to the maximum interval. When the remote server has told us when
+ * it expects the build to finish, the next poll is never scheduled later than that. Once a build overruns its estimate
+ * the back-off starts over from the minimum.
+ *
+ * A policy with equal bounds polls at a fixed interval. Each wait gets its own policy.
+ */
+public class PollIntervalPolicy {
+
+    private static final double BACKOFF_FACTOR = 1.5;
+    private static final double JITTER         = 0.1;
+
+    private static final Random RANDOM         = new Random();
+
+    private final long          minInterval;
+    private final long          maxInterval;
+
+    private long                interval;
+    private boolean             overrun        = false;
+    private int                 polls          = 0;
+
+    /**
+     * @param minInterval
+     *            shortest time between two polls, in milliseconds
+     * @param maxInterval
+     *            longest time between two polls, in milliseconds
+     */
+    public PollIntervalPolicy(long minInterval, long maxInterval) {
+        this.minInterval = Math.max(1, minInterval);
+        this.maxInterval = Math.max(this.minInterval, maxInterval);
+        this.interval = this.minInterval;
+    }
+
+    /**
+     * @param interval
+     *            time between two polls, in milliseconds
+     * @return a policy that always waits the same amount of time
+     */
+    public static PollIntervalPolicy fixed(long interval) {
+        return new PollIntervalPolicy(interval, interval);
+    }
+
+    /**
+     * Records that the remote build has been polled once more.
+     */
+    public synchronized void recordPoll() {
+        this.polls++;
+    }
+
+    /**
+     * Works out when the next poll should happen.
+     *
+     * @param status
+     *            what the last poll returned
+     * @param now
+     *            current time, in milliseconds
+     * @return time to wait before polling again, in milliseconds
+     */
+    public synchronized long nextInterval(RemoteBuildStatus status, long now) {
+        if (this.minInterval == this.maxInterval) {
+            return this.minInterval;
+        }
+
+        long next = this.interval;
+        this.interval = Math.min(this.maxInterval, (long) (this.interval * BACKOFF_FACTOR));
+
+        long expectedEnd = status.getExpectedEnd();
+        if (RemoteBuildStatus.RUNNING.equals(status.getStatus()) && expectedEnd > 0) {
+            long remaining = expectedEnd - now;
+            if (remaining > 0) {
+                // don't sleep past the moment the build is expected to be done
+                next = Math.min(next, Math.max(this.minInterval, remaining));
+            } else if (!this.overrun) {
+                // the estimate was wrong, start over and back off again from there
+                this.overrun = true;
+                next = this.minInterval;
+                this.interval = Math.min(this.maxInterval, (long) (this.minInterval * BACKOFF_FACTOR));
+            }
+        }
+
+        long jitter = (long) (next * JITTER * (2 * RANDOM.nextDouble() - 1));
+        return Math.max(this.minInterval, Math.min(this.maxInterval, next + jitter));
+    }
+
+    /**
+     * @return number of polls made so far
+     */
+    public synchronized int getPollCount() {
+        return this.polls;
+    }
+
+    public long getMinInterval() {
+        return this.minInterval;
+    }
+
+    public long getMaxInterval() {
+        return this.maxInterval;
+    }
+}
@@ -0,0 +1,30 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+/**
+ * A remote build that has just been triggered, and whose number is not known yet: where the remote server queued it,
+ * and which number it was expected to get, in case the queue item can not be followed.
+ */
+public class QueuedRemoteBuild {
+
+    private final String queueItemUrl;
+    private final int    expectedNumber;
+
+    /**
+     * @param queueItemUrl
+     *            URL of the queue item of the remote build, or null if the remote server didn't tell
+     * @param expectedNumber
+     *            the next build number of the remote job, just before it was triggered
+     */
+    public QueuedRemoteBuild(String queueItemUrl, int expectedNumber) {
+        this.queueItemUrl = queueItemUrl;
+        this.expectedNumber = expectedNumber;
+    }
+
+    public String getQueueItemUrl() {
+        return this.queueItemUrl;
+    }
+
+    public int getExpectedNumber() {
+        return this.expectedNumber;
+    }
+}
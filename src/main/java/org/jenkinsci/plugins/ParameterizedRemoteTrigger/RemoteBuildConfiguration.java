@@ -6,44 +6,57 @@ import hudson.EnvVars;
 import hudson.Launcher;
 import hudson.Extension;
 import hudson.util.CopyOnWriteList;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
 import hudson.util.ListBoxModel;
 import hudson.model.AbstractBuild;
 import hudson.model.BuildListener;
 import hudson.model.Result;
+import hudson.model.TaskListener;
 import hudson.model.AbstractProject;
 import hudson.tasks.Builder;
 import hudson.tasks.BuildStepDescriptor;
 import net.sf.json.JSONObject;
 import net.sf.json.JSONArray;
-import net.sf.json.JSONSerializer;
+import net.sf.json.util.JSONUtils;
 //import net.sf.json.
 //import net.sf.json.
 
-import net.sf.json.util.JSONUtils;
 
 import org.jenkinsci.plugins.tokenmacro.TokenMacro;
-import org.apache.commons.lang.StringUtils;
 import org.jenkinsci.plugins.tokenmacro.MacroEvaluationException;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.StaplerRequest;
 
 import java.io.BufferedReader;
-import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.UnsupportedEncodingException;
-import java.net.HttpURLConnection;
+import java.io.PrintStream;
 import java.net.MalformedURLException;
-import java.net.URL;
-import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.codec.binary.Base64;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.util.EntityUtils;
+
+import com.google.common.util.concurrent.ListenableFuture;
 
 /**
  * 
@@ -58,7 +71,26 @@ public class RemoteBuildConfiguration extends Builder {
 
     private final boolean         shouldNotFailBuild;
     private final int             pollInterval;
-    private final int             connectionRetryLimit = 5;
+    // bounds of the adaptive poll interval (in seconds), if both are 0 the fixed 'pollInterval' is used
+    private int                   minPollInterval;
+    private int                   maxPollInterval;
+    // most console output of the remote build to copy (in KB), 0 for all of it, and whether to copy the end of it
+    private int                   consoleOutputLimit;
+    private boolean               consoleOutputTail;
+    // timeouts of a single request (in seconds), 0 means "use the remote server's"
+    private int                   connectTimeout;
+    private int                   readTimeout;
+    private int                   requestDeadline;
+    // retries of a failed call and the delays between them (in seconds), 0 means "use the remote server's"
+    private int                   connectionRetryLimit;
+    private int                   retryInitialDelay;
+    private int                   retryMaxDelay;
+    private int                   retryDeadline;
+
+    private int                   queueWaitThreshold;
+    private int                   executionTimeThreshold;
+    private boolean               unstableOnSlowBuild;
+
     private final boolean         preventRemoteBuildQueue;
     private final boolean         blockBuildUntilComplete;
     private final boolean         enhancedLogging;
@@ -74,13 +106,26 @@ public class RemoteBuildConfiguration extends Builder {
     //private static String         normalBuildUrl      = "/buildWithParameters";
     private static String         buildTokenRootUrl   = "/buildByToken";
 
+    /**
+     * Number of threads that fetch the builds that may be the one that was just triggered, for all jobs together.
+     */
+    private static final int      PROBE_THREADS       = Integer.getInteger(RemoteBuildConfiguration.class.getName()
+                                                              + ".probeThreads", 4);
+
+    // a probe that is still queued when an earlier candidate of its round matched is cancelled before it is sent
+    private static final ExecutorService PROBES       = Executors.newFixedThreadPool(PROBE_THREADS,
+                                                              new NamingThreadFactory(new DaemonThreadFactory(),
+                                                                      "RemoteBuildProbe"));
+
     private final boolean         overrideAuth;
     private CopyOnWriteList<Auth> auth                = new CopyOnWriteList<Auth>();
 
     private final boolean         loadParamsFromFile;
     private String                parameterFile       = "";
 
-    private String                queryString         = "";
+    // used to be shared by all the builds of the job, the URLs are now built per call with an UrlBuilder
+    @Deprecated
+    private transient String      queryString;
 
     @DataBoundConstructor
     public RemoteBuildConfiguration(String remoteJenkinsName, boolean shouldNotFailBuild, String job, String token,
@@ -208,14 +253,14 @@ public class RemoteBuildConfiguration extends Builder {
      * 
      * @return List<String> of build parameters
      */
-    private List<String> getCleanedParameters() {
+    List<String> getCleanedParameters() {
 
         return getCleanedParameters(this.getParameterList());
     }
 
     /**
      * Same as "getParameterList", but removes comments and empty strings Notice that no type of character encoding is
-     * happening at this step. All encoding happens in the "buildUrlQueryString" method.
+     * happening at this step. All encoding happens in the "UrlBuilder" class.
      * 
      * @param List
      *            <String> parameters
@@ -282,46 +327,6 @@ public class RemoteBuildConfiguration extends Builder {
         collection.removeAll(itemsToRemove);
     }
 
-    /**
-     * Return the Collection<String> in an encoded query-string
-     * 
-     * @return query-parameter-formated URL-encoded string
-     * @throws InterruptedException
-     * @throws IOException
-     * @throws MacroEvaluationException
-     */
-    private String buildUrlQueryString(Collection<String> parameters) {
-
-        // List to hold the encoded parameters
-        List<String> encodedParameters = new ArrayList<String>();
-
-        for (String parameter : parameters) {
-
-            // Step #1 - break apart the parameter-pairs (because we don't want to encode the "=" character)
-            String[] splitParameters = parameter.split("=");
-
-            // List to hold each individually encoded parameter item
-            List<String> encodedItems = new ArrayList<String>();
-            for (String item : splitParameters) {
-                try {
-                    // Step #2 - encode each individual parameter item add the encoded item to its corresponding list
-
-                    encodedItems.add(encodeValue(item));
-
-                } catch (Exception e) {
-                    // do nothing
-                    // because we are "hard-coding" the encoding type, there is a 0% chance that this will fail.
-                }
-
-            }
-
-            // Step #3 - reunite the previously separated parameter items and add them to the corresponding list
-            encodedParameters.add(StringUtils.join(encodedItems, "="));
-        }
-
-        return StringUtils.join(encodedParameters, "&");
-    }
-
     /**
      * Lookup up a Remote Jenkins Server based on display name
      * 
@@ -330,34 +335,7 @@ public class RemoteBuildConfiguration extends Builder {
      * @return A RemoteSitez object
      */
     public RemoteJenkinsServer findRemoteHost(String displayName) {
-        RemoteJenkinsServer match = null;
-
-        for (RemoteJenkinsServer host : this.getDescriptor().remoteSites) {
-            // if we find a match, then stop looping
-            if (displayName.equals(host.getDisplayName())) {
-                match = host;
-                break;
-            }
-        }
-
-        return match;
-    }
-
-    /**
-     * Helper function to allow values to be added to the query string from any method.
-     * 
-     * @param item
-     */
-    private void addToQueryString(String item) {
-        String currentQueryString = this.getQueryString();
-        String newQueryString = "";
-
-        if (currentQueryString == null || currentQueryString.equals("")) {
-            newQueryString = item;
-        } else {
-            newQueryString = currentQueryString + "&" + item;
-        }
-        this.setQueryString(newQueryString);
+        return this.getDescriptor().getRemoteSite(displayName);
     }
 
     /**
@@ -366,6 +344,8 @@ public class RemoteBuildConfiguration extends Builder {
      * All passed in string have already had their tokens replaced with real values. All 'params' also have the proper
      * character encoding
      * 
+     * @param remoteServer
+     *            the remote server the job is on
      * @param job
      *            Name of the remote job
      * @param securityToken
@@ -374,41 +354,37 @@ public class RemoteBuildConfiguration extends Builder {
      *            Parameters for the remote job
      * @return fully formed, fully qualified remote trigger URL
      */
-    private String buildTriggerUrl(String job, String securityToken, Collection<String> params, boolean isRemoteJobParameterized) {
-        RemoteJenkinsServer remoteServer = this.findRemoteHost(this.getRemoteJenkinsName());
-        String triggerUrlString = remoteServer.getAddress().toString();
+    String buildTriggerUrl(RemoteJenkinsServer remoteServer, String job, String securityToken,
+            Collection<String> params, boolean isRemoteJobParameterized) {
+        UrlBuilder triggerUrl = new UrlBuilder(remoteServer.getAddress().toString());
 
         // start building the proper URL based on known capabiltiies of the remote server
         if (remoteServer.getHasBuildTokenRootSupport()) {
-            triggerUrlString += buildTokenRootUrl;
-            triggerUrlString += getBuildTypeUrl(isRemoteJobParameterized);
+            triggerUrl.path(buildTokenRootUrl);
+            triggerUrl.path(getBuildTypeUrl(isRemoteJobParameterized));
 
-            this.addToQueryString("job=" + this.encodeValue(job));
+            triggerUrl.parameter("job", job);
 
         } else {
-            triggerUrlString += "/job/";
-            triggerUrlString += this.encodeValue(job);
-            triggerUrlString += getBuildTypeUrl(isRemoteJobParameterized);
+            triggerUrl.path("/job/");
+            triggerUrl.encodedPath(job);
+            triggerUrl.path(getBuildTypeUrl(isRemoteJobParameterized));
         }
 
         // don't try to include a security token in the URL if none is provided
         if (!securityToken.equals("")) {
-            this.addToQueryString("token=" + encodeValue(securityToken));
+            triggerUrl.parameter("token", securityToken);
         }
 
-        // turn our Collection into a query string
-        String buildParams = buildUrlQueryString(params);
-
-        if (!buildParams.isEmpty()) {
-            this.addToQueryString(buildParams);
+        // add the parameters of the remote build
+        for (String param : params) {
+            triggerUrl.parameter(param);
         }
 
         // by adding "delay=0", this will (theoretically) force this job to the top of the remote queue
-        this.addToQueryString("delay=0");
+        triggerUrl.parameter("delay", "0");
 
-        triggerUrlString += "?" + this.getQueryString();
-
-        return triggerUrlString;
+        return triggerUrl.build();
     }
 
     /**
@@ -416,25 +392,17 @@ public class RemoteBuildConfiguration extends Builder {
      * 
      * All passed in string have already had their tokens replaced with real values.
      * 
+     * @param remoteServer
+     *            the remote server the job is on
      * @param job
      *            Name of the remote job
      * @param securityToken
      *            Security token used to trigger remote job
      * @return fully formed, fully qualified remote trigger URL
      */
-    private String buildGetUrl(String job, String securityToken) {
-
-        RemoteJenkinsServer remoteServer = this.findRemoteHost(this.getRemoteJenkinsName());
-        String urlString = remoteServer.getAddress().toString();
-
-        urlString += "/job/";
-        urlString += this.encodeValue(job);
-
-        // don't try to include a security token in the URL if none is provided
-        if (!securityToken.equals("")) {
-            this.addToQueryString("token=" + encodeValue(securityToken));
-        }
-        return urlString;
+    private String buildGetUrl(RemoteJenkinsServer remoteServer, String job, String securityToken) {
+        // the JSON API doesn't need the security token, the path is all there is to it
+        return new UrlBuilder(remoteServer.getAddress().toString()).path("/job/").encodedPath(job).build();
     }
 
     /**
@@ -446,7 +414,7 @@ public class RemoteBuildConfiguration extends Builder {
      *            Build Listener
      * @throws IOException
      */
-    private void failBuild(Exception e, BuildListener listener) throws IOException {
+    private void failBuild(Exception e, TaskListener listener) throws IOException {
         System.out.print(e.getStackTrace());
         if (this.getShouldNotFailBuild()) {
             listener.error("Remote build failed for the following reason, but the build will continue:");
@@ -461,16 +429,33 @@ public class RemoteBuildConfiguration extends Builder {
     public boolean perform(AbstractBuild build, Launcher launcher, BuildListener listener) throws InterruptedException,
             IOException, IllegalArgumentException {
 
+        // the remote server is looked up once, every call of this build goes to the same one
         RemoteJenkinsServer remoteServer = this.findRemoteHost(this.getRemoteJenkinsName());
-
-        // Stores the status of the remote build
-        String buildStatusStr = "UNKNOWN";
+        // everything that is worked out once for this build, i.e.: the 'Authorization' header
+        BuildContext context = new BuildContext(build, listener, remoteServer);
 
         if (remoteServer == null) {
             this.failBuild(new Exception("No remote host is defined for this job."), listener);
             return true;
         }
-        String remoteServerURL = remoteServer.getAddress().toString();
+
+        RemoteBuildTraceAction.forRun(build).add(context.getTrace());
+        try {
+            return this.perform(build, listener, context);
+        } finally {
+            // the phase that was going on when the build failed ends with it
+            context.getTrace().end();
+        }
+    }
+
+    private boolean perform(AbstractBuild<?, ?> build, BuildListener listener, BuildContext context)
+            throws InterruptedException, IOException {
+        RemoteJenkinsServer remoteServer = context.getRemoteServer();
+        RemoteBuildTrace trace = context.getTrace();
+
+        // Stores the status of the remote build
+        String buildStatusStr = "UNKNOWN";
+
         List<String> cleanedParams = null;
 
         if (this.getLoadParamsFromFile()) {
@@ -485,8 +470,142 @@ public class RemoteBuildConfiguration extends Builder {
 
         String securityToken = replaceToken(build, listener, this.getToken());
 
-        boolean isRemoteParameterized = isRemoteJobParameterized(jobName, build, listener);
-        String triggerUrlString = this.buildTriggerUrl(jobName, securityToken, cleanedParams, isRemoteParameterized);
+        int nextBuildNumber = this.startRemoteBuild(context, jobName, securityToken, cleanedParams);
+        if (nextBuildNumber == 0) {
+            // cancelled, and we are told not to fail the build
+            return true;
+        }
+        listener.getLogger().println("This job is build #[" + Integer.toString(nextBuildNumber) + "] on the remote server.");
+        BuildInfoExporterAction.addBuildInfoExporterAction(build, jobName, nextBuildNumber, Result.NOT_BUILT);
+        
+        String jobURL = this.getJobUrl(remoteServer, jobName);
+
+        // This is only for Debug
+        // This output whether there is another job running on the remote host that this job had conflicted with.
+        // The first condition is what is expected, The second is what would happen if two jobs launched jobs at the
+        // same time (and two remote builds were triggered).
+        // The third is what would happen if this job was triggers and the remote queue was already full (as the 'next
+        // build bumber' would still be the same after this job has triggered the remote job)
+        // int newNextBuildNumber = responseObject.getInt( "nextBuildNumber" ); // This should be nextBuildNumber + 1 OR
+        // there has been another job scheduled.
+        // if (newNextBuildNumber == (nextBuildNumber + 1)) {
+        // listener.getLogger().println("DEBUG: No other jobs triggered" );
+        // } else if( newNextBuildNumber > (nextBuildNumber + 1) ) {
+        // listener.getLogger().println("DEBUG: WARNING Other jobs triggered," + newNextBuildNumber + ", " +
+        // nextBuildNumber );
+        // } else {
+        // listener.getLogger().println("DEBUG: WARNING Did not get the correct build number for the triggered job, previous nextBuildNumber:"
+        // + newNextBuildNumber + ", newNextBuildNumber" + nextBuildNumber );
+        // }
+
+        // If we are told to block until remoteBuildComplete:
+        if (this.getBlockBuildUntilComplete()) {
+            listener.getLogger().println("Blocking local job until remote job completes");
+            RemoteConsoleMirror console = null;
+            if (this.getEnhancedLogging()) {
+                console = new RemoteConsoleMirror(HttpTransport.forServer(remoteServer), jobURL + nextBuildNumber,
+                        this.getAuthorization(remoteServer, context), listener.getLogger(),
+                        this.getConsoleOutputLimit() * 1024L, this.getConsoleOutputTail());
+            }
+
+            trace.begin(RemoteBuildTrace.Phase.RUN);
+            buildStatusStr = waitForRemoteBuild(remoteServer, jobURL, nextBuildNumber, console, context);
+
+            if (console != null) {
+                // the console output fetched while the remote build ran counts for that phase
+                trace.countRequests(console.getRequests());
+                trace.begin(RemoteBuildTrace.Phase.CONSOLE);
+                int consoleRequests = console.getRequests();
+                try {
+                    console.finish(this.pollInterval * 1000L, this.getRetryPolicy(remoteServer).getMaxRetries());
+                } catch (IOException e) {
+                    listener.getLogger().println("Unable to fetch the console output of the remote job: " + e.getMessage());
+                }
+                trace.countRequests(console.getRequests() - consoleRequests);
+
+                HttpTransport transport = HttpTransport.forServer(remoteServer);
+                listener.getLogger().println("Connection pool for " + transport.getKey() + ": " + transport.getPoolHits()
+                        + " hits, " + transport.getPoolMisses() + " misses.");
+                RequestGovernor governor = transport.getGovernor();
+                listener.getLogger().println("Requests to " + transport.getKey() + ": " + governor.getDelayedRequests()
+                        + " of " + governor.getRequests() + " waited for their turn, " + governor.getTotalWaitMillis()
+                        + " ms in total, " + governor.getQueueDepth() + " waiting now.");
+                listener.getLogger().println("Calls to " + transport.getKey() + ": " + transport.getAttempts()
+                        + " attempts, " + transport.getRetries() + " retries, " + transport.getFailedAttempts()
+                        + " failed, " + transport.getAverageAttemptMillis() + " ms on average; "
+                        + transport.getConnectTimeouts() + " connect timeouts, " + transport.getReadTimeouts()
+                        + " read timeouts, " + transport.getDeadlinesExceeded() + " past their deadline, "
+                        + transport.getPoolTimeouts() + " found no free connection.");
+            }
+            trace.end();
+
+            listener.getLogger().println("Remote build finished with status " + buildStatusStr + ".");
+            RemoteBuildTiming timing = trace.getTiming();
+            if (timing != null) {
+                this.checkTiming(build, listener, timing);
+            }
+            BuildInfoExporterAction.addBuildInfoExporterAction(build, jobName, nextBuildNumber,
+                    Result.fromString(buildStatusStr), timing);
+
+            // If build did not finish with 'success' then fail build step.
+            if (!buildStatusStr.equals("SUCCESS")) {
+                // failBuild will check if the 'shouldNotFailBuild' parameter is set or not, so will decide how to
+                // handle the failure.
+                this.failBuild(new Exception("The remote job did not succeed."), listener);
+            }
+        } else {
+            listener.getLogger().println("Not blocking local job until remote job completes - fire and forget.");
+        }
+
+        return true;
+    }
+
+    /**
+     * Triggers the remote build, and finds out which build of the remote job it became.
+     * 
+     * @param context           the build that is being triggered
+     * @param jobName           name of the remote job, with its tokens replaced
+     * @param securityToken     security token of the remote job, with its tokens replaced
+     * @param cleanedParams     parameters of the remote build, with their tokens replaced
+     * @return                  the number of the remote build, or 0 if it was cancelled while in the queue (and the
+     *                          build is not to fail)
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    int startRemoteBuild(BuildContext context, String jobName, String securityToken, List<String> cleanedParams)
+            throws IOException, InterruptedException {
+        QueuedRemoteBuild queued = this.queueRemoteBuild(context, jobName, securityToken, cleanedParams);
+        int queuedBuildNumber = -1;
+        if (queued.getQueueItemUrl() != null) {
+            context.getTrace().begin(RemoteBuildTrace.Phase.QUEUE);
+            queuedBuildNumber = this.waitForQueuedBuild(context.getRemoteServer(), queued.getQueueItemUrl(), context);
+            if (queuedBuildNumber == 0) {
+                // cancelled, and we are told not to fail the build
+                context.getTrace().end();
+                return 0;
+            }
+        }
+        return this.identifyRemoteBuild(context, jobName, securityToken, cleanedParams, queued, queuedBuildNumber);
+    }
+
+    /**
+     * Triggers the remote build, without waiting for it to leave the queue.
+     * 
+     * @param context           the build that is being triggered
+     * @param jobName           name of the remote job, with its tokens replaced
+     * @param securityToken     security token of the remote job, with its tokens replaced
+     * @param cleanedParams     parameters of the remote build, with their tokens replaced
+     * @return                  where the remote build was queued
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    QueuedRemoteBuild queueRemoteBuild(BuildContext context, String jobName, String securityToken,
+            List<String> cleanedParams) throws IOException, InterruptedException {
+        TaskListener listener = context.getListener();
+        RemoteJenkinsServer remoteServer = context.getRemoteServer();
+        String remoteServerURL = remoteServer.getAddress().toString();
+        RemoteBuildTrace trace = context.getTrace();
+        trace.setJob(jobName);
 
         // Trigger remote job
         // print out some debugging information to the console
@@ -496,11 +615,12 @@ public class RemoteBuildConfiguration extends Builder {
 
         // get the ID of the Next Job to run.
         if (this.getPreventRemoteBuildQueue()) {
+            trace.begin(RemoteBuildTrace.Phase.PRE_CHECK);
             listener.getLogger().println("Checking that the remote job " + jobName + " is not currently building.");
-            String preCheckUrlString = this.buildGetUrl(jobName, securityToken);
+            String preCheckUrlString = this.buildGetUrl(remoteServer, jobName, securityToken);
             preCheckUrlString += "/lastBuild";
-            preCheckUrlString += "/api/json/";
-            JSONObject preCheckResponse = sendHTTPCall(preCheckUrlString, "GET", build, listener);
+            preCheckUrlString = ApiQuery.BUILD_STATUS.forUrl(preCheckUrlString);
+            JSONObject preCheckResponse = sendHTTPCall(preCheckUrlString, "GET", context);
             
             if ( preCheckResponse != null ) {
                 // check the latest build on the remote server to see if it's running - if so wait until it has stopped.
@@ -508,7 +628,7 @@ public class RemoteBuildConfiguration extends Builder {
                 // if result is null the build hasn't finished - but might not have started running.
                 while (preCheckResponse.getBoolean("building") == true || preCheckResponse.getString("result") == null) {
                     listener.getLogger().println("Remote build is currently running - waiting for it to finish.");
-                    preCheckResponse = sendHTTPCall(preCheckUrlString, "POST", build, listener);
+                    preCheckResponse = sendHTTPCall(preCheckUrlString, "GET", context);
                     listener.getLogger().println("Waiting for " + this.pollInterval + " seconds until next retry.");
 
                     // Sleep for 'pollInterval' seconds.
@@ -528,17 +648,26 @@ public class RemoteBuildConfiguration extends Builder {
             listener.getLogger().println("Not checking if the remote job " + jobName + " is building.");
         }
 
-        String queryUrlString = this.buildGetUrl(jobName, securityToken);
-        queryUrlString += "/api/json/";
+        String queryUrlString = this.buildGetUrl(remoteServer, jobName, securityToken);
+        // whether the remote job is parameterized is usually known already, if not it is asked for in the same call
+        JobMetadataCache metadataCache = JobMetadataCache.forServer(remoteServer);
+        JobMetadataCache.JobMetadata metadata = metadataCache.get(jobName, remoteServer.getJobMetadataTtl() * 1000L);
+        queryUrlString = (metadata == null ? ApiQuery.JOB_METADATA : ApiQuery.NEXT_BUILD_NUMBER).forUrl(queryUrlString);
 
         //listener.getLogger().println("Getting ID of next job to build. URL: " + queryUrlString);
-        JSONObject queryResponseObject = sendHTTPCall(queryUrlString, "GET", build, listener);
+        trace.begin(RemoteBuildTrace.Phase.JOB_METADATA);
+        JSONObject queryResponseObject = sendHTTPCall(queryUrlString, "GET", context);
         if (queryResponseObject == null ) {
             //This should not happen as this page should return a JSON object
             this.failBuild(new Exception("Got a blank response from Remote Jenkins Server [" + remoteServerURL + "], cannot continue."), listener);
         }
         
         int nextBuildNumber = queryResponseObject.getInt("nextBuildNumber");
+        if (metadata == null) {
+            metadata = metadataCache.put(jobName, queryResponseObject);
+        }
+        String triggerUrlString = this.buildTriggerUrl(remoteServer, jobName, securityToken, cleanedParams,
+                metadata.isParameterized());
 
         if (this.getOverrideAuth()) {
             listener.getLogger().println(
@@ -547,154 +676,514 @@ public class RemoteBuildConfiguration extends Builder {
         }
 
         listener.getLogger().println("Triggering remote job now.");
-        sendHTTPCall(triggerUrlString, "POST", build, listener);
-        // Validate the build number via parameters
-        foundIt: for (int tries = 3; tries > 0; tries--) {
-            for (int buildNumber : new SearchPattern(nextBuildNumber, 2)) {
-                listener.getLogger().println("Checking parameters of #" + buildNumber);
-                String validateUrlString = this.buildGetUrl(jobName, securityToken) + "/" + buildNumber + "/api/json/";
-                JSONObject validateResponse = sendHTTPCall(validateUrlString, "GET", build, listener);
-                if (validateResponse == null) {
-                    listener.getLogger().println("Query failed.");
-                    continue;
-                }
-                JSONArray actions = validateResponse.getJSONArray("actions");
-                for (int i = 0; i < actions.size(); i++) {
-                    JSONObject action = actions.getJSONObject(i);
-                    if (!action.has("parameters")) continue;
-                    JSONArray parameters = action.getJSONArray("parameters");
-                    // Check if the parameters match
-                    if (compareParameters(listener, parameters, cleanedParams)) {
-                        // We now have a very high degree of confidence that this is the correct build.
-                        // It is still possible that this is a false positive if there are no parameters,
-                        // or multiple jobs use the same parameters.
-                        nextBuildNumber = buildNumber;
-                        break foundIt;
-                    }
-                    // This is the wrong build
-                    break;
-                }
+        trace.begin(RemoteBuildTrace.Phase.TRIGGER);
+        String queueItemUrl = this.triggerRemoteBuild(triggerUrlString, context);
+        if (queueItemUrl != null) {
+            listener.getLogger().println("Remote build is queued at " + queueItemUrl);
+        }
+        return new QueuedRemoteBuild(queueItemUrl, nextBuildNumber);
+    }
 
-                // Sleep for 'pollInterval' seconds.
-                // Sleep takes miliseconds so need to convert this.pollInterval to milisecopnds (x 1000)
-                try {
-                    Thread.sleep(this.pollInterval * 1000);
-                } catch (InterruptedException e) {
-                    this.failBuild(e, listener);
+    /**
+     * Settles which build of the remote job was triggered, once its queue item has been followed as far as possible.
+     * 
+     * @param context           the build that is being triggered
+     * @param jobName           name of the remote job, with its tokens replaced
+     * @param securityToken     security token of the remote job, with its tokens replaced
+     * @param cleanedParams     parameters of the remote build, with their tokens replaced
+     * @param queued            where the remote build was queued
+     * @param queuedBuildNumber the number the queue item handed out, or -1 if it could not be followed
+     * @return                  the number of the remote build
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    int identifyRemoteBuild(BuildContext context, String jobName, String securityToken, List<String> cleanedParams,
+            QueuedRemoteBuild queued, int queuedBuildNumber) throws IOException, InterruptedException {
+        RemoteBuildTrace trace = context.getTrace();
+        int nextBuildNumber = queuedBuildNumber;
+        if (nextBuildNumber <= 0) {
+            // Validate the build number via parameters
+            trace.begin(RemoteBuildTrace.Phase.IDENTIFY);
+            nextBuildNumber = this.findTriggeredBuild(this.buildGetUrl(context.getRemoteServer(), jobName,
+                    securityToken), queued.getExpectedNumber(), cleanedParams, context);
+        }
+        trace.end();
+        trace.setBuildNumber(nextBuildNumber);
+        return nextBuildNumber;
+    }
+
+    /**
+     * @param remoteServer  the remote server the job is on
+     * @param jobName       name of the remote job
+     * @return              the URL of the remote job, with a trailing slash
+     */
+    String getJobUrl(RemoteJenkinsServer remoteServer, String jobName) {
+        //Have to form the string ourselves, as we might not get a response from non-parameterized builds
+        return remoteServer.getAddress().toString() + "/job/" + this.encodeValue(jobName) + "/";
+    }
+
+    /**
+     * Triggers the remote build.
+     * 
+     * @param triggerUrlString  the URL that triggers the remote build
+     * @param context           the build that is being triggered
+     * @return                  the URL of the queue item of the remote build, or null if the remote server didn't
+     *                          tell where the build was queued
+     * @throws IOException
+     */
+    private String triggerRemoteBuild(final String triggerUrlString, BuildContext context)
+            throws IOException {
+        return sendHTTPCall(triggerUrlString, "POST", context, 1, new ResponseHandler<String>() {
+            public String handleResponse(HttpResponse response) throws IOException {
+                HttpTransport.checkResponseCode(response, triggerUrlString);
+                // since Jenkins 1.519 the response points to the queue item of the new build
+                Header location = response.getFirstHeader("Location");
+                if (location == null || !location.getValue().contains("/queue/item/")) {
+                    return null;
                 }
+                return location.getValue();
+            }
+        });
+    }
+
+    /**
+     * Follows the queue item of the remote build until the build has left the queue, which is when its number is
+     * known. That way there is no need to guess which of the builds of the remote job is ours.
+     * 
+     * @param remoteServer  the remote server the build was triggered on
+     * @param queueItemUrl  the URL of the queue item, as the remote server handed it out
+     * @param context       the build that is being triggered
+     * @return              the number of the remote build, 0 if it was cancelled (and the build is not to fail) or
+     *                      -1 if the queue item could not be followed
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    private int waitForQueuedBuild(RemoteJenkinsServer remoteServer, String queueItemUrl, BuildContext context)
+            throws IOException, InterruptedException {
+        ListenableFuture<Integer> buildNumber = this.followQueuedBuild(remoteServer, queueItemUrl, context);
+        try {
+            return buildNumber.get();
+        } catch (InterruptedException e) {
+            // the local build was aborted, so stop following the queue item
+            buildNumber.cancel(false);
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
             }
+            throw new IOException(e.getCause());
         }
-        listener.getLogger().println("This job is build #[" + Integer.toString(nextBuildNumber) + "] on the remote server.");
-        BuildInfoExporterAction.addBuildInfoExporterAction(build, jobName, nextBuildNumber, Result.NOT_BUILT);
-        
-        //Have to form the string ourselves, as we might not get a response from non-parameterized builds
-        String jobURL = remoteServerURL + "/job/" + this.encodeValue(jobName) + "/";
+    }
 
-        // This is only for Debug
-        // This output whether there is another job running on the remote host that this job had conflicted with.
-        // The first condition is what is expected, The second is what would happen if two jobs launched jobs at the
-        // same time (and two remote builds were triggered).
-        // The third is what would happen if this job was triggers and the remote queue was already full (as the 'next
-        // build bumber' would still be the same after this job has triggered the remote job)
-        // int newNextBuildNumber = responseObject.getInt( "nextBuildNumber" ); // This should be nextBuildNumber + 1 OR
-        // there has been another job scheduled.
-        // if (newNextBuildNumber == (nextBuildNumber + 1)) {
-        // listener.getLogger().println("DEBUG: No other jobs triggered" );
-        // } else if( newNextBuildNumber > (nextBuildNumber + 1) ) {
-        // listener.getLogger().println("DEBUG: WARNING Other jobs triggered," + newNextBuildNumber + ", " +
-        // nextBuildNumber );
-        // } else {
-        // listener.getLogger().println("DEBUG: WARNING Did not get the correct build number for the triggered job, previous nextBuildNumber:"
-        // + newNextBuildNumber + ", newNextBuildNumber" + nextBuildNumber );
-        // }
+    /**
+     * Hands the queue item of the remote build over to the {@link RemoteBuildWatcher}, which follows it until the
+     * build has left the queue. No thread is held while the build waits in the queue.
+     * 
+     * @param remoteServer  the remote server the build was triggered on
+     * @param queueItemUrl  the URL of the queue item, as the remote server handed it out
+     * @param context       the build that is being triggered
+     * @return              completes with the number of the remote build, 0 if it was cancelled (and the build is
+     *                      not to fail) or -1 if the queue item could not be followed
+     */
+    ListenableFuture<Integer> followQueuedBuild(final RemoteJenkinsServer remoteServer, String queueItemUrl,
+            final BuildContext context) throws IOException {
+        final PrintStream logger = context.getListener().getLogger();
+        final String queueItemApiUrl = ApiQuery.QUEUE_ITEM.forUrl(queueItemUrl);
+        final String authorization = this.getAuthorization(remoteServer, context);
+        final HttpTransport.Timeouts timeouts = this.getTimeouts(remoteServer);
+
+        // most builds leave the queue within seconds, so start out polling quickly
+        final PollIntervalPolicy policy = new PollIntervalPolicy(1000, this.pollInterval * 1000L);
+        final int maxFailures = this.getRetryPolicy(remoteServer).getMaxRetries();
+
+        return RemoteBuildWatcher.get().follow(new RemoteBuildWatcher.Poll<Integer>() {
+            private String lastReason = null;
+            private int    failures   = 0;
+
+            public Integer poll() throws IOException {
+                JSONObject queueItem;
+                try {
+                    // looked up on every poll, the transport is closed if the remote server entry is removed
+                    queueItem = HttpTransport.forServer(remoteServer).executeNow("GET", queueItemApiUrl, authorization,
+                            new JsonResponseHandler(queueItemApiUrl), timeouts,
+                            RemoteCallMetrics.Endpoint.forUrl(queueItemApiUrl));
+                    context.getTrace().countRequest();
+                    this.failures = 0;
+                } catch (HttpTransport.TurnDeferredException e) {
+                    // not sent, the watcher polls again once it may be
+                    throw e;
+                } catch (IOException e) {
+                    context.getTrace().countRequest();
+                    // a busy server failing a single poll is no reason to fall back to guessing which build is ours
+                    if (RetryPolicy.isRetryable(e) && ++this.failures <= maxFailures) {
+                        logger.println("Unable to follow the queue item of the remote build, will try again: "
+                                + e.getMessage());
+                        return null;
+                    }
+                    logger.println("Unable to follow the queue item of the remote build: " + e.getMessage());
+                    return -1;
+                }
+                if (queueItem == null) {
+                    // queue items are only kept for a few minutes after the build started
+                    logger.println("The queue item of the remote build is gone.");
+                    return -1;
+                }
 
-        // If we are told to block until remoteBuildComplete:
-        if (this.getBlockBuildUntilComplete()) {
-            listener.getLogger().println("Blocking local job until remote job completes");
-            // Form the URL for the triggered job
-            String jobLocation = jobURL + nextBuildNumber + "/api/json";
+                if (context.getTrace().getInQueueSince() == 0) {
+                    context.getTrace().setInQueueSince(queueItem.optLong("inQueueSince", 0));
+                }
 
-            buildStatusStr = getBuildStatus(jobLocation, build, listener);
+                JSONObject executable = queueItem.optJSONObject("executable");
+                if (executable != null && executable.has("number")) {
+                    return executable.getInt("number");
+                }
+                if (queueItem.optBoolean("cancelled")) {
+                    failBuild(new Exception("The remote build was cancelled while it was in the queue."),
+                            context.getListener());
+                    return 0;
+                }
 
-            while (buildStatusStr.equals("not started")) {
-                listener.getLogger().println("Waiting for remote build to start.");
-                listener.getLogger().println("Waiting for " + this.pollInterval + " seconds until next poll.");
-                buildStatusStr = getBuildStatus(jobLocation, build, listener);
-                // Sleep for 'pollInterval' seconds.
-                // Sleep takes miliseconds so need to convert this.pollInterval to milisecopnds (x 1000)
-                try {
-                    // Could do with a better way of sleeping...
-                    Thread.sleep(this.pollInterval * 1000);
-                } catch (InterruptedException e) {
-                    this.failBuild(e, listener);
+                Object reason = queueItem.opt("why");
+                if (!JSONUtils.isNull(reason) && !reason.equals(this.lastReason)) {
+                    this.lastReason = reason.toString();
+                    logger.println("Remote build is waiting in the queue: " + this.lastReason);
                 }
+                return null;
             }
 
-            listener.getLogger().println("Remote build started!");
-            while (buildStatusStr.equals("running")) {
-                listener.getLogger().println("Waiting for remote build to finish.");
-                listener.getLogger().println("Waiting for " + this.pollInterval + " seconds until next poll.");
-                buildStatusStr = getBuildStatus(jobLocation, build, listener);
-                // Sleep for 'pollInterval' seconds.
-                // Sleep takes miliseconds so need to convert this.pollInterval to milisecopnds (x 1000)
-                try {
-                    // Could do with a better way of sleeping...
-                    Thread.sleep(this.pollInterval * 1000);
-                } catch (InterruptedException e) {
-                    this.failBuild(e, listener);
-                }
+            public long nextInterval() {
+                return policy.nextInterval(RemoteBuildStatus.fromJSON(null), System.currentTimeMillis());
             }
-            listener.getLogger().println("Remote build finished with status " + buildStatusStr + ".");
-            BuildInfoExporterAction.addBuildInfoExporterAction(build, jobName, nextBuildNumber, Result.fromString(buildStatusStr));
+        });
+    }
 
-            if (this.getEnhancedLogging()) {
-                String buildUrl = getBuildUrl(jobLocation, build, listener);
-                String consoleOutput = getConsoleOutput(buildUrl, "GET", build, listener);
-
-                listener.getLogger().println();
-                listener.getLogger().println("Console output of remote job:");
-                listener.getLogger().println("--------------------------------------------------------------------------------");
-                listener.getLogger().println(consoleOutput);
-                listener.getLogger().println("--------------------------------------------------------------------------------");
+    /**
+     * Looks for the remote build that was just triggered among the builds around the number it was expected to get,
+     * by comparing their parameters. The candidates of a round are fetched side by side, on a pool of threads shared
+     * by all jobs; there is only a pause between rounds.
+     * 
+     * @param jobUrlString      the URL of the remote job
+     * @param expectedNumber    the number the remote build was expected to get
+     * @param cleanedParams     the parameters the remote build was triggered with
+     * @param context           the build that is being triggered
+     * @return                  the number of the remote build, or the expected number if none of the candidates match
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    private int findTriggeredBuild(String jobUrlString, int expectedNumber, List<String> cleanedParams,
+            final BuildContext context) throws IOException, InterruptedException {
+        for (int tries = 3; tries > 0; tries--) {
+            Map<Integer, Future<JSONObject>> candidates = new LinkedHashMap<Integer, Future<JSONObject>>();
+            for (int buildNumber : new SearchPattern(expectedNumber, 2)) {
+                final String validateUrlString = ApiQuery.BUILD_PARAMETERS.forUrl(jobUrlString + "/" + buildNumber);
+                candidates.put(buildNumber, PROBES.submit(new Callable<JSONObject>() {
+                    public JSONObject call() throws IOException {
+                        return sendHTTPCall(validateUrlString, "GET", context);
+                    }
+                }));
             }
 
-            // If build did not finish with 'success' then fail build step.
-            if (!buildStatusStr.equals("SUCCESS")) {
-                // failBuild will check if the 'shouldNotFailBuild' parameter is set or not, so will decide how to
-                // handle the failure.
-                this.failBuild(new Exception("The remote job did not succeed."), listener);
+            try {
+                // go through the candidates in the order of the search pattern, the first one that matches wins
+                for (Map.Entry<Integer, Future<JSONObject>> candidate : candidates.entrySet()) {
+                    int buildNumber = candidate.getKey();
+                    context.getListener().getLogger().println("Checking parameters of #" + buildNumber);
+                    JSONObject validateResponse = getProbeResult(candidate.getValue());
+                    if (validateResponse == null) {
+                        context.getListener().getLogger().println("Query failed.");
+                        continue;
+                    }
+                    JSONArray actions = validateResponse.getJSONArray("actions");
+                    for (int i = 0; i < actions.size(); i++) {
+                        JSONObject action = actions.getJSONObject(i);
+                        if (!action.has("parameters")) continue;
+                        JSONArray parameters = action.getJSONArray("parameters");
+                        // Check if the parameters match
+                        if (compareParameters(context.getListener(), parameters, cleanedParams)) {
+                            // We now have a very high degree of confidence that this is the correct build.
+                            // It is still possible that this is a false positive if there are no parameters,
+                            // or multiple jobs use the same parameters.
+                            return buildNumber;
+                        }
+                        // This is the wrong build
+                        break;
+                    }
+                }
+            } finally {
+                // the round is over, the probes that are still queued are not sent
+                for (Future<JSONObject> probe : candidates.values()) {
+                    probe.cancel(false);
+                }
             }
-        } else {
-            listener.getLogger().println("Not blocking local job until remote job completes - fire and forget.");
-        }
 
-        return true;
+            // Sleep for 'pollInterval' seconds.
+            // Sleep takes miliseconds so need to convert this.pollInterval to milisecopnds (x 1000)
+            try {
+                Thread.sleep(this.pollInterval * 1000);
+            } catch (InterruptedException e) {
+                this.failBuild(e, context.getListener());
+            }
+        }
+        return expectedNumber;
     }
 
-    private String findParameter(String parameter, List<String> parameters) {
-        for (String search : parameters) {
-            if (search.startsWith(parameter + "=")) {
-                return search.substring(parameter.length() + 1);
+    private static JSONObject getProbeResult(Future<JSONObject> probe) throws IOException, InterruptedException {
+        try {
+            return probe.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
             }
+            throw new IOException(e.getCause());
         }
-        return null;
     }
 
-    private boolean compareParameters(BuildListener listener, JSONArray parameters, List<String> expectedParams) {
-        for (int j = 0; j < parameters.size(); j++) {
-            JSONObject parameter = parameters.getJSONObject(j);
-            String name = parameter.getString("name");
-            String expected = findParameter(name, expectedParams);
+    /**
+     * Hands the remote build over to the {@link RemoteBuildWatcher}, and waits until it reports that the remote build
+     * has finished. No polling happens on the thread of the local build, but that thread, and so the executor of the
+     * build, is still held until the remote build has finished. Only the Pipeline step, see {@link RemoteBuildStep},
+     * lets go of its executor while it waits.
+     * 
+     * @param remoteServer  the remote server the build is running on
+     * @param jobURL        the URL of the remote job
+     * @param buildNumber   the number of the remote build
+     * @param console       copies the console output of the remote build while it runs, or null
+     * @param context       the build that is being triggered
+     * @return              the result of the remote build; ABORTED if the local build was aborted while it waited, or
+     *                      UNKNOWN if the remote build could not be watched (and the build is not to fail)
+     * @throws IOException
+     */
+    String waitForRemoteBuild(final RemoteJenkinsServer remoteServer, final String jobURL, final int buildNumber,
+            final RemoteConsoleMirror console, final BuildContext context)
+            throws IOException {
+        PrintStream logger = context.getListener().getLogger();
+        PollIntervalPolicy policy = this.getPollIntervalPolicy();
+        ListenableFuture<RemoteBuildStatus> status = this.watchRemoteBuild(remoteServer, jobURL, buildNumber, console,
+                context, policy);
 
-            if (expected == null) {
-                // If we didn't specify all of the parameters, this will happen, so we can not infer that this it he wrong build
-                listener.getLogger().println("Unable to find expected value for " + name);
-                continue;
+        try {
+            RemoteBuildStatus result = status.get();
+            logger.println("Remote build was polled " + policy.getPollCount() + " times.");
+            this.recordTiming(context, result);
+            return result.getStatus();
+        } catch (InterruptedException e) {
+            // the local build was aborted, so stop watching the remote one
+            status.cancel(false);
+            this.failBuild(e, context.getListener());
+            return Result.ABORTED.toString();
+        } catch (ExecutionException e) {
+            if (console != null) {
+                // the remote build is not watched anymore, nor is its console output copied
+                console.stop();
             }
+            Throwable cause = e.getCause();
+            if (cause instanceof AbortException) {
+                // the build has been failed already
+                throw (AbortException) cause;
+            }
+            // not worth retrying, or out of retries: failBuild will check if the 'shouldNotFailBuild' parameter is set
+            // or not, so will decide how to handle the failure
+            this.failBuild(cause instanceof Exception ? (Exception) cause : new Exception(cause), context.getListener());
+            return "UNKNOWN";
+        }
+    }
 
-            String value = parameter.getString("value");
-            // If we got the expected value, skip to the next parameter
-            if (expected.equals(value)) continue;
+    /**
+     * Hands the remote build over to the {@link RemoteBuildWatcher}, without waiting for it.
+     * 
+     * @param remoteServer  the remote server the build is running on
+     * @param jobURL        the URL of the remote job
+     * @param buildNumber   the number of the remote build
+     * @param console       copies the console output of the remote build while it runs, or null
+     * @param context       the build that is being triggered
+     * @param policy        how often to poll the remote build
+     * @return              completes with the status of the remote build once it has finished
+     * @throws IOException
+     */
+    ListenableFuture<RemoteBuildStatus> watchRemoteBuild(final RemoteJenkinsServer remoteServer, final String jobURL,
+            final int buildNumber, final RemoteConsoleMirror console, final BuildContext context,
+            final PollIntervalPolicy policy) throws IOException {
+        final PrintStream logger = context.getListener().getLogger();
+        final String jobLocation = ApiQuery.BUILD_STATUS.forUrl(jobURL + buildNumber);
+        // builds of the same remote job can only be polled together if they use the same credentials
+        final String batchKey = jobURL + "|" + this.getAuthorization(remoteServer, context);
+        // a failed poll is scheduled again by the watcher, this only decides when
+        final RetryPolicy retryPolicy = this.getRetryPolicy(remoteServer);
+        final RetryLogger retryLogger = new RetryLogger(HttpTransport.forServer(remoteServer),
+                RemoteCallMetrics.Endpoint.forUrl(jobLocation), logger, retryPolicy);
+
+        if (policy.getMinInterval() != policy.getMaxInterval()) {
+            logger.println("Polling every " + policy.getMinInterval() / 1000 + " to " + policy.getMaxInterval() / 1000
+                    + " seconds, depending on how long the remote build is expected to take.");
+        } else {
+            logger.println("Polling every " + this.pollInterval + " seconds.");
+        }
+
+        return RemoteBuildWatcher.get().watch(new RemoteBuildWatcher.StatusCheck() {
+            private boolean started = false;
+            // polls of this build that failed in a row, and when the first of them started
+            private int     failures = 0;
+            private long    firstAttempt;
+
+            public RemoteJenkinsServer getRemoteServer() {
+                return remoteServer;
+            }
+
+            public int getBuildNumber() {
+                return buildNumber;
+            }
+
+            public String getBatchKey() {
+                return batchKey;
+            }
+
+            public Map<Integer, RemoteBuildStatus> getBatchStatuses(Collection<Integer> buildNumbers)
+                    throws IOException {
+                // the call answers the polls of other builds too, it is not logged nor counted with this one; if it
+                // fails, every build of the batch polls on its own
+                BuildContext batchContext = new BuildContext(null, TaskListener.NULL, remoteServer);
+                batchContext.putAuthorization(selectAuth(remoteServer), getAuthorization(remoteServer, context));
+                String jobUrlString = ApiQuery.BUILDS.first(RemotePollCoordinator.getListSize(buildNumbers)).forUrl(
+                        jobURL);
+                return toBuildStatuses(pollHTTPCall(jobUrlString, batchContext, 1, new RetryLogger(HttpTransport
+                        .forServer(remoteServer), RemoteCallMetrics.Endpoint.forUrl(jobUrlString), batchContext
+                        .getListener().getLogger(), retryPolicy)));
+            }
+
+            public RemoteBuildStatus getStatus(Map<Integer, RemoteBuildStatus> batchStatuses) throws IOException {
+                RemoteBuildStatus buildStatus;
+                if (batchStatuses != null) {
+                    buildStatus = batchStatuses.get(buildNumber);
+                    if (buildStatus == null) {
+                        // the remote server doesn't list the build yet, so it's still in the queue
+                        buildStatus = RemoteBuildStatus.fromJSON(null);
+                    }
+                } else {
+                    // the build is too old to show up in the list of builds, or there was no batch to look at
+                    if (this.failures == 0) {
+                        this.firstAttempt = System.currentTimeMillis();
+                    }
+                    buildStatus = RemoteBuildStatus.fromJSON(pollHTTPCall(jobLocation, context, this.failures + 1,
+                            retryLogger));
+                }
+                this.failures = 0;
+
+                if (buildStatus == null) {
+                    return null;
+                } else if (RemoteBuildStatus.NOT_STARTED.equals(buildStatus.getStatus())) {
+                    logger.println("Waiting for remote build to start.");
+                } else if (RemoteBuildStatus.RUNNING.equals(buildStatus.getStatus())) {
+                    if (!started) {
+                        logger.println("Remote build started!");
+                        started = true;
+                    }
+                    if (console == null) {
+                        logger.println("Waiting for remote build to finish.");
+                    } else {
+                        // the console output of the remote build shows how far along it is; it is copied on threads
+                        // of its own, so that it doesn't hold up the polls of other builds
+                        console.start(policy.getMinInterval());
+                    }
+                }
+                return buildStatus;
+            }
+
+            public long onFailure(IOException failure) {
+                this.failures++;
+                long delay = retryPolicy.getRetryDelay(failure, this.failures, true, System.currentTimeMillis()
+                        - this.firstAttempt);
+                if (delay >= 0) {
+                    retryLogger.onRetry(this.failures, delay);
+                }
+                return delay;
+            }
+        }, policy);
+    }
+
+    /**
+     * Keeps how long a remote build that was waited for sat in the queue and ran, with the build and in the numbers of
+     * the remote server.
+     * 
+     * @param context   the build that triggered the remote build
+     * @param status    the status of the remote build, once it has finished
+     * @return          the timing of the remote build
+     */
+    RemoteBuildTiming recordTiming(BuildContext context, RemoteBuildStatus status) {
+        RemoteBuildTiming timing = RemoteBuildTiming.of(context.getTrace().getInQueueSince(), status);
+        context.getTrace().setTiming(timing);
+        HttpTransport.forServer(context.getRemoteServer()).getMetrics().onRemoteBuild(timing);
+        return timing;
+    }
+
+    /**
+     * Warns when the remote build waited in the queue, or ran, for longer than the thresholds, and marks the build
+     * unstable for it if told to.
+     * 
+     * @param build     the build that triggered the remote build
+     * @param listener  build listener
+     * @param timing    the timing of the remote build
+     */
+    private void checkTiming(AbstractBuild<?, ?> build, TaskListener listener, RemoteBuildTiming timing) {
+        boolean slow = false;
+        long queueWait = timing.getQueueWait();
+        if (queueWait >= 0) {
+            listener.getLogger().println("Remote build waited " + queueWait / 1000 + " seconds in the queue.");
+            if (this.getQueueWaitThreshold() > 0 && queueWait > this.getQueueWaitThreshold() * 1000L) {
+                listener.getLogger().println("WARNING: the remote build waited longer in the queue than the threshold of "
+                        + this.getQueueWaitThreshold() + " seconds.");
+                slow = true;
+            }
+        }
+        long executionTime = timing.getExecutionTime();
+        if (executionTime >= 0) {
+            listener.getLogger().println("Remote build ran for " + executionTime / 1000 + " seconds.");
+            if (this.getExecutionTimeThreshold() > 0 && executionTime > this.getExecutionTimeThreshold() * 1000L) {
+                listener.getLogger().println("WARNING: the remote build ran longer than the threshold of "
+                        + this.getExecutionTimeThreshold() + " seconds.");
+                slow = true;
+            }
+        }
+        if (slow && this.getUnstableOnSlowBuild()) {
+            build.setResult(Result.UNSTABLE);
+        }
+    }
+
+    /**
+     * @return the policy for polling the remote build, adaptive if a range of poll intervals is configured, or else
+     *         fixed to 'pollInterval'
+     */
+    PollIntervalPolicy getPollIntervalPolicy() {
+        int minPollInterval = Math.max(1, this.getMinPollInterval());
+        if (this.getMaxPollInterval() > minPollInterval) {
+            return new PollIntervalPolicy(minPollInterval * 1000L, this.getMaxPollInterval() * 1000L);
+        }
+        return PollIntervalPolicy.fixed(this.pollInterval * 1000L);
+    }
+
+    private String findParameter(String parameter, List<String> parameters) {
+        for (String search : parameters) {
+            if (search.startsWith(parameter + "=")) {
+                return search.substring(parameter.length() + 1);
+            }
+        }
+        return null;
+    }
+
+    boolean compareParameters(TaskListener listener, JSONArray parameters, List<String> expectedParams) {
+        for (int j = 0; j < parameters.size(); j++) {
+            JSONObject parameter = parameters.getJSONObject(j);
+            String name = parameter.getString("name");
+            String expected = findParameter(name, expectedParams);
+
+            if (expected == null) {
+                // If we didn't specify all of the parameters, this will happen, so we can not infer that this it he wrong build
+                listener.getLogger().println("Unable to find expected value for " + name);
+                continue;
+            }
+
+            String value = parameter.getString("value");
+            // If we got the expected value, skip to the next parameter
+            if (expected.equals(value)) continue;
 
             // We didn't get the expected value
             listener.getLogger().println("Param " + name + " doesn't match!");
@@ -704,64 +1193,110 @@ public class RemoteBuildConfiguration extends Builder {
         return true;
     }
 
+    /**
+     * @deprecated works out the 'Authorization' header again on every call, use
+     *             {@link #getBuildStatus(String, BuildContext)}
+     */
+    @Deprecated
     public String getBuildStatus(String buildUrlString, AbstractBuild build, BuildListener listener) throws IOException {
-        String buildStatus = "UNKNOWN";
+        return this.getBuildStatus(buildUrlString, this.createContext(build, listener));
+    }
 
-        RemoteJenkinsServer remoteServer = this.findRemoteHost(this.getRemoteJenkinsName());
+    public String getBuildStatus(String buildUrlString, BuildContext context) throws IOException {
+        RemoteBuildStatus buildStatus = this.getRemoteBuildStatus(buildUrlString, context);
+        return buildStatus == null ? null : buildStatus.getStatus();
+    }
+
+    /**
+     * Same as getBuildStatus, but also keeps the timing information of the remote build.
+     * 
+     * @param buildUrlString    the API URL of the remote build
+     * @param context           the build that is being triggered
+     * @return                  the status of the remote build
+     * @throws IOException
+     */
+    public RemoteBuildStatus getRemoteBuildStatus(String buildUrlString, BuildContext context)
+            throws IOException {
+        RemoteJenkinsServer remoteServer = context.getRemoteServer();
 
         if (remoteServer == null) {
-            this.failBuild(new Exception("No remote host is defined for this job."), listener);
+            this.failBuild(new Exception("No remote host is defined for this job."), context.getListener());
             return null;
         }
 
         // print out some debugging information to the console
         //listener.getLogger().println("Checking Status of this job: " + buildUrlString);
         if (this.getOverrideAuth()) {
-            listener.getLogger().println(
+            context.getListener().getLogger().println(
                     "Using job-level defined credentails in place of those from remote Jenkins config ["
                             + this.getRemoteJenkinsName() + "]");
         }
 
-        JSONObject responseObject = sendHTTPCall(buildUrlString, "GET", build, listener);
+        JSONObject responseObject = sendHTTPCall(buildUrlString, "GET", context);
 
-        // get the next build from the location
+        return RemoteBuildStatus.fromJSON(responseObject);
+    }
 
-        if (responseObject == null || responseObject.getString("result") == null && responseObject.getBoolean("building") == false) {
-            // build not started
-            buildStatus = "not started";
-        } else if (responseObject.getBoolean("building")) {
-            // build running
-            buildStatus = "running";
-        } else if (responseObject.getString("result") != null) {
-            // build finished
-            buildStatus = responseObject.getString("result");
-        } else {
-            // Add additional else to check for unhandled conditions
-            listener.getLogger().println("WARNING: Unhandled condition!");
+    /**
+     * Fetches the status of every build listed in the response of a job-level query, with a single call.
+     * 
+     * @param jobUrlString  the API URL of the remote job, asking for the builds' number, building and result fields
+     * @param context       the build that is being triggered
+     * @return              the status of each build, keyed by build number
+     * @throws IOException
+     */
+    public Map<Integer, RemoteBuildStatus> getBuildStatuses(String jobUrlString, BuildContext context)
+            throws IOException {
+        return toBuildStatuses(sendHTTPCall(jobUrlString, "GET", context));
+    }
+
+    /**
+     * @param responseObject    the response of a job-level query for its builds' number, building and result fields
+     * @return                  the status of each build, keyed by build number
+     * @throws IOException      if the response doesn't list the builds
+     */
+    private static Map<Integer, RemoteBuildStatus> toBuildStatuses(JSONObject responseObject) throws IOException {
+        Map<Integer, RemoteBuildStatus> buildStatuses = new HashMap<Integer, RemoteBuildStatus>();
+        if (responseObject == null || !responseObject.has("builds")) {
+            throw new IOException("Unable to get the list of builds from the remote server.");
         }
 
-        return buildStatus;
+        JSONArray builds = responseObject.getJSONArray("builds");
+        for (int i = 0; i < builds.size(); i++) {
+            JSONObject remoteBuild = builds.getJSONObject(i);
+            buildStatuses.put(remoteBuild.getInt("number"), RemoteBuildStatus.fromJSON(remoteBuild));
+        }
+        return buildStatuses;
     }
 
+    /**
+     * @deprecated works out the 'Authorization' header again on every call, use
+     *             {@link #getBuildUrl(String, BuildContext)}
+     */
+    @Deprecated
     public String getBuildUrl(String buildUrlString, AbstractBuild build, BuildListener listener) throws IOException {
+        return this.getBuildUrl(buildUrlString, this.createContext(build, listener));
+    }
+
+    public String getBuildUrl(String buildUrlString, BuildContext context) throws IOException {
         String buildUrl = "";
 
-        RemoteJenkinsServer remoteServer = this.findRemoteHost(this.getRemoteJenkinsName());
+        RemoteJenkinsServer remoteServer = context.getRemoteServer();
 
         if (remoteServer == null) {
-            this.failBuild(new Exception("No remote host is defined for this job."), listener);
+            this.failBuild(new Exception("No remote host is defined for this job."), context.getListener());
             return null;
         }
 
         // print out some debugging information to the console
         //listener.getLogger().println("Checking Status of this job: " + buildUrlString);
         if (this.getOverrideAuth()) {
-            listener.getLogger().println(
+            context.getListener().getLogger().println(
                     "Using job-level defined credentails in place of those from remote Jenkins config ["
                             + this.getRemoteJenkinsName() + "]");
         }
 
-        JSONObject responseObject = sendHTTPCall(buildUrlString, "GET", build, listener);
+        JSONObject responseObject = sendHTTPCall(buildUrlString, "GET", context);
 
         // get the next build from the location
 
@@ -769,17 +1304,40 @@ public class RemoteBuildConfiguration extends Builder {
             buildUrl = responseObject.getString("url");
         } else {
             // Add additional else to check for unhandled conditions
-            listener.getLogger().println("WARNING: URL not found in JSON Response!");
+            context.getListener().getLogger().println("WARNING: URL not found in JSON Response!");
             return null;
         }
 
         return buildUrl;
     }
 
+    /**
+     * @deprecated holds the whole console output in memory, use {@link RemoteConsoleMirror} to copy it as it comes in
+     */
+    @Deprecated
     public String getConsoleOutput(String urlString, String requestType, AbstractBuild build, BuildListener listener)
             throws IOException {
+        return this.getConsoleOutput(urlString, requestType, this.createContext(build, listener));
+    }
+
+    /**
+     * @deprecated holds the whole console output in memory, use {@link RemoteConsoleMirror} to copy it as it comes in
+     */
+    @Deprecated
+    public String getConsoleOutput(String urlString, String requestType, BuildContext context)
+            throws IOException {
         
-            return getConsoleOutput( urlString, requestType, build, listener, 1 );
+            return getConsoleOutput( urlString, requestType, context, 1 );
+    }
+
+    /**
+     * @deprecated works out the 'Authorization' header again on every call, use
+     *             {@link #sendHTTPCall(String, String, BuildContext)}
+     */
+    @Deprecated
+    public JSONObject sendHTTPCall(String urlString, String requestType, AbstractBuild build, BuildListener listener)
+            throws IOException {
+        return this.sendHTTPCall(urlString, requestType, this.createContext(build, listener));
     }
 
     /**
@@ -788,260 +1346,286 @@ public class RemoteBuildConfiguration extends Builder {
      * 
      * @param urlString     the URL that needs to be called
      * @param requestType   the type of request (GET, POST, etc)
-     * @param build         the build that is being triggered
-     * @param listener      build listener
+     * @param context       the build that is being triggered
      * @return              a valid JSON object, or null
      * @throws IOException
      */
-    public JSONObject sendHTTPCall(String urlString, String requestType, AbstractBuild build, BuildListener listener)
+    public JSONObject sendHTTPCall(String urlString, String requestType, BuildContext context)
             throws IOException {
         
-            return sendHTTPCall( urlString, requestType, build, listener, 1 );
+            return sendHTTPCall( urlString, requestType, context, 1 );
+    }
+
+    /**
+     * @deprecated holds the whole console output in memory, use {@link RemoteConsoleMirror} to copy it as it comes in
+     */
+    @Deprecated
+    public String getConsoleOutput(String urlString, String requestType, AbstractBuild build, BuildListener listener,
+            int numberOfAttempts) throws IOException {
+        return this.getConsoleOutput(urlString, requestType, this.createContext(build, listener), numberOfAttempts);
     }
 
-    public String getConsoleOutput(String urlString, String requestType, AbstractBuild build, BuildListener listener, int numberOfAttempts)
+    /**
+     * @deprecated holds the whole console output in memory, use {@link RemoteConsoleMirror} to copy it as it comes in
+     */
+    @Deprecated
+    public String getConsoleOutput(String urlString, String requestType, BuildContext context, int numberOfAttempts)
             throws IOException {
-        RemoteJenkinsServer remoteServer = this.findRemoteHost(this.getRemoteJenkinsName());
-        int retryLimit = this.getConnectionRetryLimit();
-        
-        if (remoteServer == null) {
-            this.failBuild(new Exception("No remote host is defined for this job."), listener);
-            return null;
-        }
+        final String consoleUrlString = urlString + "consoleText";
 
-        HttpURLConnection connection = null;
+        return sendHTTPCall(consoleUrlString, requestType, context, numberOfAttempts, new ResponseHandler<String>() {
+            public String handleResponse(HttpResponse response) throws IOException {
+                HttpTransport.checkResponseCode(response, consoleUrlString);
+                HttpEntity entity = response.getEntity();
+                return entity == null ? "" : EntityUtils.toString(entity, "UTF-8");
+            }
+        });
+    }
 
-        String consoleOutput = null;
+    /**
+     * @deprecated works out the 'Authorization' header again on every call, use
+     *             {@link #sendHTTPCall(String, String, BuildContext, int)}
+     */
+    @Deprecated
+    public JSONObject sendHTTPCall(String urlString, String requestType, AbstractBuild build, BuildListener listener,
+            int numberOfAttempts) throws IOException {
+        return this.sendHTTPCall(urlString, requestType, this.createContext(build, listener), numberOfAttempts);
+    }
 
-        URL buildUrl = new URL(urlString+"consoleText");
-        connection = (HttpURLConnection) buildUrl.openConnection();
+    /**
+     * Same as sendHTTPCall, but starts counting the attempts of the call at the given number, as if the attempts
+     * before it had already failed.
+     * 
+     * @see sendHTTPCall
+     * @param numberOfAttempts  number of the first attempt, the ones before it count against the retry limit
+     * @return
+     * @throws IOException
+     */
+    public JSONObject sendHTTPCall(final String urlString, String requestType, final BuildContext context, int numberOfAttempts)
+            throws IOException {
+        return sendHTTPCall(urlString, requestType, context, numberOfAttempts, new JsonResponseHandler(urlString) {
+            @Override
+            public JSONObject handleResponse(HttpResponse response) throws IOException {
+                JSONObject responseObject = super.handleResponse(response);
+
+                //Solving issue reported in this comment: https://github.com/jenkinsci/parameterized-remote-trigger-plugin/pull/3#issuecomment-39369194
+                //Seems like in Jenkins version 1.547, when using "/build" (job API for non-parameterized jobs), it returns a string indicating the status.
+                //But in newer versions of Jenkins, it just returns an empty response.
+                //So we need to compensate and check for both.
+                if (responseObject == null) {
+                    context.getListener().getLogger().println("Remote Jenkins server returned empty response or invalid JSON - but we can still proceed with the remote build.");
+                }
+                return responseObject;
+            }
+        });
+    }
 
-        // if there is a username + apiToken defined for this remote host, then use it
-        String usernameTokenConcat;
+    /**
+     * Reads the JSON response of a call, keeping only the fields the URL asked for.
+     */
+    private static class JsonResponseHandler implements ResponseHandler<JSONObject> {
+        private final String urlString;
 
-        if (this.getOverrideAuth()) {
-            usernameTokenConcat = this.getAuth()[0].getUsername() + ":" + this.getAuth()[0].getPassword();
-        } else {
-            usernameTokenConcat = remoteServer.getAuth()[0].getUsername() + ":"
-                    + remoteServer.getAuth()[0].getPassword();
+        JsonResponseHandler(String urlString) {
+            this.urlString = urlString;
         }
 
-        if (!usernameTokenConcat.equals(":")) {
-            // token-macro replacment
+        public JSONObject handleResponse(HttpResponse response) throws IOException {
+            // In case of a e.g. 404 status we still read the body
+            HttpTransport.checkResponseCode(response, this.urlString);
+            HttpEntity entity = response.getEntity();
+            if (entity == null) {
+                return null;
+            }
+            InputStream content = entity.getContent();
             try {
-                usernameTokenConcat = TokenMacro.expandAll(build, listener, usernameTokenConcat);
-            } catch (MacroEvaluationException e) {
-                this.failBuild(e, listener);
-            } catch (InterruptedException e) {
-                this.failBuild(e, listener);
+                // only the fields the URL asked for are kept, whatever the remote server sends back
+                return StreamingJsonReader.read(content, ApiQuery.treeOf(this.urlString));
+            } finally {
+                content.close();
             }
-
-            byte[] encodedAuthKey = Base64.encodeBase64(usernameTokenConcat.getBytes());
-            connection.setRequestProperty("Authorization", "Basic " + new String(encodedAuthKey));
         }
+    }
 
-        try {
-            connection.setDoInput(true);
-            connection.setRequestProperty("Accept", "application/json");
-            connection.setRequestMethod(requestType);
-            // wait up to 5 seconds for the connection to be open
-            connection.setConnectTimeout(5000);
-            connection.connect();
-            
-            InputStream is;
-            try {
-                is = connection.getInputStream();
-            } catch (FileNotFoundException e) {
-                // In case of a e.g. 404 status
-                is = connection.getErrorStream();
-            }
-            
-            BufferedReader rd = new BufferedReader(new InputStreamReader(is));
-            String line;
-            // String response = "";
-            StringBuilder response = new StringBuilder();
-        
-            while ((line = rd.readLine()) != null) {
-                response.append(line+"\n");
-            }
-            rd.close();
-            
+    /**
+     * Same as sendHTTPCall, but lets the handler read whatever it needs from the response. A failed call is retried as
+     * the {@link RetryPolicy} of the step and the remote server allows.
+     * 
+     * @param handler   reads the response, it is handed a response for every attempt
+     * @return          whatever the handler returned, or null if the call failed and the build is not to fail
+     */
+    private <T> T sendHTTPCall(final String urlString, final String requestType, final BuildContext context,
+            int numberOfAttempts, final ResponseHandler<T> handler) throws IOException {
+        RemoteJenkinsServer remoteServer = context.getRemoteServer();
 
-            consoleOutput = response.toString();
-        } catch (IOException e) {
-            
-            //If we have connectionRetryLimit set to > 0 then retry that many times.
-            if( numberOfAttempts <= retryLimit) {
-                listener.getLogger().println("Connection to remote server failed, waiting for to retry - " + this.pollInterval + " seconds until next attempt.");
-                e.printStackTrace();
-                
-                // Sleep for 'pollInterval' seconds.
-                // Sleep takes miliseconds so need to convert this.pollInterval to milisecopnds (x 1000)
-                try {
-                    // Could do with a better way of sleeping...
-                    Thread.sleep(this.pollInterval * 1000);
-                } catch (InterruptedException ex) {
-                    this.failBuild(ex, listener);
-                }
+        if (remoteServer == null) {
+            this.failBuild(new Exception("No remote host is defined for this job."), context.getListener());
+            return null;
+        }
 
- 
-                listener.getLogger().println("Retry attempt #" + numberOfAttempts + " out of " + retryLimit );
-                numberOfAttempts++;
-                consoleOutput = getConsoleOutput(urlString, requestType, build, listener, numberOfAttempts);
-            } else if(numberOfAttempts > retryLimit){
-                //reached the maximum number of retries, time to fail
-                this.failBuild(new Exception("Max number of connection retries have been exeeded."), listener);
-            } else{
-                //something failed with the connection and we retried the max amount of times... so throw an exception to mark the build as failed.
-                this.failBuild(e, listener);
-            }
-            
-        } finally {
-            // always make sure we close the connection
-            if (connection != null) {
-                connection.disconnect();
-            }
-            // and always clear the query string and remove some "global" values
-            this.clearQueryString();
-            // this.build = null;
-            // this.listener = null;
+        // if there is a username + apiToken defined for this remote host, then use it
+        final String authorization = this.getAuthorization(remoteServer, context);
+        final HttpTransport transport = HttpTransport.forServer(remoteServer);
+        RetryPolicy retryPolicy = this.getRetryPolicy(remoteServer);
+        final HttpTransport.Timeouts timeouts = this.getTimeouts(remoteServer);
+        // a POST may trigger a remote build, it is not sent again once it may have reached the remote server
+        boolean idempotent = !"POST".equalsIgnoreCase(requestType);
 
+        try {
+            return retryPolicy.execute(new RetryPolicy.Attempt<T>() {
+                public T call() throws IOException {
+                    context.getTrace().countRequest();
+                    return transport.execute(requestType, urlString, authorization, handler, timeouts);
+                }
+            }, numberOfAttempts, idempotent, new RetryLogger(transport, RemoteCallMetrics.Endpoint.forUrl(urlString),
+                    context.getListener().getLogger(), retryPolicy));
+        } catch (IOException e) {
+            // not worth retrying, or out of retries: failBuild will check if the 'shouldNotFailBuild' parameter is
+            // set or not, so will decide how to handle the failure
+            this.failBuild(e, context.getListener());
+            return null;
         }
-        return consoleOutput;
     }
 
     /**
-     * Same as sendHTTPCall, but keeps track of the number of failed connection attempts (aka: the number of times this
-     * method has been called).
-     * In the case of a failed connection, the method calls it self recursively and increments  numberOfAttempts
+     * Makes a single attempt of a GET call, for the {@link RemoteBuildWatcher}. Unlike sendHTTPCall, a failed call is
+     * neither retried nor does it fail the build: the watcher schedules the next attempt itself, after the delay of the
+     * {@link RetryPolicy}, rather than holding one of its threads while it waits. For the same reason the call doesn't
+     * wait for its turn with the {@link RequestGovernor} of the remote server.
      * 
-     * @see sendHTTPCall
-     * @param numberOfAttempts  number of time that the connection has been attempted
-     * @return
-     * @throws IOException
+     * @param urlString     the URL that needs to be called
+     * @param context       the build that is being triggered
+     * @param attempt       number of the attempt, counting the failed attempts before it
+     * @param listener      is told about the attempt
+     * @return              a valid JSON object, or null
+     * @throws IOException  if the call failed; a {@link HttpTransport.TurnDeferredException} if it was not sent
+     *                      because it is not its turn yet
      */
-    public JSONObject sendHTTPCall(String urlString, String requestType, AbstractBuild build, BuildListener listener, int numberOfAttempts)
+    private JSONObject pollHTTPCall(String urlString, BuildContext context, int attempt, RetryPolicy.Listener listener)
             throws IOException {
-        RemoteJenkinsServer remoteServer = this.findRemoteHost(this.getRemoteJenkinsName());
-        int retryLimit = this.getConnectionRetryLimit();
-        
-        if (remoteServer == null) {
-            this.failBuild(new Exception("No remote host is defined for this job."), listener);
-            return null;
+        RemoteJenkinsServer remoteServer = context.getRemoteServer();
+        String authorization = this.getAuthorization(remoteServer, context);
+        HttpTransport transport = HttpTransport.forServer(remoteServer);
+
+        long start = System.nanoTime();
+        JSONObject responseObject;
+        try {
+            responseObject = transport.executeNow("GET", urlString, authorization, new JsonResponseHandler(urlString),
+                    this.getTimeouts(remoteServer), RemoteCallMetrics.Endpoint.forUrl(urlString));
+        } catch (HttpTransport.TurnDeferredException e) {
+            // not sent, so neither a request nor an attempt
+            throw e;
+        } catch (IOException e) {
+            context.getTrace().countRequest();
+            listener.onAttempt(attempt, System.nanoTime() - start, e);
+            throw e;
         }
+        context.getTrace().countRequest();
+        listener.onAttempt(attempt, System.nanoTime() - start, null);
+        return responseObject;
+    }
 
-        HttpURLConnection connection = null;
+    /**
+     * Logs the failed attempts of a call to the console of the build, and counts every attempt for the remote server.
+     */
+    private static class RetryLogger implements RetryPolicy.Listener {
+        private final HttpTransport              transport;
+        private final RemoteCallMetrics.Endpoint endpoint;
+        private final PrintStream                logger;
+        private final RetryPolicy                retryPolicy;
+
+        RetryLogger(HttpTransport transport, RemoteCallMetrics.Endpoint endpoint, PrintStream logger,
+                RetryPolicy retryPolicy) {
+            this.transport = transport;
+            this.endpoint = endpoint;
+            this.logger = logger;
+            this.retryPolicy = retryPolicy;
+        }
 
-        JSONObject responseObject = null;
+        public void onAttempt(int attempt, long latencyNanos, IOException failure) {
+            this.transport.recordAttempt(attempt, latencyNanos, failure != null);
+            if (failure != null) {
+                this.logger.println("Connection to remote server failed after " + latencyNanos / 1000000L + " ms: "
+                        + failure.getMessage());
+            }
+        }
 
-            URL buildUrl = new URL(urlString);
-            connection = (HttpURLConnection) buildUrl.openConnection();
+        public void onRetry(int attempt, long delayMillis) {
+            this.transport.recordRetry(this.endpoint, attempt);
+            this.logger.println("Retry attempt #" + attempt + " out of " + this.retryPolicy.getMaxRetries() + " in "
+                    + delayMillis + " ms.");
+        }
+    }
 
-            // if there is a username + apiToken defined for this remote host, then use it
-            String usernameTokenConcat;
+    /**
+     * Gets the value of the 'Authorization' header for calls to the remote server. If there is a username + apiToken
+     * defined for this job (or else for the remote host), then it is used. The header is only built on the first call
+     * of the build, after that it comes from the context.
+     *
+     * @param remoteServer  the remote server that is being called
+     * @param context       the build that is being triggered
+     * @return              the header value, or null if no credentials are defined
+     * @throws IOException
+     */
+    String getAuthorization(RemoteJenkinsServer remoteServer, BuildContext context)
+            throws IOException {
+        Auth auth = this.selectAuth(remoteServer);
 
-            if (this.getOverrideAuth()) {
-                usernameTokenConcat = this.getAuth()[0].getUsername() + ":" + this.getAuth()[0].getPassword();
-            } else {
-                usernameTokenConcat = remoteServer.getAuth()[0].getUsername() + ":"
-                        + remoteServer.getAuth()[0].getPassword();
-            }
+        String authorization = context.getAuthorization(auth);
+        if (authorization == null) {
+            authorization = this.buildAuthorization(auth, context);
+            context.putAuthorization(auth, authorization);
+        }
+        return BuildContext.ANONYMOUS.equals(authorization) ? null : authorization;
+    }
 
-            if (!usernameTokenConcat.equals(":")) {
-                // token-macro replacment
-                try {
-                    usernameTokenConcat = TokenMacro.expandAll(build, listener, usernameTokenConcat);
-                } catch (MacroEvaluationException e) {
-                    this.failBuild(e, listener);
-                } catch (InterruptedException e) {
-                    this.failBuild(e, listener);
-                }
+    /**
+     * @param build         the build that is being triggered
+     * @param listener      build listener
+     * @return              a context for a single call of the given build, to the remote server of this step
+     */
+    private BuildContext createContext(AbstractBuild build, BuildListener listener) {
+        return new BuildContext(build, listener, this.findRemoteHost(this.getRemoteJenkinsName()));
+    }
 
-                byte[] encodedAuthKey = Base64.encodeBase64(usernameTokenConcat.getBytes());
-                connection.setRequestProperty("Authorization", "Basic " + new String(encodedAuthKey));
-            }
+    /**
+     * @param remoteServer  the remote server that is being called
+     * @return              the credentials of this job if it overrides them, or else the ones of the remote server
+     */
+    private Auth selectAuth(RemoteJenkinsServer remoteServer) {
+        return this.getOverrideAuth() ? this.getAuth()[0] : remoteServer.getAuth()[0];
+    }
 
-        try {
-            connection.setDoInput(true);
-            connection.setRequestProperty("Accept", "application/json");
-            connection.setRequestMethod(requestType);
-            // wait up to 5 seconds for the connection to be open
-            connection.setConnectTimeout(5000);
-            connection.connect();
-            
-            InputStream is;
-            try {
-                is = connection.getInputStream();
-            } catch (FileNotFoundException e) {
-                // In case of a e.g. 404 status
-                is = connection.getErrorStream();
-            }
-            
-            BufferedReader rd = new BufferedReader(new InputStreamReader(is));
-            String line;
-            // String response = "";
-            StringBuilder response = new StringBuilder();
-        
-            while ((line = rd.readLine()) != null) {
-                response.append(line);
-            }
-            rd.close();
-            
-            // JSONSerializer serializer = new JSONSerializer();
-            // need to parse the data we get back into struct
-            //listener.getLogger().println("Called URL: '" + urlString +  "', got response: '" + response.toString() + "'");
-
-            //Solving issue reported in this comment: https://github.com/jenkinsci/parameterized-remote-trigger-plugin/pull/3#issuecomment-39369194
-            //Seems like in Jenkins version 1.547, when using "/build" (job API for non-parameterized jobs), it returns a string indicating the status.
-            //But in newer versions of Jenkins, it just returns an empty response.
-            //So we need to compensate and check for both.
-            if ( JSONUtils.mayBeJSON(response.toString()) == false) {
-                listener.getLogger().println("Remote Jenkins server returned empty response or invalid JSON - but we can still proceed with the remote build.");
-                return null;
-            } else {
-                responseObject = (JSONObject) JSONSerializer.toJSON(response.toString());
-            }
+    /**
+     * Builds the value of the 'Authorization' header from the given credentials, looking them up if they come from the
+     * credentials plugin.
+     *
+     * @param auth      the credentials to use
+     * @param context   the build that is being triggered
+     * @return          the header value, or null if the credentials are empty
+     * @throws IOException
+     */
+    private String buildAuthorization(Auth auth, BuildContext context) throws IOException {
+        String usernameTokenConcat = auth.getUsername() + ":" + auth.getPassword();
 
-        } catch (IOException e) {
-            listener.getLogger().println(e.getMessage());
-            //If we have connectionRetryLimit set to > 0 then retry that many times.
-            if( numberOfAttempts <= retryLimit) {
-                listener.getLogger().println("Connection to remote server failed, waiting for to retry - " + this.pollInterval + " seconds until next attempt.");
-                e.printStackTrace();
-                
-                // Sleep for 'pollInterval' seconds.
-                // Sleep takes miliseconds so need to convert this.pollInterval to milisecopnds (x 1000)
-                try {
-                    // Could do with a better way of sleeping...
-                    Thread.sleep(this.pollInterval * 1000);
-                } catch (InterruptedException ex) {
-                    this.failBuild(ex, listener);
-                }
+        if (usernameTokenConcat.equals(":")) {
+            return null;
+        }
 
- 
-                listener.getLogger().println("Retry attempt #" + numberOfAttempts + " out of " + retryLimit );
-                numberOfAttempts++;
-                responseObject = sendHTTPCall(urlString, requestType, build, listener, numberOfAttempts);
-            }else if(numberOfAttempts > retryLimit){
-                //reached the maximum number of retries, time to fail
-                this.failBuild(new Exception("Max number of connection retries have been exeeded."), listener);
-            }else{
-                //something failed with the connection and we retried the max amount of times... so throw an exception to mark the build as failed.
-                this.failBuild(e, listener);
-            }
-            
-        } finally {
-            // always make sure we close the connection
-            if (connection != null) {
-                connection.disconnect();
+        // token-macro replacment, a Pipeline has expanded everything already
+        try {
+            if (context.getBuild() instanceof AbstractBuild) {
+                usernameTokenConcat = TokenMacro.expandAll((AbstractBuild<?, ?>) context.getBuild(),
+                        context.getListener(), usernameTokenConcat);
             }
-            // and always clear the query string and remove some "global" values
-            this.clearQueryString();
-            // this.build = null;
-            // this.listener = null;
-
+        } catch (MacroEvaluationException e) {
+            this.failBuild(e, context.getListener());
+        } catch (InterruptedException e) {
+            this.failBuild(e, context.getListener());
         }
-        return responseObject;
+
+        byte[] encodedAuthKey = Base64.encodeBase64(usernameTokenConcat.getBytes());
+        return "Basic " + new String(encodedAuthKey);
     }
 
     /**
@@ -1051,16 +1635,7 @@ public class RemoteBuildConfiguration extends Builder {
      * @return encoded value
      */
     private String encodeValue(String dirtyValue) {
-        String cleanValue = "";
-
-        try {
-            cleanValue = URLEncoder.encode(dirtyValue, "UTF-8").replace("+", "%20");
-        } catch (UnsupportedEncodingException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
-        }
-
-        return cleanValue;
+        return UrlBuilder.encode(dirtyValue);
     }
 
     // Getters
@@ -1092,11 +1667,158 @@ public class RemoteBuildConfiguration extends Builder {
         return this.pollInterval;
     }
 
+    public int getMinPollInterval() {
+        return this.minPollInterval;
+    }
+
+    @DataBoundSetter
+    public void setMinPollInterval(int minPollInterval) {
+        this.minPollInterval = minPollInterval;
+    }
+
+    public int getMaxPollInterval() {
+        return this.maxPollInterval;
+    }
+
+    @DataBoundSetter
+    public void setMaxPollInterval(int maxPollInterval) {
+        this.maxPollInterval = maxPollInterval;
+    }
+
+    public int getConsoleOutputLimit() {
+        return this.consoleOutputLimit;
+    }
+
+    @DataBoundSetter
+    public void setConsoleOutputLimit(int consoleOutputLimit) {
+        this.consoleOutputLimit = consoleOutputLimit;
+    }
+
+    public boolean getConsoleOutputTail() {
+        return this.consoleOutputTail;
+    }
+
+    @DataBoundSetter
+    public void setConsoleOutputTail(boolean consoleOutputTail) {
+        this.consoleOutputTail = consoleOutputTail;
+    }
+
+    public int getConnectTimeout() {
+        return this.connectTimeout;
+    }
+
+    @DataBoundSetter
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public int getReadTimeout() {
+        return this.readTimeout;
+    }
+
+    @DataBoundSetter
+    public void setReadTimeout(int readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    public int getRequestDeadline() {
+        return this.requestDeadline;
+    }
+
+    @DataBoundSetter
+    public void setRequestDeadline(int requestDeadline) {
+        this.requestDeadline = requestDeadline;
+    }
+
     /**
-     * @return the connectionRetryLimit
+     * @param remoteServer  the remote server that is called
+     * @return              how long a single request to it may take, with the settings of this step taking
+     *                      precedence over the ones of the remote server
+     */
+    HttpTransport.Timeouts getTimeouts(RemoteJenkinsServer remoteServer) {
+        return new HttpTransport.Timeouts(1000 * (this.connectTimeout > 0 ? this.connectTimeout
+                : remoteServer.getConnectTimeout()), 1000 * (this.readTimeout > 0 ? this.readTimeout
+                : remoteServer.getReadTimeout()), 1000L * (this.requestDeadline > 0 ? this.requestDeadline
+                : remoteServer.getRequestDeadline()));
+    }
+
+    /**
+     * @return the number of retries of a failed call, or 0 to use what the remote server is configured with
      */
     public int getConnectionRetryLimit() {
-        return connectionRetryLimit;
+        return this.connectionRetryLimit;
+    }
+
+    @DataBoundSetter
+    public void setConnectionRetryLimit(int connectionRetryLimit) {
+        this.connectionRetryLimit = connectionRetryLimit;
+    }
+
+    public int getRetryInitialDelay() {
+        return this.retryInitialDelay;
+    }
+
+    @DataBoundSetter
+    public void setRetryInitialDelay(int retryInitialDelay) {
+        this.retryInitialDelay = retryInitialDelay;
+    }
+
+    public int getRetryMaxDelay() {
+        return this.retryMaxDelay;
+    }
+
+    @DataBoundSetter
+    public void setRetryMaxDelay(int retryMaxDelay) {
+        this.retryMaxDelay = retryMaxDelay;
+    }
+
+    public int getRetryDeadline() {
+        return this.retryDeadline;
+    }
+
+    @DataBoundSetter
+    public void setRetryDeadline(int retryDeadline) {
+        this.retryDeadline = retryDeadline;
+    }
+
+    /**
+     * @param remoteServer  the remote server that is called
+     * @return              how failed calls to it are retried, with the settings of this step taking precedence over
+     *                      the ones of the remote server
+     */
+    RetryPolicy getRetryPolicy(RemoteJenkinsServer remoteServer) {
+        return new RetryPolicy(this.connectionRetryLimit > 0 ? this.connectionRetryLimit
+                : remoteServer.getConnectionRetryLimit(), 1000L * (this.retryInitialDelay > 0 ? this.retryInitialDelay
+                : remoteServer.getRetryInitialDelay()), 1000L * (this.retryMaxDelay > 0 ? this.retryMaxDelay
+                : remoteServer.getRetryMaxDelay()), 1000L * (this.retryDeadline > 0 ? this.retryDeadline
+                : remoteServer.getRetryDeadline()));
+    }
+
+    public int getQueueWaitThreshold() {
+        return this.queueWaitThreshold;
+    }
+
+    @DataBoundSetter
+    public void setQueueWaitThreshold(int queueWaitThreshold) {
+        this.queueWaitThreshold = queueWaitThreshold;
+    }
+
+    public int getExecutionTimeThreshold() {
+        return this.executionTimeThreshold;
+    }
+
+    @DataBoundSetter
+    public void setExecutionTimeThreshold(int executionTimeThreshold) {
+        this.executionTimeThreshold = executionTimeThreshold;
+    }
+
+    public boolean getUnstableOnSlowBuild() {
+        return this.unstableOnSlowBuild;
+    }
+
+    @DataBoundSetter
+    public void setUnstableOnSlowBuild(boolean unstableOnSlowBuild) {
+        this.unstableOnSlowBuild = unstableOnSlowBuild;
     }
 
     public String getToken() {
@@ -1144,38 +1866,6 @@ public class RemoteBuildConfiguration extends Builder {
         }
     }
     
-    /**
-     * Pokes the remote server to see if it has default parameters defined or not.
-     * 
-     * @param jobName Name of the remote job to test
-     * @param build Build object
-     * @param listener listner object
-     * @return true if the remote job has default parameters set, otherwise false
-     */
-    private boolean isRemoteJobParameterized(String jobName, AbstractBuild build, BuildListener listener) {
-        boolean isParameterized = false;
-        
-        //build the proper URL to inspect the remote job
-        RemoteJenkinsServer remoteServer = this.findRemoteHost(this.getRemoteJenkinsName());
-        String remoteServerUrl = remoteServer.getAddress().toString();
-        remoteServerUrl += "/job/" + encodeValue(jobName);
-        remoteServerUrl += "/api/json";
-        
-        try {
-            JSONObject response = sendHTTPCall(remoteServerUrl, "GET", build, listener);
-
-            if(response.getJSONArray("actions").size() >= 1){
-                isParameterized = true;
-            }
-            
-        } catch (IOException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
-        }
-        
-        return isParameterized;
-    }
-
     public boolean getOverrideAuth() {
         return this.overrideAuth;
     }
@@ -1193,21 +1883,6 @@ public class RemoteBuildConfiguration extends Builder {
         return this.parameterList;
     }
 
-    public String getQueryString() {
-        return this.queryString;
-    }
-
-    private void setQueryString(String string) {
-        this.queryString = string.trim();
-    }
-
-    /**
-     * Convenience function for setting the query string to empty
-     */
-    private void clearQueryString() {
-        this.setQueryString("");
-    }
-
     // Overridden for better type safety.
     // If your plugin doesn't really define any property on Descriptor,
     // you don't have to do this.
@@ -1228,11 +1903,15 @@ public class RemoteBuildConfiguration extends Builder {
 v         */
         private CopyOnWriteList<RemoteJenkinsServer> remoteSites = new CopyOnWriteList<RemoteJenkinsServer>();
 
+        // the remote sites by display name, rebuilt as a whole whenever the remote sites change
+        private transient volatile Map<String, RemoteJenkinsServer> remoteSitesByName = Collections.emptyMap();
+
         /**
          * In order to load the persisted global configuration, you have to call load() in the constructor.
          */
         public DescriptorImpl() {
             load();
+            indexRemoteSites();
         }
 
         /**
@@ -1265,6 +1944,8 @@ v         */
         public boolean configure(StaplerRequest req, JSONObject formData) throws FormException {
 
             remoteSites.replaceBy(req.bindJSONToList(RemoteJenkinsServer.class, formData.get("remoteSites")));
+            indexRemoteSites();
+            dropRemovedSites();
             save();
 
             return super.configure(req, formData);
@@ -1287,6 +1968,38 @@ v         */
 
         public void setRemoteSites(RemoteJenkinsServer... remoteSites) {
             this.remoteSites.replaceBy(remoteSites);
+            indexRemoteSites();
+            dropRemovedSites();
+        }
+
+        /**
+         * Looks up a remote site by its display name, without going through all of them.
+         * 
+         * @param displayName
+         *            name of the remote site
+         * @return the remote site, or null if there is none by that name
+         */
+        public RemoteJenkinsServer getRemoteSite(String displayName) {
+            return this.remoteSitesByName.get(displayName);
+        }
+
+        private void indexRemoteSites() {
+            Map<String, RemoteJenkinsServer> remoteSitesByName = new HashMap<String, RemoteJenkinsServer>();
+            for (RemoteJenkinsServer site : this.remoteSites) {
+                // the first site by a name wins, like it did when the sites were searched in order
+                if (!remoteSitesByName.containsKey(site.getDisplayName())) {
+                    remoteSitesByName.put(site.getDisplayName(), site);
+                }
+            }
+            this.remoteSitesByName = Collections.unmodifiableMap(remoteSitesByName);
+        }
+
+        /**
+         * Closes the connections kept for remote sites that were removed, renamed or moved, and forgets their numbers.
+         */
+        private void dropRemovedSites() {
+            HttpTransport.retain(this.remoteSites.getView());
+            RemotePollCoordinator.retain(this.remoteSites.getView());
         }
     }
 }
@@ -0,0 +1,238 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import hudson.AbortException;
+import hudson.Extension;
+import hudson.Launcher;
+import hudson.console.LineTransformationOutputStream;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.BuildListener;
+import hudson.model.StreamBuildListener;
+import hudson.tasks.BuildStepDescriptor;
+import hudson.tasks.Builder;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+/**
+ * Triggers several remote jobs at once, and waits for all of them together.
+ *
+ * Every target is triggered and watched just like a single {@link RemoteBuildConfiguration} would do it, but the
+ * targets don't wait for each other: up to 'maxParallel' of them run at the same time. Each line a target logs is
+ * prefixed with the name of its job, and every remote build is recorded through the {@link BuildInfoExporterAction}.
+ */
+public class RemoteBuildFanOut extends Builder {
+
+    public static final int               DEFAULT_MAX_PARALLEL = 10;
+
+    private final List<RemoteBuildTarget> targets;
+    private final int                     pollInterval;
+    // stop the other targets as soon as one of them fails, instead of waiting for all of them
+    private boolean                       failFast;
+    // most targets that are triggered and watched at the same time, 0 means "use the default"
+    private int                           maxParallel;
+    private boolean                       enhancedLogging;
+
+    @DataBoundConstructor
+    public RemoteBuildFanOut(List<RemoteBuildTarget> targets, int pollInterval) {
+        this.targets = targets == null ? new ArrayList<RemoteBuildTarget>() : new ArrayList<RemoteBuildTarget>(targets);
+        this.pollInterval = pollInterval;
+    }
+
+    public List<RemoteBuildTarget> getTargets() {
+        return Collections.unmodifiableList(this.targets);
+    }
+
+    public int getPollInterval() {
+        return this.pollInterval;
+    }
+
+    public boolean getFailFast() {
+        return this.failFast;
+    }
+
+    @DataBoundSetter
+    public void setFailFast(boolean failFast) {
+        this.failFast = failFast;
+    }
+
+    public int getMaxParallel() {
+        return this.maxParallel > 0 ? this.maxParallel : DEFAULT_MAX_PARALLEL;
+    }
+
+    @DataBoundSetter
+    public void setMaxParallel(int maxParallel) {
+        this.maxParallel = maxParallel;
+    }
+
+    public boolean getEnhancedLogging() {
+        return this.enhancedLogging;
+    }
+
+    @DataBoundSetter
+    public void setEnhancedLogging(boolean enhancedLogging) {
+        this.enhancedLogging = enhancedLogging;
+    }
+
+    @Override
+    public boolean perform(final AbstractBuild build, final Launcher launcher, final BuildListener listener)
+            throws InterruptedException, IOException {
+        if (this.targets.isEmpty()) {
+            listener.getLogger().println("No remote jobs to trigger.");
+            return true;
+        }
+
+        int parallel = Math.min(this.getMaxParallel(), this.targets.size());
+        listener.getLogger().println("Triggering " + this.targets.size() + " remote jobs, " + parallel + " at a time.");
+
+        Map<RemoteBuildTarget, Callable<Void>> tasks = new LinkedHashMap<RemoteBuildTarget, Callable<Void>>();
+        for (final RemoteBuildTarget target : this.targets) {
+            final RemoteBuildConfiguration step = target.toConfiguration(this.pollInterval, this.enhancedLogging);
+            tasks.put(target, new Callable<Void>() {
+                public Void call() throws Exception {
+                    BuildListener targetListener = prefixed(listener, "[" + target.getJob() + "] ", build.getCharset());
+                    try {
+                        step.perform(build, launcher, targetListener);
+                    } finally {
+                        // only closes the prefixing stream, not the log of the build
+                        targetListener.getLogger().close();
+                    }
+                    return null;
+                }
+            });
+        }
+        List<RemoteBuildTarget> failed = runTargets(tasks, parallel, this.failFast, listener.getLogger(),
+                "RemoteBuildFanOut " + build.getFullDisplayName());
+
+        if (!failed.isEmpty()) {
+            throw new AbortException(failed.size() + " of " + this.targets.size() + " remote jobs did not succeed: "
+                    + failed);
+        }
+        return true;
+    }
+
+    /**
+     * Runs the targets, up to 'parallel' of them at a time, and waits until all of them are done; or, in fail-fast
+     * mode, until the first one fails, the others are then stopped.
+     *
+     * @param tasks
+     *            what to run for each target
+     * @param parallel
+     *            most targets that run at the same time
+     * @param failFast
+     *            whether to stop the other targets as soon as one of them fails
+     * @param logger
+     *            tells how each target did
+     * @param threadName
+     *            name of the threads the targets run on
+     * @return the targets that failed
+     * @throws InterruptedException
+     *             if the build was aborted while it waited, the targets are stopped then
+     */
+    static <T> List<T> runTargets(Map<T, Callable<Void>> tasks, int parallel, boolean failFast, PrintStream logger,
+            String threadName) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(parallel, new NamingThreadFactory(
+                new DaemonThreadFactory(), threadName));
+        CompletionService<Void> completion = new ExecutorCompletionService<Void>(executor);
+        Map<Future<Void>, T> running = new HashMap<Future<Void>, T>();
+        List<T> failed = new ArrayList<T>();
+
+        try {
+            for (Map.Entry<T, Callable<Void>> task : tasks.entrySet()) {
+                running.put(completion.submit(task.getValue()), task.getKey());
+            }
+
+            while (!running.isEmpty()) {
+                Future<Void> done = completion.take();
+                T target = running.remove(done);
+                try {
+                    done.get();
+                    logger.println("Remote job " + target + " succeeded.");
+                } catch (ExecutionException e) {
+                    failed.add(target);
+                    logger.println("Remote job " + target + " failed: " + e.getCause().getMessage());
+                    if (failFast && !running.isEmpty()) {
+                        logger.println("Stopping the other " + running.size() + " remote jobs.");
+                        break;
+                    }
+                }
+            }
+        } finally {
+            // stops whatever is still running, i.e.: after a failure in fail-fast mode, or if the build was aborted
+            executor.shutdownNow();
+        }
+        return failed;
+    }
+
+    /**
+     * @return a listener that writes to the log of the given one, with every line prefixed
+     */
+    private static BuildListener prefixed(BuildListener listener, String prefix, Charset charset) {
+        return new StreamBuildListener(new PrefixedOutputStream(listener.getLogger(), prefix.getBytes(charset)),
+                charset);
+    }
+
+    /**
+     * Prefixes every line, and hands each line to the underlying stream in one go so that the lines of targets running
+     * at the same time don't get mixed up.
+     */
+    private static class PrefixedOutputStream extends LineTransformationOutputStream {
+        private final PrintStream out;
+        private final byte[]      prefix;
+
+        PrefixedOutputStream(PrintStream out, byte[] prefix) {
+            this.out = out;
+            this.prefix = prefix;
+        }
+
+        @Override
+        protected void eol(byte[] b, int len) throws IOException {
+            byte[] line = new byte[this.prefix.length + len];
+            System.arraycopy(this.prefix, 0, line, 0, this.prefix.length);
+            System.arraycopy(b, 0, line, this.prefix.length, len);
+            this.out.write(line, 0, line.length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            this.out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            // the last line may not have been terminated yet, the underlying stream belongs to the build
+            this.forceEol();
+        }
+    }
+
+    @Extension
+    public static final class DescriptorImpl extends BuildStepDescriptor<Builder> {
+
+        public boolean isApplicable(Class<? extends AbstractProject> aClass) {
+            return true;
+        }
+
+        public String getDisplayName() {
+            return "Trigger several remote parameterized jobs at once";
+        }
+    }
+}
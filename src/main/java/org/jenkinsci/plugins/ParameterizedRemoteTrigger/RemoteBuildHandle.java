@@ -0,0 +1,64 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import java.io.Serializable;
+
+/**
+ * What the 'triggerRemoteJob' Pipeline step returns: which build of which remote job it triggered, and how that build
+ * ended if the step waited for it.
+ */
+public class RemoteBuildHandle implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String      remoteJenkinsName;
+    private final String      job;
+    private final int         buildNumber;
+    private final String      buildUrl;
+    private final String      result;
+
+    /**
+     * @param remoteJenkinsName
+     *            name of the remote server
+     * @param job
+     *            name of the remote job
+     * @param buildNumber
+     *            number of the remote build, or 0 if it was cancelled while in the queue
+     * @param buildUrl
+     *            URL of the remote build, or null if there is none
+     * @param result
+     *            result of the remote build, or null if the step didn't wait for it
+     */
+    public RemoteBuildHandle(String remoteJenkinsName, String job, int buildNumber, String buildUrl, String result) {
+        this.remoteJenkinsName = remoteJenkinsName;
+        this.job = job;
+        this.buildNumber = buildNumber;
+        this.buildUrl = buildUrl;
+        this.result = result;
+    }
+
+    public String getRemoteJenkinsName() {
+        return this.remoteJenkinsName;
+    }
+
+    public String getJob() {
+        return this.job;
+    }
+
+    public int getBuildNumber() {
+        return this.buildNumber;
+    }
+
+    public String getBuildUrl() {
+        return this.buildUrl;
+    }
+
+    public String getResult() {
+        return this.result;
+    }
+
+    @Override
+    public String toString() {
+        return this.job + " #" + this.buildNumber + " on " + this.remoteJenkinsName
+                + (this.result == null ? "" : " (" + this.result + ")");
+    }
+}
@@ -0,0 +1,108 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import net.sf.json.JSONObject;
+import net.sf.json.util.JSONUtils;
+
+/**
+ * Status of a remote build, as seen in one poll of the remote server, together with the timing information that came
+ * along with it.
+ */
+public class RemoteBuildStatus {
+
+    public static final String NOT_STARTED = "not started";
+    public static final String RUNNING     = "running";
+
+    private final String       status;
+    private final long         timestamp;
+    private final long         duration;
+    private final long         estimatedDuration;
+
+    /**
+     * @param status
+     *            "not started", "running" or the result of the finished build
+     * @param timestamp
+     *            time the remote build started, or 0 if unknown
+     * @param estimatedDuration
+     *            how long the remote server expects the build to take, or -1 if unknown
+     */
+    public RemoteBuildStatus(String status, long timestamp, long estimatedDuration) {
+        this(status, timestamp, 0, estimatedDuration);
+    }
+
+    /**
+     * @param status
+     *            "not started", "running" or the result of the finished build
+     * @param timestamp
+     *            time the remote build started, or 0 if unknown
+     * @param duration
+     *            how long the finished remote build took, or 0 if it hasn't finished (or it is unknown)
+     * @param estimatedDuration
+     *            how long the remote server expects the build to take, or -1 if unknown
+     */
+    public RemoteBuildStatus(String status, long timestamp, long duration, long estimatedDuration) {
+        this.status = status;
+        this.timestamp = timestamp;
+        this.duration = duration;
+        this.estimatedDuration = estimatedDuration;
+    }
+
+    /**
+     * Reads the status from the JSON representation of a remote build.
+     *
+     * @param remoteBuild
+     *            the JSON of the build, or null if the remote server does not know about the build (yet)
+     * @return the status of the build
+     */
+    public static RemoteBuildStatus fromJSON(JSONObject remoteBuild) {
+        if (remoteBuild == null) {
+            // build not started
+            return new RemoteBuildStatus(NOT_STARTED, 0, -1);
+        }
+
+        String status;
+        Object result = remoteBuild.get("result");
+        if (remoteBuild.optBoolean("building")) {
+            // build running
+            status = RUNNING;
+        } else if (JSONUtils.isNull(result)) {
+            // build not started
+            status = NOT_STARTED;
+        } else {
+            // build finished
+            status = result.toString();
+        }
+
+        return new RemoteBuildStatus(status, remoteBuild.optLong("timestamp", 0), remoteBuild.optLong("duration", 0),
+                remoteBuild.optLong("estimatedDuration", -1));
+    }
+
+    public String getStatus() {
+        return this.status;
+    }
+
+    public boolean isFinished() {
+        return !NOT_STARTED.equals(this.status) && !RUNNING.equals(this.status);
+    }
+
+    public long getTimestamp() {
+        return this.timestamp;
+    }
+
+    public long getDuration() {
+        return this.duration;
+    }
+
+    public long getEstimatedDuration() {
+        return this.estimatedDuration;
+    }
+
+    /**
+     * @return the time the remote build is expected to be done, or -1 if the remote server gave no estimate
+     */
+    public long getExpectedEnd() {
+        if (this.timestamp <= 0 || this.estimatedDuration < 0) {
+            return -1;
+        }
+        return this.timestamp + this.estimatedDuration;
+    }
+}
@@ -0,0 +1,459 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import hudson.AbortException;
+import hudson.Extension;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.ListBoxModel;
+import hudson.util.NamingThreadFactory;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import jenkins.model.Jenkins;
+
+import org.jenkinsci.plugins.workflow.steps.AbstractStepDescriptorImpl;
+import org.jenkinsci.plugins.workflow.steps.AbstractStepExecutionImpl;
+import org.jenkinsci.plugins.workflow.steps.AbstractStepImpl;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.inject.Inject;
+
+/**
+ * Pipeline step that triggers a remote job, and returns a {@link RemoteBuildHandle} for the remote build.
+ *
+ * The step is asynchronous: it doesn't hold on to a thread of the Pipeline while it waits. The remote job is triggered
+ * from a small pool of threads shared by all steps, after that both the queue item and the remote build are followed by
+ * the {@link RemoteBuildWatcher}, just like for a {@link RemoteBuildConfiguration}. The queue item and then the remote
+ * build are recorded in a {@link RemoteBuildStepAction}, so that the step resumes following them after a restart
+ * instead of triggering the remote job again.
+ */
+public class RemoteBuildStep extends AbstractStepImpl {
+
+    public static final int DEFAULT_POLL_INTERVAL = 10;
+
+    private final String    remoteJenkinsName;
+    private final String    job;
+    private String          token                   = "";
+    private String          parameters              = "";
+    // 0 means "use the default"
+    private int             pollInterval;
+    private boolean         blockBuildUntilComplete = true;
+    private boolean         shouldNotFailBuild;
+    private boolean         enhancedLogging;
+
+    @DataBoundConstructor
+    public RemoteBuildStep(String remoteJenkinsName, String job) {
+        this.remoteJenkinsName = remoteJenkinsName;
+        this.job = job == null ? "" : job.trim();
+    }
+
+    public String getRemoteJenkinsName() {
+        return this.remoteJenkinsName;
+    }
+
+    public String getJob() {
+        return this.job;
+    }
+
+    public String getToken() {
+        return this.token;
+    }
+
+    @DataBoundSetter
+    public void setToken(String token) {
+        this.token = token == null ? "" : token.trim();
+    }
+
+    public String getParameters() {
+        return this.parameters;
+    }
+
+    @DataBoundSetter
+    public void setParameters(String parameters) {
+        this.parameters = parameters == null ? "" : parameters;
+    }
+
+    public int getPollInterval() {
+        return this.pollInterval > 0 ? this.pollInterval : DEFAULT_POLL_INTERVAL;
+    }
+
+    @DataBoundSetter
+    public void setPollInterval(int pollInterval) {
+        this.pollInterval = pollInterval;
+    }
+
+    public boolean getBlockBuildUntilComplete() {
+        return this.blockBuildUntilComplete;
+    }
+
+    @DataBoundSetter
+    public void setBlockBuildUntilComplete(boolean blockBuildUntilComplete) {
+        this.blockBuildUntilComplete = blockBuildUntilComplete;
+    }
+
+    public boolean getShouldNotFailBuild() {
+        return this.shouldNotFailBuild;
+    }
+
+    @DataBoundSetter
+    public void setShouldNotFailBuild(boolean shouldNotFailBuild) {
+        this.shouldNotFailBuild = shouldNotFailBuild;
+    }
+
+    public boolean getEnhancedLogging() {
+        return this.enhancedLogging;
+    }
+
+    @DataBoundSetter
+    public void setEnhancedLogging(boolean enhancedLogging) {
+        this.enhancedLogging = enhancedLogging;
+    }
+
+    /**
+     * Runs the step. Only what is needed to find the remote build again is kept, everything else is worked out anew
+     * after a restart.
+     */
+    public static class Execution extends AbstractStepExecutionImpl {
+
+        private static final long            serialVersionUID = 1L;
+
+        /**
+         * Number of threads that trigger the remote jobs of all steps.
+         */
+        private static final int             THREADS          = Integer.getInteger(RemoteBuildStep.class.getName()
+                                                                      + ".threads", 4);
+
+        // triggers remote jobs, which takes a few calls to the remote server; waiting is left to the RemoteBuildWatcher
+        private static final ExecutorService TRIGGERS         = Executors.newFixedThreadPool(THREADS,
+                                                                      new NamingThreadFactory(new DaemonThreadFactory(),
+                                                                              "RemoteBuildStep"));
+
+        @Inject(optional = true)
+        private transient RemoteBuildStep    step;
+
+        private final String                 id               = UUID.randomUUID().toString();
+        private String                       remoteJenkinsName;
+        private String                       job;
+        private String                       token;
+        private String                       parameters;
+        private int                          pollInterval;
+        private boolean                      blockBuildUntilComplete;
+        private boolean                      shouldNotFailBuild;
+        private boolean                      enhancedLogging;
+
+        private transient volatile Future<?> running;
+
+        @Override
+        public boolean start() throws Exception {
+            this.remoteJenkinsName = this.step.getRemoteJenkinsName();
+            this.job = this.step.getJob();
+            this.token = this.step.getToken();
+            this.parameters = this.step.getParameters();
+            this.pollInterval = this.step.getPollInterval();
+            this.blockBuildUntilComplete = this.step.getBlockBuildUntilComplete();
+            this.shouldNotFailBuild = this.step.getShouldNotFailBuild();
+            this.enhancedLogging = this.step.getEnhancedLogging();
+
+            this.trigger();
+            return false;
+        }
+
+        @Override
+        public void onResume() {
+            super.onResume();
+            try {
+                this.resume(RemoteBuildStepAction.forRun(this.getContext().get(Run.class)));
+            } catch (Exception e) {
+                this.getContext().onFailure(e);
+            }
+        }
+
+        /**
+         * Picks up where the step was at the restart, as far as the action of the run knows.
+         *
+         * @param action
+         *            the action of the run
+         * @throws AbortException
+         *             if the remote job may have been triggered, but there is no way to find out which build it became
+         */
+        void resume(RemoteBuildStepAction action) throws Exception {
+            Integer buildNumber = action.getBuildNumber(this.id);
+            QueuedRemoteBuild queued = action.getQueuedBuild(this.id);
+            if (buildNumber == null) {
+                // the restart came before the remote job was triggered
+                this.trigger();
+            } else if (buildNumber != RemoteBuildStepAction.TRIGGERING) {
+                this.watch(buildNumber);
+            } else if (queued != null) {
+                this.follow(queued);
+            } else {
+                // triggering it again could start a second remote build
+                throw new AbortException("The remote job " + this.job
+                        + " may have been triggered before the restart, but the number of its build is unknown.");
+            }
+        }
+
+        String getId() {
+            return this.id;
+        }
+
+        @Override
+        public void stop(Throwable cause) throws Exception {
+            Future<?> running = this.running;
+            if (running != null) {
+                running.cancel(true);
+            }
+            this.getContext().onFailure(cause);
+        }
+
+        private RemoteBuildConfiguration toConfiguration() throws IOException {
+            return new RemoteBuildConfiguration(this.remoteJenkinsName, this.shouldNotFailBuild, this.job, this.token,
+                    this.parameters, this.enhancedLogging, null, null, false, this.blockBuildUntilComplete,
+                    this.pollInterval);
+        }
+
+        private BuildContext newContext(RemoteBuildConfiguration configuration) throws IOException,
+                InterruptedException {
+            RemoteJenkinsServer remoteServer = configuration.findRemoteHost(this.remoteJenkinsName);
+            if (remoteServer == null) {
+                throw new AbortException("No remote host is defined with the name '" + this.remoteJenkinsName + "'.");
+            }
+            return new BuildContext(this.getContext().get(Run.class), this.getContext().get(TaskListener.class),
+                    remoteServer);
+        }
+
+        void trigger() {
+            this.running = TRIGGERS.submit(new Runnable() {
+                public void run() {
+                    BuildContext context = null;
+                    try {
+                        RemoteBuildConfiguration configuration = toConfiguration();
+                        context = newContext(configuration);
+                        Run<?, ?> run = context.getBuild();
+                        RemoteBuildStepAction action = RemoteBuildStepAction.forRun(run);
+                        RemoteBuildTraceAction.forRun(run).add(context.getTrace());
+
+                        // parameters and tokens are already resolved by Pipeline, there are no macros to replace
+                        List<String> cleanedParams = configuration.getCleanedParameters();
+                        action.record(run, id, RemoteBuildStepAction.TRIGGERING);
+                        QueuedRemoteBuild queued = configuration.queueRemoteBuild(context, job, token, cleanedParams);
+                        if (queued.getQueueItemUrl() != null) {
+                            // from here on a restart can follow the queue item, instead of giving up on the step
+                            action.record(run, id, queued);
+                        }
+                        follow(configuration, context, queued);
+                    } catch (Exception e) {
+                        if (context != null) {
+                            context.getTrace().end();
+                        }
+                        getContext().onFailure(e);
+                    }
+                }
+            });
+        }
+
+        void follow(QueuedRemoteBuild queued) throws IOException, InterruptedException {
+            RemoteBuildConfiguration configuration = this.toConfiguration();
+            BuildContext context = this.newContext(configuration);
+            context.getListener().getLogger().println("Resuming to follow the queue item of " + this.job + " at "
+                    + queued.getQueueItemUrl() + ".");
+            this.follow(configuration, context, queued);
+        }
+
+        /**
+         * Hands the queue item over to the {@link RemoteBuildWatcher}, and goes on to watch the remote build once it
+         * has left the queue.
+         */
+        private void follow(final RemoteBuildConfiguration configuration, final BuildContext context,
+                final QueuedRemoteBuild queued) throws IOException, InterruptedException {
+            if (queued.getQueueItemUrl() == null) {
+                // the remote server didn't say where it queued the build
+                this.identify(configuration, context, queued, -1);
+                return;
+            }
+
+            context.getTrace().begin(RemoteBuildTrace.Phase.QUEUE);
+            ListenableFuture<Integer> buildNumber = configuration.followQueuedBuild(context.getRemoteServer(),
+                    queued.getQueueItemUrl(), context);
+            this.running = buildNumber;
+            Futures.addCallback(buildNumber, new FutureCallback<Integer>() {
+                public void onSuccess(Integer queuedBuildNumber) {
+                    try {
+                        identify(configuration, context, queued, queuedBuildNumber);
+                    } catch (Exception e) {
+                        context.getTrace().end();
+                        getContext().onFailure(e);
+                    }
+                }
+
+                public void onFailure(Throwable t) {
+                    context.getTrace().end();
+                    if (!(t instanceof CancellationException)) {
+                        // when cancelled, the step has been stopped already
+                        getContext().onFailure(t);
+                    }
+                }
+            }, TRIGGERS);
+        }
+
+        /**
+         * Records which build of the remote job was triggered, and starts watching it.
+         *
+         * @param queuedBuildNumber
+         *            the number the queue item handed out, 0 if the remote build was cancelled in the queue, or -1 if
+         *            the queue item could not be followed
+         */
+        private void identify(RemoteBuildConfiguration configuration, BuildContext context, QueuedRemoteBuild queued,
+                int queuedBuildNumber) throws IOException, InterruptedException {
+            Run<?, ?> run = context.getBuild();
+            if (queuedBuildNumber == 0) {
+                // cancelled while in the queue, and not to fail the build
+                context.getTrace().end();
+                RemoteBuildStepAction.forRun(run).record(run, this.id, 0);
+                this.getContext().onSuccess(new RemoteBuildHandle(this.remoteJenkinsName, this.job, 0, null, null));
+                return;
+            }
+
+            // without a queue item, this looks for the remote build among the builds of the remote job
+            int buildNumber = configuration.identifyRemoteBuild(context, this.job, this.token,
+                    configuration.getCleanedParameters(), queued, queuedBuildNumber);
+            RemoteBuildStepAction.forRun(run).record(run, this.id, buildNumber);
+            context.getListener().getLogger().println("This job is build #[" + buildNumber + "] on the remote server.");
+            this.watch(configuration, context, buildNumber);
+        }
+
+        void watch(int buildNumber) throws IOException, InterruptedException {
+            RemoteBuildConfiguration configuration = this.toConfiguration();
+            BuildContext context = this.newContext(configuration);
+            context.getListener().getLogger()
+                    .println("Resuming to watch build #" + buildNumber + " of " + this.job + ".");
+            this.watch(configuration, context, buildNumber);
+        }
+
+        private void watch(final RemoteBuildConfiguration configuration, final BuildContext context,
+                final int buildNumber) throws IOException {
+            final TaskListener listener = context.getListener();
+            RemoteJenkinsServer remoteServer = context.getRemoteServer();
+            String jobURL = configuration.getJobUrl(remoteServer, this.job);
+            final String buildUrl = jobURL + buildNumber + "/";
+
+            if (!this.blockBuildUntilComplete) {
+                listener.getLogger().println("Not waiting for the remote job to complete - fire and forget.");
+                this.getContext().onSuccess(
+                        new RemoteBuildHandle(this.remoteJenkinsName, this.job, buildNumber, buildUrl, null));
+                return;
+            }
+
+            final RemoteBuildTrace trace = context.getTrace();
+            trace.begin(RemoteBuildTrace.Phase.RUN);
+            final RemoteConsoleMirror console;
+            if (this.enhancedLogging) {
+                console = new RemoteConsoleMirror(HttpTransport.forServer(remoteServer), jobURL + buildNumber,
+                        configuration.getAuthorization(remoteServer, context), listener.getLogger(), 0, false);
+            } else {
+                console = null;
+            }
+
+            ListenableFuture<RemoteBuildStatus> status = configuration.watchRemoteBuild(remoteServer, jobURL,
+                    buildNumber, console, context, configuration.getPollIntervalPolicy());
+            this.running = status;
+            Futures.addCallback(status, new FutureCallback<RemoteBuildStatus>() {
+                public void onSuccess(final RemoteBuildStatus buildStatus) {
+                    if (console == null) {
+                        trace.end();
+                        finished(configuration, context, buildNumber, buildUrl, buildStatus);
+                        return;
+                    }
+
+                    trace.countRequests(console.getRequests());
+                    trace.begin(RemoteBuildTrace.Phase.CONSOLE);
+                    final int consoleRequests = console.getRequests();
+                    // the rest of the console output is fetched on the threads of the mirrors, not on one of the step
+                    ListenableFuture<Void> consoleFinished = console.finishLater(pollInterval * 1000L, configuration
+                            .getRetryPolicy(context.getRemoteServer()).getMaxRetries());
+                    running = consoleFinished;
+                    Futures.addCallback(consoleFinished, new FutureCallback<Void>() {
+                        public void onSuccess(Void result) {
+                            trace.countRequests(console.getRequests() - consoleRequests);
+                            trace.end();
+                            finished(configuration, context, buildNumber, buildUrl, buildStatus);
+                        }
+
+                        public void onFailure(Throwable t) {
+                            trace.countRequests(console.getRequests() - consoleRequests);
+                            trace.end();
+                            if (t instanceof CancellationException) {
+                                // the step was stopped while the rest of the console output came in
+                                return;
+                            }
+                            listener.getLogger().println(
+                                    "Unable to fetch the console output of the remote job: " + t.getMessage());
+                            finished(configuration, context, buildNumber, buildUrl, buildStatus);
+                        }
+                    });
+                }
+
+                public void onFailure(Throwable t) {
+                    if (console != null) {
+                        console.stop();
+                    }
+                    trace.end();
+                    if (!(t instanceof CancellationException)) {
+                        // when cancelled, the step has been stopped already
+                        getContext().onFailure(t);
+                    }
+                }
+            }, TRIGGERS);
+        }
+
+        /**
+         * Ends the step with the result of the remote build.
+         */
+        private void finished(RemoteBuildConfiguration configuration, BuildContext context, int buildNumber,
+                String buildUrl, RemoteBuildStatus buildStatus) {
+            configuration.recordTiming(context, buildStatus);
+            String result = buildStatus.getStatus();
+            context.getListener().getLogger().println("Remote build finished with status " + result + ".");
+            if (!"SUCCESS".equals(result) && !this.shouldNotFailBuild) {
+                this.getContext().onFailure(new AbortException("The remote job did not succeed."));
+            } else {
+                this.getContext().onSuccess(
+                        new RemoteBuildHandle(this.remoteJenkinsName, this.job, buildNumber, buildUrl, result));
+            }
+        }
+    }
+
+    @Extension(optional = true)
+    public static class DescriptorImpl extends AbstractStepDescriptorImpl {
+
+        public DescriptorImpl() {
+            super(Execution.class);
+        }
+
+        @Override
+        public String getFunctionName() {
+            return "triggerRemoteJob";
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "Trigger a remote parameterized job";
+        }
+
+        public ListBoxModel doFillRemoteJenkinsNameItems() {
+            return Jenkins.getInstance().getDescriptorByType(RemoteBuildConfiguration.DescriptorImpl.class)
+                    .doFillRemoteJenkinsNameItems();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import hudson.model.InvisibleAction;
+import hudson.model.Run;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Remembers, in the build.xml of a Pipeline run, which remote build each 'triggerRemoteJob' step has triggered.
+ *
+ * It is saved before the step triggers the remote job, as soon as the remote server said where it queued the build,
+ * and again once the number of the remote build is known. That way, after a restart a step goes on following the
+ * queue item or watching the remote build it already triggered, instead of triggering another one.
+ */
+public class RemoteBuildStepAction extends InvisibleAction {
+
+    /**
+     * Number recorded for a step that was about to trigger its remote job, but didn't know which build it became yet.
+     */
+    public static final int            TRIGGERING   = -1;
+
+    // keyed by the id of the step execution
+    private final Map<String, Integer> remoteBuilds = new HashMap<String, Integer>();
+    // the remote builds that were triggered, but whose number is not known yet; null in a build.xml from before
+    private Map<String, QueuedRemoteBuild> queuedBuilds = new HashMap<String, QueuedRemoteBuild>();
+
+    private Object readResolve() {
+        if (this.queuedBuilds == null) {
+            this.queuedBuilds = new HashMap<String, QueuedRemoteBuild>();
+        }
+        return this;
+    }
+
+    /**
+     * @param run
+     *            the Pipeline run
+     * @return the action of the run, added to it if it didn't have one yet
+     */
+    static synchronized RemoteBuildStepAction forRun(Run<?, ?> run) {
+        RemoteBuildStepAction action = run.getAction(RemoteBuildStepAction.class);
+        if (action == null) {
+            action = new RemoteBuildStepAction();
+            run.addAction(action);
+        }
+        return action;
+    }
+
+    /**
+     * @param id
+     *            id of the step execution
+     * @return number of the remote build the step triggered, {@link #TRIGGERING} if it is not known, or null if the
+     *         step hasn't triggered anything yet
+     */
+    public synchronized Integer getBuildNumber(String id) {
+        return this.remoteBuilds.get(id);
+    }
+
+    /**
+     * @param id
+     *            id of the step execution
+     * @return where the remote build of the step was queued, or null if that isn't known (anymore)
+     */
+    public synchronized QueuedRemoteBuild getQueuedBuild(String id) {
+        return this.queuedBuilds.get(id);
+    }
+
+    /**
+     * Records the remote build of a step, and saves the run so that it is still known after a restart.
+     *
+     * @param run
+     *            the Pipeline run this action belongs to
+     * @param id
+     *            id of the step execution
+     * @param buildNumber
+     *            number of the remote build, or {@link #TRIGGERING}
+     * @throws IOException
+     */
+    void record(Run<?, ?> run, String id, int buildNumber) throws IOException {
+        this.put(id, buildNumber);
+        run.save();
+    }
+
+    /**
+     * Records where the remote build of a step was queued, and saves the run so that the step can go on following the
+     * queue item after a restart.
+     *
+     * @param run
+     *            the Pipeline run this action belongs to
+     * @param id
+     *            id of the step execution
+     * @param queued
+     *            where the remote build was queued
+     * @throws IOException
+     */
+    void record(Run<?, ?> run, String id, QueuedRemoteBuild queued) throws IOException {
+        this.put(id, queued);
+        run.save();
+    }
+
+    synchronized void put(String id, int buildNumber) {
+        this.remoteBuilds.put(id, buildNumber);
+        if (buildNumber != TRIGGERING) {
+            this.queuedBuilds.remove(id);
+        }
+    }
+
+    synchronized void put(String id, QueuedRemoteBuild queued) {
+        this.remoteBuilds.put(id, TRIGGERING);
+        this.queuedBuilds.put(id, queued);
+    }
+}
@@ -0,0 +1,80 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import hudson.Extension;
+import hudson.model.AbstractDescribableImpl;
+import hudson.model.Descriptor;
+import hudson.util.ListBoxModel;
+
+import java.net.MalformedURLException;
+
+import jenkins.model.Jenkins;
+
+import org.kohsuke.stapler.DataBoundConstructor;
+
+/**
+ * One remote job triggered by a {@link RemoteBuildFanOut}: the remote server, the job on it and the parameters to
+ * trigger it with.
+ */
+public class RemoteBuildTarget extends AbstractDescribableImpl<RemoteBuildTarget> {
+
+    private final String remoteJenkinsName;
+    private final String job;
+    private final String token;
+    private final String parameters;
+
+    @DataBoundConstructor
+    public RemoteBuildTarget(String remoteJenkinsName, String job, String token, String parameters) {
+        this.remoteJenkinsName = remoteJenkinsName;
+        this.job = job == null ? "" : job.trim();
+        this.token = token == null ? "" : token.trim();
+        this.parameters = parameters == null ? "" : parameters;
+    }
+
+    public String getRemoteJenkinsName() {
+        return this.remoteJenkinsName;
+    }
+
+    public String getJob() {
+        return this.job;
+    }
+
+    public String getToken() {
+        return this.token;
+    }
+
+    public String getParameters() {
+        return this.parameters;
+    }
+
+    /**
+     * @param pollInterval
+     *            poll interval (in seconds) of the fan-out
+     * @param enhancedLogging
+     *            whether to copy the console output of the remote build
+     * @return a step that triggers this target, and waits for it
+     * @throws MalformedURLException
+     */
+    RemoteBuildConfiguration toConfiguration(int pollInterval, boolean enhancedLogging) throws MalformedURLException {
+        // the failure of a single target is up to the fan-out, so it always has to be reported
+        return new RemoteBuildConfiguration(this.remoteJenkinsName, false, this.job, this.token, this.parameters,
+                enhancedLogging, null, null, false, true, pollInterval);
+    }
+
+    @Override
+    public String toString() {
+        return this.job + " on " + this.remoteJenkinsName;
+    }
+
+    @Extension
+    public static class DescriptorImpl extends Descriptor<RemoteBuildTarget> {
+        @Override
+        public String getDisplayName() {
+            return "Remote job";
+        }
+
+        public ListBoxModel doFillRemoteJenkinsNameItems() {
+            return Jenkins.getInstance().getDescriptorByType(RemoteBuildConfiguration.DescriptorImpl.class)
+                    .doFillRemoteJenkinsNameItems();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * How long a remote build waited in the queue of the remote server, and how long it ran, as the remote server tells
+ * it. All times are taken from the clock of the remote server, so they can be compared with each other without
+ * worrying about the clocks of the two servers being apart.
+ */
+@ExportedBean
+public class RemoteBuildTiming {
+
+    private final long inQueueSince;
+    private final long timestamp;
+    private final long duration;
+    private final long estimatedDuration;
+
+    /**
+     * @param inQueueSince
+     *            time the remote build entered the queue, or 0 if unknown
+     * @param timestamp
+     *            time the remote build started, or 0 if unknown
+     * @param duration
+     *            how long the remote build took, or 0 if unknown
+     * @param estimatedDuration
+     *            how long the remote server expected the build to take, or -1 if unknown
+     */
+    public RemoteBuildTiming(long inQueueSince, long timestamp, long duration, long estimatedDuration) {
+        this.inQueueSince = inQueueSince;
+        this.timestamp = timestamp;
+        this.duration = duration;
+        this.estimatedDuration = estimatedDuration;
+    }
+
+    /**
+     * @param inQueueSince
+     *            time the remote build entered the queue, or 0 if unknown
+     * @param status
+     *            the last status of the remote build
+     * @return the timing of the remote build
+     */
+    public static RemoteBuildTiming of(long inQueueSince, RemoteBuildStatus status) {
+        return new RemoteBuildTiming(inQueueSince, status.getTimestamp(), status.getDuration(),
+                status.getEstimatedDuration());
+    }
+
+    @Exported
+    public long getInQueueSince() {
+        return this.inQueueSince;
+    }
+
+    @Exported
+    public long getTimestamp() {
+        return this.timestamp;
+    }
+
+    @Exported
+    public long getDuration() {
+        return this.duration;
+    }
+
+    @Exported
+    public long getEstimatedDuration() {
+        return this.estimatedDuration;
+    }
+
+    /**
+     * @return time (in milliseconds) the remote build waited in the queue before it started, or -1 if unknown
+     */
+    @Exported
+    public long getQueueWait() {
+        if (this.inQueueSince <= 0 || this.timestamp <= 0) {
+            return -1;
+        }
+        return Math.max(0, this.timestamp - this.inQueueSince);
+    }
+
+    /**
+     * @return time (in milliseconds) the remote build ran, or -1 if unknown
+     */
+    @Exported
+    public long getExecutionTime() {
+        return this.duration > 0 ? this.duration : -1;
+    }
+}
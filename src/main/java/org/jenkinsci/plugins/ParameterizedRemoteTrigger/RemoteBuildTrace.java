@@ -0,0 +1,244 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Timeline of one trigger of a remote job: when each phase started and ended, and how many calls to the remote server
+ * it took. Phases follow each other, starting one ends the one before.
+ *
+ * Calls are counted for whatever phase is going on, so a call made on behalf of the build by another thread (i.e.: a
+ * batched poll of the {@link RemoteBuildWatcher}) is counted as well.
+ */
+@ExportedBean
+public class RemoteBuildTrace {
+
+    /**
+     * What the build was doing.
+     */
+    public enum Phase {
+        /** waiting for an earlier build of the remote job to finish, see 'preventRemoteBuildQueue' */
+        PRE_CHECK("Waiting for earlier builds"),
+        /** asking whether the remote job is parameterized and which number its next build gets */
+        JOB_METADATA("Job metadata"),
+        /** the call that triggers the remote build */
+        TRIGGER("Trigger"),
+        /** following the queue item until the remote build has left the queue */
+        QUEUE("Queue wait"),
+        /** looking for the remote build by its parameters, when there was no queue item to follow */
+        IDENTIFY("Identifying the build"),
+        /** waiting for the remote build to finish */
+        RUN("Remote run"),
+        /** fetching the rest of the console output of the remote build */
+        CONSOLE("Console output");
+
+        private final String displayName;
+
+        private Phase(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return this.displayName;
+        }
+    }
+
+    private final String      remoteServer;
+    private String            job;
+    private int               buildNumber;
+    private final List<Span>  spans = new ArrayList<Span>();
+    private Span              current;
+    private long              inQueueSince;
+    private RemoteBuildTiming timing;
+
+    /**
+     * @param remoteServer
+     *            name of the remote server the build talks to
+     */
+    public RemoteBuildTrace(String remoteServer) {
+        this.remoteServer = remoteServer;
+    }
+
+    /**
+     * Ends the current phase, if any, and starts the given one.
+     */
+    public synchronized void begin(Phase phase) {
+        this.end();
+        this.current = new Span(phase, System.currentTimeMillis());
+        this.spans.add(this.current);
+    }
+
+    /**
+     * Ends the current phase, if any.
+     */
+    public synchronized void end() {
+        if (this.current != null) {
+            this.current.end = System.currentTimeMillis();
+            this.current = null;
+        }
+    }
+
+    /**
+     * Counts a call to the remote server for the current phase.
+     */
+    public void countRequest() {
+        this.countRequests(1);
+    }
+
+    /**
+     * Counts calls to the remote server for the current phase, calls made outside of a phase are not counted.
+     */
+    public synchronized void countRequests(int requests) {
+        if (this.current != null) {
+            this.current.requests += requests;
+        }
+    }
+
+    synchronized void setJob(String job) {
+        this.job = job;
+    }
+
+    synchronized void setBuildNumber(int buildNumber) {
+        this.buildNumber = buildNumber;
+    }
+
+    synchronized void setInQueueSince(long inQueueSince) {
+        this.inQueueSince = inQueueSince;
+    }
+
+    synchronized long getInQueueSince() {
+        return this.inQueueSince;
+    }
+
+    synchronized void setTiming(RemoteBuildTiming timing) {
+        this.timing = timing;
+    }
+
+    /**
+     * @return how long the remote build waited in the queue and ran, as the remote server tells it, or null if the
+     *         remote build hasn't finished (or wasn't waited for)
+     */
+    @Exported
+    public synchronized RemoteBuildTiming getTiming() {
+        return this.timing;
+    }
+
+    @Exported
+    public String getRemoteServer() {
+        return this.remoteServer;
+    }
+
+    @Exported
+    public synchronized String getJob() {
+        return this.job;
+    }
+
+    /**
+     * @return number of the remote build, or 0 if it is not known (yet)
+     */
+    @Exported
+    public synchronized int getBuildNumber() {
+        return this.buildNumber;
+    }
+
+    @Exported(inline = true)
+    public synchronized List<Span> getSpans() {
+        return new ArrayList<Span>(this.spans);
+    }
+
+    /**
+     * @return time (in milliseconds since the epoch) the first phase started, or 0 if none did
+     */
+    @Exported
+    public synchronized long getStart() {
+        return this.spans.isEmpty() ? 0 : this.spans.get(0).start;
+    }
+
+    /**
+     * @return time (in milliseconds) from the start of the first phase to the end of the last one, or until now if it
+     *         is still going on
+     */
+    @Exported
+    public synchronized long getDuration() {
+        if (this.spans.isEmpty()) {
+            return 0;
+        }
+        return this.spans.get(this.spans.size() - 1).getEnd() - this.getStart();
+    }
+
+    /**
+     * @return total number of calls made to the remote server
+     */
+    @Exported
+    public synchronized int getRequests() {
+        int requests = 0;
+        for (Span span : this.spans) {
+            requests += span.requests;
+        }
+        return requests;
+    }
+
+    /**
+     * @return time (in milliseconds) spent in the given phase, 0 if the build never went through it
+     */
+    public synchronized long getDuration(Phase phase) {
+        long duration = 0;
+        for (Span span : this.spans) {
+            if (span.phase == phase) {
+                duration += span.getDuration();
+            }
+        }
+        return duration;
+    }
+
+    /**
+     * One phase of the timeline.
+     */
+    @ExportedBean(defaultVisibility = 2)
+    public static class Span {
+        private final Phase phase;
+        private final long  start;
+        private long        end;
+        private int         requests;
+
+        Span(Phase phase, long start) {
+            this.phase = phase;
+            this.start = start;
+        }
+
+        public Phase getPhase() {
+            return this.phase;
+        }
+
+        @Exported(name = "phase")
+        public String getPhaseName() {
+            return this.phase.name();
+        }
+
+        @Exported
+        public long getStart() {
+            return this.start;
+        }
+
+        /**
+         * @return time (in milliseconds since the epoch) the phase ended, or now if it is still going on
+         */
+        @Exported
+        public long getEnd() {
+            return this.end == 0 ? System.currentTimeMillis() : this.end;
+        }
+
+        @Exported
+        public long getDuration() {
+            return this.getEnd() - this.start;
+        }
+
+        @Exported
+        public int getRequests() {
+            return this.requests;
+        }
+    }
+}
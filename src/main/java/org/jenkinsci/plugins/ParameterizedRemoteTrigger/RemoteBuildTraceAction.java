@@ -0,0 +1,61 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import hudson.model.Action;
+import hudson.model.Api;
+import hudson.model.Run;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Shows where the time of a build went that triggered remote jobs: a {@link RemoteBuildTrace} for every remote job it
+ * triggered, in the order they were triggered. The same timelines are available from the remote API of the action
+ * (and of the build), to compare i.e. queue wait against run time across many builds.
+ */
+@ExportedBean
+public class RemoteBuildTraceAction implements Action {
+
+    private final List<RemoteBuildTrace> traces = new ArrayList<RemoteBuildTrace>();
+
+    /**
+     * @param run
+     *            the build that triggers a remote job
+     * @return the action of the build, added to it if it didn't have one yet
+     */
+    static synchronized RemoteBuildTraceAction forRun(Run<?, ?> run) {
+        RemoteBuildTraceAction action = run.getAction(RemoteBuildTraceAction.class);
+        if (action == null) {
+            action = new RemoteBuildTraceAction();
+            run.addAction(action);
+        }
+        return action;
+    }
+
+    synchronized void add(RemoteBuildTrace trace) {
+        this.traces.add(trace);
+    }
+
+    @Exported(inline = true)
+    public synchronized List<RemoteBuildTrace> getTraces() {
+        return new ArrayList<RemoteBuildTrace>(this.traces);
+    }
+
+    public Api getApi() {
+        return new Api(this);
+    }
+
+    public String getIconFileName() {
+        return "clock.png";
+    }
+
+    public String getDisplayName() {
+        return "Remote Build Timeline";
+    }
+
+    public String getUrlName() {
+        return "remoteBuildTrace";
+    }
+}
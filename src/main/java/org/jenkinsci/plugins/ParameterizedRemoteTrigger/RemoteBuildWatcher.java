@@ -0,0 +1,262 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * Waits for remote builds to finish, without tying up a thread per remote build.
+ *
+ * Every remote build that is being waited on is handed to this watcher, which polls all of them from a small, shared
+ * pool of threads. The caller gets a future that completes with the final build status (i.e.: "SUCCESS", "FAILURE",
+ * etc) once the remote build is done. How often each build is polled is up to the {@link PollIntervalPolicy} it was
+ * handed over with.
+ *
+ * Polls that can be batched are handed to the {@link RemotePollCoordinator} of their remote server, so that all the
+ * builds of one remote job are polled with a single call.
+ *
+ * The same threads follow the queue items of remote builds until they leave the queue, see {@link #follow(Poll)}.
+ *
+ * Nothing that runs on these threads may wait: a call to the remote server is made once, and a call that failed is
+ * scheduled again after the delay of its {@link RetryPolicy} instead of being retried on the spot. Likewise, a call
+ * that the {@link RequestGovernor} of the remote server doesn't let through right away is scheduled again for when it
+ * may be. A remote server that
+ * is down or slow to recover would otherwise keep the threads from polling the builds of every other server.
+ */
+public class RemoteBuildWatcher {
+
+    /**
+     * Number of threads used to poll all outstanding remote builds.
+     */
+    private static final int                THREADS  = Integer.getInteger(RemoteBuildWatcher.class.getName()
+                                                             + ".threads", 4);
+
+    private static final RemoteBuildWatcher INSTANCE = new RemoteBuildWatcher();
+
+    private final ScheduledExecutorService  scheduler;
+
+    /**
+     * Asks the remote server for the current status of a single remote build.
+     */
+    public interface StatusCheck {
+        /**
+         * @return the remote server that is being polled, or null if this check can not be batched
+         */
+        RemoteJenkinsServer getRemoteServer();
+
+        /**
+         * @return number of the remote build that is checked
+         */
+        int getBuildNumber();
+
+        /**
+         * Checks that return the same key can share the result of a single {@link #getBatchStatuses(Collection)} call.
+         *
+         * @return the batch key, or null if this check can not be batched
+         */
+        String getBatchKey();
+
+        /**
+         * Fetches the status of the builds of this batch, with a single call. The call is made for every check in the
+         * batch, so it is not logged nor counted with the build of this one.
+         *
+         * @param buildNumbers
+         *            numbers of the remote builds of all the checks in the batch
+         * @return status of each build the remote server listed, keyed by build number; it may leave out the older
+         *         builds of the batch
+         * @throws Exception
+         *             if the call failed, the checks in the batch will then poll on their own
+         */
+        Map<Integer, RemoteBuildStatus> getBatchStatuses(Collection<Integer> buildNumbers) throws Exception;
+
+        /**
+         * @param batchStatuses
+         *            result of {@link #getBatchStatuses(Collection)} of one of the checks in the same batch, it lists
+         *            this build or only builds older than it; or null to call the remote server for this build alone
+         * @return the status of the remote build
+         * @throws HttpTransport.TurnDeferredException
+         *             if the call to the remote server could not be sent yet, it is polled again after the delay it
+         *             tells
+         * @throws IOException
+         *             if the call to the remote server failed, see {@link #onFailure(IOException)}
+         * @throws Exception
+         *             if the status could not be determined, this ends the wait
+         */
+        RemoteBuildStatus getStatus(Map<Integer, RemoteBuildStatus> batchStatuses) throws Exception;
+
+        /**
+         * Called when {@link #getStatus(Map)} failed to call the remote server. The poll is not retried right away, it
+         * is scheduled again after the delay this returns.
+         *
+         * @param failure
+         *            why the call failed
+         * @return milliseconds to wait before polling again, or -1 to give up; the wait then ends with the failure
+         */
+        long onFailure(IOException failure);
+    }
+
+    /**
+     * Asks the remote server about something until there is an answer, i.e.: a queue item until the build left the
+     * queue.
+     */
+    public interface Poll<T> {
+        /**
+         * @return the answer, or null to poll again
+         * @throws HttpTransport.TurnDeferredException
+         *             if the call to the remote server could not be sent yet, it is polled again after the delay it
+         *             tells
+         * @throws Exception
+         *             if there will be no answer, this ends the wait
+         */
+        T poll() throws Exception;
+
+        /**
+         * @return milliseconds to wait until the next poll
+         */
+        long nextInterval();
+    }
+
+    private RemoteBuildWatcher() {
+        this.scheduler = Executors.newScheduledThreadPool(THREADS, new NamingThreadFactory(new DaemonThreadFactory(),
+                "RemoteBuildWatcher"));
+    }
+
+    public static RemoteBuildWatcher get() {
+        return INSTANCE;
+    }
+
+    ScheduledExecutorService getScheduler() {
+        return this.scheduler;
+    }
+
+    /**
+     * Starts watching a remote build. The first poll happens right away, after that the build is polled according to
+     * the given policy until it has finished.
+     *
+     * @param check
+     *            fetches the status of the remote build
+     * @param policy
+     *            decides the time between two polls
+     * @return a future that completes with the final status of the remote build. Cancelling it stops the polling.
+     */
+    public ListenableFuture<RemoteBuildStatus> watch(StatusCheck check, PollIntervalPolicy policy) {
+        Watch watch = new Watch(check, policy);
+        this.scheduler.execute(watch);
+        return watch.result;
+    }
+
+    /**
+     * Starts polling. The first poll happens right away, after that it is repeated until there is an answer.
+     *
+     * @param poll
+     *            asks the remote server
+     * @return a future that completes with the answer. Cancelling it stops the polling.
+     */
+    public <T> ListenableFuture<T> follow(Poll<T> poll) {
+        Follow<T> follow = new Follow<T>(poll);
+        this.scheduler.execute(follow);
+        return follow.result;
+    }
+
+    private class Follow<T> implements Runnable {
+        private final Poll<T>           poll;
+        private final SettableFuture<T> result = SettableFuture.create();
+
+        Follow(Poll<T> poll) {
+            this.poll = poll;
+        }
+
+        public void run() {
+            if (this.result.isDone()) {
+                // cancelled by whoever was waiting for it
+                return;
+            }
+            try {
+                T answer = this.poll.poll();
+                if (answer == null) {
+                    scheduler.schedule(this, this.poll.nextInterval(), TimeUnit.MILLISECONDS);
+                } else {
+                    this.result.set(answer);
+                }
+            } catch (HttpTransport.TurnDeferredException e) {
+                scheduler.schedule(this, e.getDelayMillis(), TimeUnit.MILLISECONDS);
+            } catch (Throwable t) {
+                this.result.setException(t);
+            }
+        }
+    }
+
+    class Watch implements Runnable {
+        private final StatusCheck                       check;
+        private final PollIntervalPolicy                policy;
+        private final SettableFuture<RemoteBuildStatus> result = SettableFuture.create();
+
+        Watch(StatusCheck check, PollIntervalPolicy policy) {
+            this.check = check;
+            this.policy = policy;
+        }
+
+        StatusCheck getCheck() {
+            return this.check;
+        }
+
+        public void run() {
+            if (this.result.isDone()) {
+                // cancelled by whoever was waiting for it
+                return;
+            }
+            String batchKey = this.check.getBatchKey();
+            if (batchKey == null) {
+                this.update(null);
+            } else {
+                RemotePollCoordinator.forServer(this.check.getRemoteServer()).poll(batchKey, this);
+            }
+        }
+
+        /**
+         * Finishes one poll, and schedules the next one if the remote build is still going.
+         *
+         * @param batchStatuses
+         *            statuses fetched for the whole batch, or null to poll this build on its own
+         */
+        void update(Map<Integer, RemoteBuildStatus> batchStatuses) {
+            if (this.result.isDone()) {
+                return;
+            }
+            try {
+                RemoteBuildStatus status = this.check.getStatus(batchStatuses);
+                this.policy.recordPoll();
+                if (status == null || status.getStatus() == null) {
+                    this.result.setException(new IOException("Unable to determine the status of the remote build."));
+                } else if (!status.isFinished()) {
+                    long interval = this.policy.nextInterval(status, System.currentTimeMillis());
+                    scheduler.schedule(this, interval, TimeUnit.MILLISECONDS);
+                } else {
+                    this.result.set(status);
+                }
+            } catch (HttpTransport.TurnDeferredException e) {
+                // it was not the turn of the call, which says nothing about the remote server
+                scheduler.schedule(this, e.getDelayMillis(), TimeUnit.MILLISECONDS);
+            } catch (IOException e) {
+                long delay = this.check.onFailure(e);
+                if (delay < 0) {
+                    this.result.setException(e);
+                } else {
+                    // poll again once the delay is over, rather than waiting for it on this thread
+                    scheduler.schedule(this, delay, TimeUnit.MILLISECONDS);
+                }
+            } catch (Throwable t) {
+                this.result.setException(t);
+            }
+        }
+    }
+}
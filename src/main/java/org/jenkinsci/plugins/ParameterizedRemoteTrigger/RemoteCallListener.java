@@ -0,0 +1,87 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import hudson.ExtensionList;
+import hudson.ExtensionPoint;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jenkins.model.Jenkins;
+
+/**
+ * Is told about every call made to a remote server, i.e.: to feed the numbers into an external metrics registry.
+ *
+ * Implementations are registered with {@link hudson.Extension}. They are called on the thread that made the call, so
+ * they must be quick and must not block; whatever they throw is logged and otherwise ignored.
+ */
+public abstract class RemoteCallListener implements ExtensionPoint {
+
+    private static final Logger LOGGER = Logger.getLogger(RemoteCallListener.class.getName());
+
+    /**
+     * Called when a call to a remote server is done.
+     *
+     * @param server
+     *            the remote server (name of its entry, with its protocol, host and port)
+     * @param endpoint
+     *            what the call was for
+     * @param latencyNanos
+     *            how long it took
+     * @param bytes
+     *            number of bytes of the response that were read
+     * @param failure
+     *            why it failed, or null if it succeeded
+     */
+    public void onCall(String server, RemoteCallMetrics.Endpoint endpoint, long latencyNanos, long bytes,
+            IOException failure) {
+    }
+
+    /**
+     * Called when a failed call to a remote server is about to be tried again.
+     *
+     * @param server
+     *            the remote server (name of its entry, with its protocol, host and port)
+     * @param endpoint
+     *            what the call is for
+     * @param attempt
+     *            number of the attempt that failed
+     */
+    public void onRetry(String server, RemoteCallMetrics.Endpoint endpoint, int attempt) {
+    }
+
+    /**
+     * @return all registered listeners, none if Jenkins is not running
+     */
+    public static List<RemoteCallListener> all() {
+        Jenkins jenkins = Jenkins.getInstance();
+        if (jenkins == null) {
+            return Collections.emptyList();
+        }
+        ExtensionList<RemoteCallListener> listeners = jenkins.getExtensionList(RemoteCallListener.class);
+        return listeners == null ? Collections.<RemoteCallListener> emptyList() : listeners;
+    }
+
+    static void fireCall(String server, RemoteCallMetrics.Endpoint endpoint, long latencyNanos, long bytes,
+            IOException failure) {
+        for (RemoteCallListener listener : all()) {
+            try {
+                listener.onCall(server, endpoint, latencyNanos, bytes, failure);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "RemoteCallListener " + listener + " failed", e);
+            }
+        }
+    }
+
+    static void fireRetry(String server, RemoteCallMetrics.Endpoint endpoint, int attempt) {
+        for (RemoteCallListener listener : all()) {
+            try {
+                listener.onRetry(server, endpoint, attempt);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "RemoteCallListener " + listener + " failed", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.sf.json.JSONObject;
+
+/**
+ * Numbers on the calls made to one remote server: how many, how long they took, how much they read and how many
+ * failed or were retried, per type of call. Every {@link HttpTransport} keeps one, they are shown on the
+ * {@link RemoteCallMetricsLink} page and handed to every {@link RemoteCallListener}.
+ */
+public class RemoteCallMetrics {
+
+    /**
+     * What a call to the remote server is for.
+     */
+    public enum Endpoint {
+        TRIGGER, QUEUE, STATUS, CONSOLE, VALIDATE;
+
+        /**
+         * @param urlString
+         *            the URL that is called
+         * @return what the call is for, going by its URL
+         */
+        public static Endpoint forUrl(String urlString) {
+            String path = urlString;
+            int query = path.indexOf('?');
+            if (query >= 0) {
+                path = path.substring(0, query);
+            }
+            if (path.endsWith("/build") || path.endsWith("/buildWithParameters") || path.contains("/buildByToken/")) {
+                return TRIGGER;
+            } else if (path.contains("/queue/item/")) {
+                return QUEUE;
+            } else if (path.endsWith("/consoleText") || path.endsWith("/logText/progressiveText")) {
+                return CONSOLE;
+            }
+            return STATUS;
+        }
+
+        public String getName() {
+            return this.name().toLowerCase(Locale.ENGLISH);
+        }
+    }
+
+    private final String                               key;
+    private final Map<Endpoint, EndpointMetrics>       endpoints = new EnumMap<Endpoint, EndpointMetrics>(
+                                                                         Endpoint.class);
+    private final AtomicInteger                        inFlight  = new AtomicInteger();
+
+    /**
+     * Upper bounds (in milliseconds) of the buckets for the queue wait and execution time of remote builds: from a
+     * second to six hours.
+     */
+    static final long[]                                BUILD_BOUNDS = { 1000, 5000, 10000, 30000, 60000, 120000,
+            300000, 600000, 1800000, 3600000, 7200000, 21600000 };
+
+    private final LatencyHistogram                     queueWait     = new LatencyHistogram(BUILD_BOUNDS);
+    private final LatencyHistogram                     executionTime = new LatencyHistogram(BUILD_BOUNDS);
+
+    public RemoteCallMetrics(String key) {
+        this.key = key;
+        for (Endpoint endpoint : Endpoint.values()) {
+            this.endpoints.put(endpoint, new EndpointMetrics());
+        }
+    }
+
+    public String getKey() {
+        return this.key;
+    }
+
+    /**
+     * @param endpoint
+     *            what the calls are for
+     * @return the numbers on those calls
+     */
+    public EndpointMetrics get(Endpoint endpoint) {
+        return this.endpoints.get(endpoint);
+    }
+
+    /**
+     * @return number of calls that are being made right now
+     */
+    public int getInFlight() {
+        return this.inFlight.get();
+    }
+
+    /**
+     * @return how long the remote builds that were waited for sat in the queue of the remote server
+     */
+    public LatencyHistogram getQueueWait() {
+        return this.queueWait;
+    }
+
+    /**
+     * @return how long the remote builds that were waited for ran on the remote server
+     */
+    public LatencyHistogram getExecutionTime() {
+        return this.executionTime;
+    }
+
+    /**
+     * Called when a remote build that was waited for has finished.
+     *
+     * @param timing
+     *            how long it waited in the queue and ran, as far as known
+     */
+    void onRemoteBuild(RemoteBuildTiming timing) {
+        if (timing.getQueueWait() >= 0) {
+            this.queueWait.record(TimeUnit.MILLISECONDS.toNanos(timing.getQueueWait()));
+        }
+        if (timing.getExecutionTime() >= 0) {
+            this.executionTime.record(TimeUnit.MILLISECONDS.toNanos(timing.getExecutionTime()));
+        }
+    }
+
+    /**
+     * Called when a call is sent.
+     */
+    void onStart() {
+        this.inFlight.incrementAndGet();
+    }
+
+    /**
+     * Called when a call is done, whether or not it succeeded.
+     *
+     * @param endpoint
+     *            what the call was for
+     * @param latencyNanos
+     *            how long it took
+     * @param bytes
+     *            number of bytes of the response that were read
+     * @param failed
+     *            whether it failed
+     */
+    void onDone(Endpoint endpoint, long latencyNanos, long bytes, boolean failed) {
+        this.inFlight.decrementAndGet();
+        EndpointMetrics metrics = this.endpoints.get(endpoint);
+        metrics.requests.incrementAndGet();
+        metrics.bytes.addAndGet(bytes);
+        if (failed) {
+            metrics.errors.incrementAndGet();
+        }
+        metrics.latency.record(latencyNanos);
+    }
+
+    /**
+     * Called when a failed call is about to be tried again.
+     */
+    void onRetry(Endpoint endpoint) {
+        this.endpoints.get(endpoint).retries.incrementAndGet();
+    }
+
+    public JSONObject toJSON() {
+        JSONObject json = new JSONObject();
+        json.put("inFlight", this.getInFlight());
+        JSONObject endpoints = new JSONObject();
+        for (Map.Entry<Endpoint, EndpointMetrics> entry : this.endpoints.entrySet()) {
+            endpoints.put(entry.getKey().getName(), entry.getValue().toJSON());
+        }
+        json.put("endpoints", endpoints);
+
+        JSONObject builds = new JSONObject();
+        builds.put("queueWait", this.queueWait.toJSON());
+        builds.put("executionTime", this.executionTime.toJSON());
+        json.put("builds", builds);
+        return json;
+    }
+
+    /**
+     * Numbers on one type of call.
+     */
+    public static class EndpointMetrics {
+        private final AtomicLong       requests = new AtomicLong();
+        private final AtomicLong       errors   = new AtomicLong();
+        private final AtomicLong       retries  = new AtomicLong();
+        private final AtomicLong       bytes    = new AtomicLong();
+        private final LatencyHistogram latency  = new LatencyHistogram();
+
+        public long getRequests() {
+            return this.requests.get();
+        }
+
+        public long getErrors() {
+            return this.errors.get();
+        }
+
+        public long getRetries() {
+            return this.retries.get();
+        }
+
+        public long getBytes() {
+            return this.bytes.get();
+        }
+
+        public LatencyHistogram getLatency() {
+            return this.latency;
+        }
+
+        public JSONObject toJSON() {
+            JSONObject json = new JSONObject();
+            json.put("requests", this.getRequests());
+            json.put("errors", this.getErrors());
+            json.put("retries", this.getRetries());
+            json.put("bytes", this.getBytes());
+            json.put("latency", this.latency.toJSON());
+            return json;
+        }
+    }
+}
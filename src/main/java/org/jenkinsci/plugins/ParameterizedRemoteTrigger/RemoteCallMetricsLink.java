@@ -0,0 +1,101 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import hudson.Extension;
+import hudson.model.ManagementLink;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import jenkins.model.Jenkins;
+import net.sf.json.JSONObject;
+
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+/**
+ * "Manage Jenkins" page that shows the {@link RemoteCallMetrics} of every remote server that has been called since
+ * Jenkins started. The same numbers are served as JSON from <code>json</code> below the page, for scripts and
+ * dashboards; to get them into a metrics registry, implement a {@link RemoteCallListener}.
+ */
+@Extension
+public class RemoteCallMetricsLink extends ManagementLink {
+
+    @Override
+    public String getIconFileName() {
+        return "monitor.png";
+    }
+
+    public String getDisplayName() {
+        return "Remote Trigger Metrics";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Latency, traffic, errors and retries of the calls made to remote Jenkins servers.";
+    }
+
+    @Override
+    public String getUrlName() {
+        return "remote-trigger-metrics";
+    }
+
+    /**
+     * @return the transports of all remote servers that have been called
+     */
+    public List<HttpTransport> getTransports() {
+        return HttpTransport.all();
+    }
+
+    /**
+     * @return the types of calls, in the order they are shown
+     */
+    public RemoteCallMetrics.Endpoint[] getEndpoints() {
+        return RemoteCallMetrics.Endpoint.values();
+    }
+
+    public void doJson(StaplerRequest req, StaplerResponse rsp) throws IOException {
+        Jenkins.getInstance().checkPermission(Jenkins.ADMINISTER);
+
+        rsp.setContentType("application/json;charset=UTF-8");
+        rsp.getWriter().print(toJSON(this.getTransports()).toString(2));
+    }
+
+    static JSONObject toJSON(List<HttpTransport> transports) {
+        List<JSONObject> servers = new ArrayList<JSONObject>();
+        for (HttpTransport transport : transports) {
+            JSONObject server = transport.getMetrics().toJSON();
+            server.put("server", transport.getKey());
+
+            JSONObject pool = new JSONObject();
+            pool.put("leased", transport.getLeasedConnections());
+            pool.put("idle", transport.getIdleConnections());
+            pool.put("hits", transport.getPoolHits());
+            pool.put("misses", transport.getPoolMisses());
+            server.put("pool", pool);
+
+            RequestGovernor governor = transport.getGovernor();
+            JSONObject throttle = new JSONObject();
+            throttle.put("queueDepth", governor.getQueueDepth());
+            throttle.put("delayedRequests", governor.getDelayedRequests());
+            throttle.put("maxWaitMillis", governor.getMaxWaitMillis());
+            throttle.put("timedOutRequests", governor.getTimedOutRequests());
+            throttle.put("deferredRequests", governor.getDeferredRequests());
+            server.put("throttle", throttle);
+
+            server.put("circuit", transport.getCircuitBreaker().getState().name());
+
+            JSONObject timeouts = new JSONObject();
+            timeouts.put("connect", transport.getConnectTimeouts());
+            timeouts.put("read", transport.getReadTimeouts());
+            timeouts.put("deadline", transport.getDeadlinesExceeded());
+            timeouts.put("pool", transport.getPoolTimeouts());
+            server.put("timeouts", timeouts);
+
+            servers.add(server);
+        }
+        JSONObject json = new JSONObject();
+        json.put("servers", servers);
+        return json;
+    }
+}
@@ -0,0 +1,367 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.ResponseHandler;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * Copies the console output of a remote build into the log of the local build, while the remote build is running.
+ *
+ * Each call to {@link #poll()} fetches whatever the remote build has logged since the previous call, using the
+ * progressive text API of the remote server ('logText/progressiveText?start=offset'). The remote server answers with
+ * the offset to continue from ('X-Text-Size') and tells whether more output is coming ('X-More-Data'). The output is
+ * copied to the local log as it comes in, one buffer at a time, so it is never held in memory as a whole.
+ *
+ * The amount of output can be limited, either to the start of the log or to its end (tail). The tail is kept in a
+ * buffer of the size of the limit, and is only written once the remote build has finished.
+ *
+ * Once {@link #start(long)}ed, the output is fetched on a small pool of threads shared by all mirrors, apart from the
+ * threads of the {@link RemoteBuildWatcher}: a large or slow console output doesn't hold up the status polls.
+ */
+public class RemoteConsoleMirror {
+
+    private static final int                      BUFFER_SIZE = 8192;
+
+    /**
+     * Number of threads used to copy the console output of all remote builds.
+     */
+    private static final int                      THREADS     = Integer.getInteger(RemoteConsoleMirror.class.getName()
+                                                                      + ".threads", 2);
+
+    private static final ScheduledExecutorService MIRRORS     = Executors.newScheduledThreadPool(THREADS,
+                                                                      new NamingThreadFactory(new DaemonThreadFactory(),
+                                                                              "RemoteConsoleMirror"));
+
+    private final HttpTransport                   transport;
+    private final String                          progressiveTextUrl;
+    private final String                          authorization;
+    private final PrintStream                     logger;
+    private final long                            limit;
+    private final boolean                         tail;
+
+    private final byte[]                          buffer      = new byte[BUFFER_SIZE];
+    private final TailBuffer                      tailBuffer;
+
+    private long                                  offset      = 0;
+    private long                                  written     = 0;
+    private int                                   requests    = 0;
+    private boolean                               moreData    = true;
+    private boolean                               truncated   = false;
+    private boolean                               started     = false;
+    private int                                   lastByte    = '\n';
+    // the periodic polls, null if they haven't been started
+    private ScheduledFuture<?>                    polling;
+
+    /**
+     * @param transport
+     *            transport of the remote server the build is running on
+     * @param buildUrl
+     *            URL of the remote build, with or without a trailing slash
+     * @param authorization
+     *            value of the 'Authorization' header, or null if the call is anonymous
+     * @param logger
+     *            log of the local build
+     * @param limit
+     *            most bytes of output to copy, or 0 to copy everything
+     * @param tail
+     *            true to copy the last bytes of the output rather than the first ones (only if there is a limit)
+     */
+    public RemoteConsoleMirror(HttpTransport transport, String buildUrl, String authorization, PrintStream logger,
+            long limit, boolean tail) {
+        this.transport = transport;
+        this.progressiveTextUrl = buildUrl + (buildUrl.endsWith("/") ? "" : "/") + "logText/progressiveText?start=";
+        this.authorization = authorization;
+        this.logger = logger;
+        this.limit = Math.max(0, limit);
+        this.tail = tail && this.limit > 0;
+        this.tailBuffer = this.tail ? new TailBuffer((int) Math.min(Integer.MAX_VALUE, this.limit)) : null;
+    }
+
+    /**
+     * Fetches the output the remote build has logged since the last call.
+     *
+     * @return the number of new bytes of output
+     * @throws IOException
+     *             if the output could not be fetched, the next call starts from the same offset
+     */
+    public synchronized long poll() throws IOException {
+        if (!this.moreData || (this.truncated && !this.tail)) {
+            return 0;
+        }
+
+        this.requests++;
+        final String url = this.progressiveTextUrl + this.offset;
+        return this.transport.execute("GET", url, this.authorization, new ResponseHandler<Long>() {
+            public Long handleResponse(HttpResponse response) throws IOException {
+                HttpTransport.checkResponseCode(response, url);
+                if (response.getStatusLine().getStatusCode() >= 400) {
+                    // the remote build is gone, there is nothing (more) to fetch
+                    moreData = false;
+                    return 0L;
+                }
+
+                long received = 0;
+                HttpEntity entity = response.getEntity();
+                if (entity != null) {
+                    InputStream content = entity.getContent();
+                    try {
+                        int read;
+                        while ((read = content.read(buffer)) != -1) {
+                            write(buffer, read);
+                            received += read;
+                        }
+                    } finally {
+                        content.close();
+                    }
+                }
+
+                Header textSize = response.getFirstHeader("X-Text-Size");
+                offset = textSize == null ? offset + received : Long.parseLong(textSize.getValue().trim());
+                Header more = response.getFirstHeader("X-More-Data");
+                moreData = more != null && Boolean.parseBoolean(more.getValue().trim());
+                return received;
+            }
+        });
+    }
+
+    /**
+     * Starts fetching the output every so often, while the remote build is running. It does nothing if the polls have
+     * been started already.
+     *
+     * @param interval
+     *            time (in milliseconds) between two polls
+     */
+    public synchronized void start(long interval) {
+        if (this.polling != null) {
+            return;
+        }
+        this.polling = MIRRORS.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                if (!isMoreData()) {
+                    stop();
+                    return;
+                }
+                try {
+                    poll();
+                } catch (IOException e) {
+                    logger.println("Unable to fetch the console output of the remote job, will try again: "
+                            + e.getMessage());
+                }
+            }
+        }, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the polls started by {@link #start(long)}, i.e.: because the remote build is no longer being watched.
+     */
+    public synchronized void stop() {
+        if (this.polling != null) {
+            this.polling.cancel(false);
+        }
+    }
+
+    /**
+     * Fetches the rest of the output, once the remote build has finished. The remote server may still be writing the
+     * last lines of the log for a short while after the build is done.
+     *
+     * @param pause
+     *            time to wait (in milliseconds) before asking again when the remote server has no new output yet
+     * @param attempts
+     *            how many times to ask again when there is no new output, before giving up
+     * @throws IOException
+     *             if the output could not be fetched
+     * @throws InterruptedException
+     *             if the local build was aborted
+     */
+    public void finish(long pause, int attempts) throws IOException, InterruptedException {
+        ListenableFuture<Void> finished = this.finishLater(pause, attempts);
+        try {
+            finished.get();
+        } catch (InterruptedException e) {
+            finished.cancel(false);
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Same as above, but on the threads of the mirrors: it doesn't wait in between the attempts.
+     *
+     * @return completes once the output has been copied. Cancelling it stops fetching the output.
+     */
+    public ListenableFuture<Void> finishLater(final long pause, final int attempts) {
+        this.stop();
+        final SettableFuture<Void> finished = SettableFuture.create();
+        MIRRORS.execute(new Runnable() {
+            private int idle = 0;
+
+            public void run() {
+                if (finished.isDone()) {
+                    // cancelled by whoever was waiting for it
+                    return;
+                }
+                try {
+                    while (isMoreData() && this.idle < attempts) {
+                        if (poll() > 0) {
+                            this.idle = 0;
+                        } else if (isMoreData()) {
+                            this.idle++;
+                            MIRRORS.schedule(this, pause, TimeUnit.MILLISECONDS);
+                            return;
+                        }
+                    }
+                    flush();
+                    finished.set(null);
+                } catch (Throwable t) {
+                    finished.setException(t);
+                }
+            }
+        });
+        return finished;
+    }
+
+    private void write(byte[] bytes, int length) {
+        if (this.tail) {
+            this.tailBuffer.write(bytes, length);
+            return;
+        }
+        int allowed = length;
+        if (this.limit > 0) {
+            allowed = (int) Math.min(length, Math.max(0, this.limit - this.written));
+        }
+        if (allowed > 0) {
+            this.start();
+            this.logger.write(bytes, 0, allowed);
+            this.written += allowed;
+            this.lastByte = bytes[allowed - 1];
+        }
+        if (allowed < length && !this.truncated) {
+            this.truncated = true;
+            this.endLine();
+            this.logger.println("[console output of remote job truncated after " + this.limit / 1024 + " KB]");
+        }
+    }
+
+    /**
+     * Writes the tail of the output, if that is what was asked for, and closes the output off.
+     */
+    private synchronized void flush() {
+        this.start();
+        if (this.tail) {
+            if (this.tailBuffer.getDropped() > 0) {
+                this.logger.println("[console output of remote job cut down to the last " + this.limit / 1024
+                        + " KB]");
+            }
+            this.tailBuffer.writeTo(this.logger);
+            this.written = this.tailBuffer.getSize();
+            this.lastByte = this.tailBuffer.getLastByte();
+        }
+        this.endLine();
+        this.logger.println("--------------------------------------------------------------------------------");
+    }
+
+    private void start() {
+        if (!this.started) {
+            this.started = true;
+            this.logger.println();
+            this.logger.println("Console output of remote job:");
+            this.logger.println("--------------------------------------------------------------------------------");
+        }
+    }
+
+    private void endLine() {
+        if (this.lastByte != '\n') {
+            this.logger.println();
+            this.lastByte = '\n';
+        }
+    }
+
+    public synchronized boolean isMoreData() {
+        return this.moreData && !(this.truncated && !this.tail);
+    }
+
+    /**
+     * @return number of calls made to fetch the output so far
+     */
+    public synchronized int getRequests() {
+        return this.requests;
+    }
+
+    /**
+     * @return number of bytes of output copied to the local log so far
+     */
+    public synchronized long getWritten() {
+        return this.written;
+    }
+
+    /**
+     * Ring buffer that keeps the last bytes written to it.
+     */
+    static class TailBuffer {
+        private final byte[] bytes;
+        private int          start   = 0;
+        private int          size    = 0;
+        private long         dropped = 0;
+
+        TailBuffer(int capacity) {
+            this.bytes = new byte[capacity];
+        }
+
+        void write(byte[] source, int length) {
+            int capacity = this.bytes.length;
+            // only the end of the source fits
+            int from = Math.max(0, length - capacity);
+            int count = length - from;
+
+            // make room by dropping the oldest bytes
+            int overflow = Math.max(0, this.size + count - capacity);
+            this.start = (this.start + overflow) % capacity;
+            this.size -= overflow;
+            this.dropped += from + overflow;
+
+            int end = (this.start + this.size) % capacity;
+            int first = Math.min(count, capacity - end);
+            System.arraycopy(source, from, this.bytes, end, first);
+            System.arraycopy(source, from + first, this.bytes, 0, count - first);
+            this.size += count;
+        }
+
+        void writeTo(PrintStream out) {
+            int first = Math.min(this.size, this.bytes.length - this.start);
+            out.write(this.bytes, this.start, first);
+            out.write(this.bytes, 0, this.size - first);
+        }
+
+        int getSize() {
+            return this.size;
+        }
+
+        long getDropped() {
+            return this.dropped;
+        }
+
+        int getLastByte() {
+            return this.size == 0 ? '\n' : this.bytes[(this.start + this.size - 1) % this.bytes.length];
+        }
+    }
+}
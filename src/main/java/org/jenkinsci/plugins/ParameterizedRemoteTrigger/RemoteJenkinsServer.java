@@ -1,7 +1,7 @@
 package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
 
-import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.net.URL;
 import java.util.ArrayList;
@@ -9,7 +9,11 @@ import java.util.List;
 
 import net.sf.json.JSONObject;
 
+import org.apache.http.HttpResponse;
+import org.apache.http.client.ResponseHandler;
+
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.QueryParameter;
 
 import hudson.Extension;
@@ -27,6 +31,13 @@ import hudson.util.ListBoxModel;
  */
 public class RemoteJenkinsServer extends AbstractDescribableImpl<RemoteJenkinsServer> {
 
+    public static final int       DEFAULT_MAX_CONNECTIONS         = 20;
+    public static final int       DEFAULT_CONNECTION_IDLE_TIMEOUT = 60;
+    public static final int       DEFAULT_JOB_METADATA_TTL        = 60;
+    public static final int       DEFAULT_CONNECT_TIMEOUT         = 5;
+    public static final int       DEFAULT_READ_TIMEOUT            = 60;
+    public static final int       DEFAULT_REQUEST_DEADLINE        = 300;
+
     private final URL             address;
     private final String          displayName;
     private final boolean         hasBuildTokenRootSupport;
@@ -35,6 +46,24 @@ public class RemoteJenkinsServer extends AbstractDescribableImpl<RemoteJenkinsSe
 
     private CopyOnWriteList<Auth> auth = new CopyOnWriteList<Auth>();
 
+    // connection pool settings, a value of 0 means "use the default"
+    private int                   maxConnections;
+    private int                   connectionIdleTimeout;
+    // requests in flight at the same time and requests per second, a value of 0 means "no limit"
+    private int                   maxConcurrentRequests;
+    private int                   maxRequestsPerSecond;
+    // timeouts of a single request (in seconds), a value of 0 means "use the default"
+    private int                   connectTimeout;
+    private int                   readTimeout;
+    private int                   requestDeadline;
+    // retries of a failed call and the delays between them (in seconds), a value of 0 means "use the default"
+    private int                   connectionRetryLimit;
+    private int                   retryInitialDelay;
+    private int                   retryMaxDelay;
+    private int                   retryDeadline;
+    // seconds the parameter definitions of a remote job are remembered, 0 means "use the default"
+    private int                   jobMetadataTtl;
+
     @DataBoundConstructor
     public RemoteJenkinsServer(String address, String displayName, boolean hasBuildTokenRootSupport, JSONObject auth)
             throws MalformedURLException {
@@ -78,6 +107,158 @@ public class RemoteJenkinsServer extends AbstractDescribableImpl<RemoteJenkinsSe
         return this.hasBuildTokenRootSupport;
     }
 
+    /**
+     * @return the maximum number of connections that may be open to this server at the same time
+     */
+    public int getMaxConnections() {
+        return this.maxConnections > 0 ? this.maxConnections : DEFAULT_MAX_CONNECTIONS;
+    }
+
+    @DataBoundSetter
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    /**
+     * @return the number of seconds an idle connection to this server is kept alive
+     */
+    public int getConnectionIdleTimeout() {
+        return this.connectionIdleTimeout > 0 ? this.connectionIdleTimeout : DEFAULT_CONNECTION_IDLE_TIMEOUT;
+    }
+
+    @DataBoundSetter
+    public void setConnectionIdleTimeout(int connectionIdleTimeout) {
+        this.connectionIdleTimeout = connectionIdleTimeout;
+    }
+
+    /**
+     * @return the maximum number of requests that may be sent to this server at the same time, or 0 for no limit
+     */
+    public int getMaxConcurrentRequests() {
+        return Math.max(0, this.maxConcurrentRequests);
+    }
+
+    @DataBoundSetter
+    public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
+    }
+
+    /**
+     * @return the maximum number of requests that may be sent to this server per second, or 0 for no limit
+     */
+    public int getMaxRequestsPerSecond() {
+        return Math.max(0, this.maxRequestsPerSecond);
+    }
+
+    @DataBoundSetter
+    public void setMaxRequestsPerSecond(int maxRequestsPerSecond) {
+        this.maxRequestsPerSecond = maxRequestsPerSecond;
+    }
+
+    /**
+     * @return the number of seconds to wait for a connection to this server to be open
+     */
+    public int getConnectTimeout() {
+        return this.connectTimeout > 0 ? this.connectTimeout : DEFAULT_CONNECT_TIMEOUT;
+    }
+
+    @DataBoundSetter
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    /**
+     * @return the number of seconds to wait for this server to send the next data of a response
+     */
+    public int getReadTimeout() {
+        return this.readTimeout > 0 ? this.readTimeout : DEFAULT_READ_TIMEOUT;
+    }
+
+    @DataBoundSetter
+    public void setReadTimeout(int readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * @return the number of seconds after which a request to this server is aborted, however busy it still is
+     */
+    public int getRequestDeadline() {
+        return this.requestDeadline > 0 ? this.requestDeadline : DEFAULT_REQUEST_DEADLINE;
+    }
+
+    @DataBoundSetter
+    public void setRequestDeadline(int requestDeadline) {
+        this.requestDeadline = requestDeadline;
+    }
+
+    /**
+     * @return the timeouts of a request to this server
+     */
+    public HttpTransport.Timeouts getTimeouts() {
+        return new HttpTransport.Timeouts(this.getConnectTimeout() * 1000, this.getReadTimeout() * 1000,
+                this.getRequestDeadline() * 1000L);
+    }
+
+    /**
+     * @return the maximum number of times a failed call to this server is retried
+     */
+    public int getConnectionRetryLimit() {
+        return this.connectionRetryLimit > 0 ? this.connectionRetryLimit : RetryPolicy.DEFAULT_MAX_RETRIES;
+    }
+
+    @DataBoundSetter
+    public void setConnectionRetryLimit(int connectionRetryLimit) {
+        this.connectionRetryLimit = connectionRetryLimit;
+    }
+
+    /**
+     * @return the number of seconds to wait before the first retry, every next retry waits twice as long
+     */
+    public int getRetryInitialDelay() {
+        return this.retryInitialDelay > 0 ? this.retryInitialDelay : RetryPolicy.DEFAULT_INITIAL_DELAY;
+    }
+
+    @DataBoundSetter
+    public void setRetryInitialDelay(int retryInitialDelay) {
+        this.retryInitialDelay = retryInitialDelay;
+    }
+
+    /**
+     * @return the longest number of seconds to wait between two retries
+     */
+    public int getRetryMaxDelay() {
+        return this.retryMaxDelay > 0 ? this.retryMaxDelay : RetryPolicy.DEFAULT_MAX_DELAY;
+    }
+
+    @DataBoundSetter
+    public void setRetryMaxDelay(int retryMaxDelay) {
+        this.retryMaxDelay = retryMaxDelay;
+    }
+
+    /**
+     * @return the number of seconds after the first attempt of a call from which it is not retried anymore
+     */
+    public int getRetryDeadline() {
+        return this.retryDeadline > 0 ? this.retryDeadline : RetryPolicy.DEFAULT_DEADLINE;
+    }
+
+    @DataBoundSetter
+    public void setRetryDeadline(int retryDeadline) {
+        this.retryDeadline = retryDeadline;
+    }
+
+    /**
+     * @return the number of seconds the parameter definitions of a job on this server are remembered
+     */
+    public int getJobMetadataTtl() {
+        return this.jobMetadataTtl > 0 ? this.jobMetadataTtl : DEFAULT_JOB_METADATA_TTL;
+    }
+
+    @DataBoundSetter
+    public void setJobMetadataTtl(int jobMetadataTtl) {
+        this.jobMetadataTtl = jobMetadataTtl;
+    }
+
     @Override
     public DescriptorImpl getDescriptor() {
         return (DescriptorImpl) super.getDescriptor();
@@ -120,9 +301,14 @@ public class RemoteJenkinsServer extends AbstractDescribableImpl<RemoteJenkinsSe
          * 
          * @param address
          *            Remote address to be validated
+         * @param connectTimeout
+         *            connect timeout (in seconds) entered for the remote server, 0 for the default
+         * @param readTimeout
+         *            read timeout (in seconds) entered for the remote server, 0 for the default
          * @return FormValidation object
          */
-        public FormValidation doValidateAddress(@QueryParameter String address) {
+        public FormValidation doValidateAddress(@QueryParameter String address, @QueryParameter int connectTimeout,
+                @QueryParameter int readTimeout) {
 
             URL host = null;
 
@@ -139,11 +325,20 @@ public class RemoteJenkinsServer extends AbstractDescribableImpl<RemoteJenkinsSe
                 return FormValidation.error("Malformed address (" + address + "), please double-check it.");
             }
 
-            // check that the host is reachable
+            // check that the host is reachable, without keeping the page waiting for longer than a request may take;
+            // the address may be a typo that is never saved, so it doesn't get a transport that is kept around
+            int connectMillis = (connectTimeout > 0 ? connectTimeout : DEFAULT_CONNECT_TIMEOUT) * 1000;
+            int readMillis = (readTimeout > 0 ? readTimeout : DEFAULT_READ_TIMEOUT) * 1000;
             try {
-                HttpURLConnection connection = (HttpURLConnection) host.openConnection();
-                connection.setConnectTimeout(5000);
-                connection.connect();
+                HttpTransport.executeOnce(host, "GET", address, null, new ResponseHandler<Void>() {
+                    public Void handleResponse(HttpResponse response) {
+                        // any response at all means we could connect
+                        return null;
+                    }
+                }, new HttpTransport.Timeouts(connectMillis, readMillis, connectMillis + readMillis),
+                        RemoteCallMetrics.Endpoint.VALIDATE);
+            } catch (SocketTimeoutException e) {
+                return FormValidation.warning("Address looks good, but it did not answer in time: " + e.getMessage());
             } catch (Exception e) {
                 return FormValidation.warning("Address looks good, but we were not able to connect to it");
             }
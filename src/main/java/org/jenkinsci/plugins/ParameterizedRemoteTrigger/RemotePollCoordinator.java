@@ -0,0 +1,209 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Merges the status polls of all the remote builds that are being waited on from one remote server.
+ *
+ * Polls that come in within a short window of each other, and share a batch key (i.e.: the same remote job, called
+ * with the same credentials), are resolved with a single call to the remote server. The statuses are then fanned out
+ * to every build in the batch. That way the load on the remote server grows with the number of remote jobs being
+ * watched, not with the number of local builds watching them.
+ *
+ * A build the batch doesn't tell about, because the call failed or the build is too old to be listed, is polled on its
+ * own, as a task of its own on the threads of the {@link RemoteBuildWatcher}.
+ */
+public class RemotePollCoordinator {
+
+    private static final Logger                                       LOGGER       = Logger.getLogger(RemotePollCoordinator.class.getName());
+
+    /**
+     * How long (in milliseconds) the first poll of a batch waits for others to join it.
+     */
+    private static final long                                         BATCH_WINDOW = Long.getLong(RemotePollCoordinator.class.getName()
+                                                                                           + ".batchWindow", 250);
+
+    /**
+     * Number of builds the remote job may have started after the newest one of a batch, that are listed as well.
+     */
+    private static final int                                          LIST_MARGIN  = Integer.getInteger(RemotePollCoordinator.class.getName()
+                                                                                           + ".listMargin", 10);
+
+    private static final ConcurrentMap<String, RemotePollCoordinator> COORDINATORS = new ConcurrentHashMap<String, RemotePollCoordinator>();
+
+    private final Map<String, List<RemoteBuildWatcher.Watch>>        pending      = new HashMap<String, List<RemoteBuildWatcher.Watch>>();
+
+    // number of calls made to the remote server, and the number of polls they answered
+    private long                                                      batches;
+    private long                                                      polls;
+
+    /**
+     * @param remoteServer
+     *            the remote server being polled
+     * @return the coordinator shared by every build that polls that server
+     */
+    public static RemotePollCoordinator forServer(RemoteJenkinsServer remoteServer) {
+        // polls go through the transport of the server entry, so they are batched per entry as well
+        String key = HttpTransport.getKey(remoteServer);
+        RemotePollCoordinator coordinator = COORDINATORS.get(key);
+
+        if (coordinator == null) {
+            RemotePollCoordinator newCoordinator = new RemotePollCoordinator();
+            coordinator = COORDINATORS.putIfAbsent(key, newCoordinator);
+            if (coordinator == null) {
+                coordinator = newCoordinator;
+            }
+        }
+        return coordinator;
+    }
+
+    /**
+     * Drops the coordinators that no configured remote server entry uses anymore, along with their numbers. Batches
+     * that are about to be flushed still are; a coordinator is created again if it is needed after all.
+     *
+     * @param remoteServers
+     *            the remote server entries that are configured
+     */
+    public static void retain(Collection<RemoteJenkinsServer> remoteServers) {
+        Set<String> keys = new HashSet<String>();
+        for (RemoteJenkinsServer remoteServer : remoteServers) {
+            keys.add(HttpTransport.getKey(remoteServer));
+        }
+        COORDINATORS.keySet().retainAll(keys);
+    }
+
+    /**
+     * Adds a poll to its batch. The first poll of a batch schedules the call to the remote server.
+     *
+     * @param batchKey
+     *            key of the batch to join
+     * @param watch
+     *            the watch that needs a status
+     */
+    void poll(final String batchKey, RemoteBuildWatcher.Watch watch) {
+        synchronized (this.pending) {
+            List<RemoteBuildWatcher.Watch> batch = this.pending.get(batchKey);
+            if (batch == null) {
+                batch = new ArrayList<RemoteBuildWatcher.Watch>();
+                this.pending.put(batchKey, batch);
+                RemoteBuildWatcher.get().getScheduler().schedule(new Runnable() {
+                    public void run() {
+                        flush(batchKey);
+                    }
+                }, BATCH_WINDOW, TimeUnit.MILLISECONDS);
+            }
+            batch.add(watch);
+        }
+    }
+
+    private void flush(String batchKey) {
+        List<RemoteBuildWatcher.Watch> batch;
+        synchronized (this.pending) {
+            batch = this.pending.remove(batchKey);
+        }
+
+        List<Integer> buildNumbers = new ArrayList<Integer>();
+        for (RemoteBuildWatcher.Watch watch : batch) {
+            buildNumbers.add(watch.getCheck().getBuildNumber());
+        }
+
+        ScheduledExecutorService scheduler = RemoteBuildWatcher.get().getScheduler();
+        Map<Integer, RemoteBuildStatus> statuses = null;
+        try {
+            // any check of the batch can make the call, they all share the same remote job and credentials
+            statuses = batch.get(0).getCheck().getBatchStatuses(buildNumbers);
+        } catch (HttpTransport.TurnDeferredException e) {
+            // the call was not sent, the whole batch gets together again once it may be
+            for (RemoteBuildWatcher.Watch watch : batch) {
+                scheduler.schedule(watch, e.getDelayMillis(), TimeUnit.MILLISECONDS);
+            }
+            return;
+        } catch (Exception e) {
+            // every build in the batch will fall back to polling on its own
+            LOGGER.log(Level.FINE, "Batched status poll failed", e);
+        }
+
+        int answered = 0;
+        for (final RemoteBuildWatcher.Watch watch : batch) {
+            if (statuses != null && tells(statuses, watch.getCheck().getBuildNumber())) {
+                watch.update(statuses);
+                answered++;
+            } else {
+                // each is a task of its own, rather than all of them being polled in a row on this thread
+                scheduler.execute(new Runnable() {
+                    public void run() {
+                        watch.update(null);
+                    }
+                });
+            }
+        }
+        synchronized (this.pending) {
+            this.batches++;
+            this.polls += answered;
+        }
+    }
+
+    /**
+     * @param statuses
+     *            what a batch fetched
+     * @param buildNumber
+     *            number of a remote build of the batch
+     * @return true if the statuses tell about the build: they list it, or they only list builds older than it, so it
+     *         is still in the queue; false if it is too old to be listed
+     */
+    static boolean tells(Map<Integer, RemoteBuildStatus> statuses, int buildNumber) {
+        if (statuses.containsKey(buildNumber)) {
+            return true;
+        }
+        for (int number : statuses.keySet()) {
+            if (number >= buildNumber) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * How many builds a batch asks the remote server to list. The newest build comes first in the list, so that is
+     * from the newest build of the batch down to the oldest one, and a margin for the builds that were started since.
+     * A build that does not make it into the list is polled on its own.
+     *
+     * @param buildNumbers
+     *            numbers of the remote builds in the batch
+     * @return number of builds to list
+     */
+    static int getListSize(Collection<Integer> buildNumbers) {
+        return Collections.max(buildNumbers) - Collections.min(buildNumbers) + 1 + LIST_MARGIN;
+    }
+
+    /**
+     * @return number of calls made to the remote server for a batch
+     */
+    public long getBatchCount() {
+        synchronized (this.pending) {
+            return this.batches;
+        }
+    }
+
+    /**
+     * @return number of polls answered by a batch
+     */
+    public long getPollCount() {
+        synchronized (this.pending) {
+            return this.polls;
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps the requests sent to one remote server within the limits configured for it: how many may be in flight at the
+ * same time, and how many may be sent per second.
+ *
+ * A request that would exceed a limit waits for its turn instead of failing, and requests get their turn in the order
+ * they came in; unless it is not its turn by the deadline of the request. The rate is limited with a token bucket that
+ * holds up to a second's worth of requests, so a quiet server can take a short burst.
+ *
+ * A caller that must not wait, i.e.: the {@link RemoteBuildWatcher}, asks with {@link #tryAcquire()} instead. It is told
+ * how long until its turn may come, and tries again by then; it does not hold a place in line meanwhile.
+ */
+public class RequestGovernor {
+
+    // what reserveToken() returns when the request would wait too long, and when there is no rate limit
+    private static final long        TIMED_OUT         = -1;
+    private static final long        NO_TOKEN          = -2;
+
+    /**
+     * How long (in milliseconds) {@link #tryAcquire()} tells a request to wait when all in-flight slots are taken, there
+     * is no telling when one is released.
+     */
+    private static final long        BUSY_DELAY        = Long.getLong(RequestGovernor.class.getName() + ".busyDelay",
+                                                               100);
+
+    // null if there is no limit; replaced when the limit changes, requests in flight then release the old one
+    private volatile Semaphore       inFlight;
+    private int                      maxConcurrent;
+
+    // the token bucket; a fair lock hands out the tokens in the order they were asked for
+    private final ReentrantLock      bucketLock        = new ReentrantLock(true);
+    private volatile double          requestsPerSecond;
+    private double                   tokens;
+    private long                     lastRefill        = System.nanoTime();
+
+    private final AtomicInteger      waiting           = new AtomicInteger();
+    private final AtomicLong         requests          = new AtomicLong();
+    private final AtomicLong         delayedRequests   = new AtomicLong();
+    private final AtomicLong         timedOutRequests  = new AtomicLong();
+    private final AtomicLong         deferredRequests  = new AtomicLong();
+    private final AtomicLong         totalWaitNanos    = new AtomicLong();
+    private final AtomicLong         maxWaitNanos      = new AtomicLong();
+
+    /**
+     * @param maxConcurrent
+     *            most requests in flight at the same time, 0 for no limit
+     * @param requestsPerSecond
+     *            most requests sent per second, 0 for no limit
+     */
+    public synchronized void configure(int maxConcurrent, double requestsPerSecond) {
+        if (maxConcurrent != this.maxConcurrent) {
+            this.inFlight = maxConcurrent > 0 ? new Semaphore(maxConcurrent, true) : null;
+            this.maxConcurrent = maxConcurrent;
+        }
+        if (requestsPerSecond != this.requestsPerSecond) {
+            this.bucketLock.lock();
+            try {
+                if (this.requestsPerSecond > 0) {
+                    // the tokens that are left carry over, changing the limit does not hand out a new burst
+                    this.refill(System.nanoTime());
+                    this.tokens = Math.min(this.tokens, Math.max(1, requestsPerSecond));
+                } else {
+                    // there was no limit so far, start out with a full bucket
+                    this.tokens = Math.max(1, requestsPerSecond);
+                    this.lastRefill = System.nanoTime();
+                }
+                this.requestsPerSecond = requestsPerSecond;
+            } finally {
+                this.bucketLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Waits until a request may be sent. Every call must be followed by a call to {@link #release(Permit)}.
+     *
+     * @return what to hand back once the request is done
+     * @throws InterruptedException
+     *             if the thread was interrupted while it waited, there is nothing to release then
+     */
+    public Permit acquire() throws InterruptedException {
+        return this.acquire(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Same as above, but gives up once the request would have to wait for longer than the given time.
+     *
+     * @param timeout
+     *            how long the request may wait for its turn
+     * @return what to hand back once the request is done, or null if it is not its turn in time and there is nothing
+     *         to release
+     * @throws InterruptedException
+     *             same as above
+     */
+    public Permit acquire(long timeout, TimeUnit unit) throws InterruptedException {
+        long start = System.nanoTime();
+        long timeoutNanos = unit.toNanos(timeout);
+        this.requests.incrementAndGet();
+        this.waiting.incrementAndGet();
+        boolean reserved = false;
+        Semaphore semaphore = null;
+        try {
+            long delay = this.reserveToken(timeoutNanos);
+            if (delay == TIMED_OUT) {
+                this.timedOutRequests.incrementAndGet();
+                return null;
+            }
+            reserved = delay != NO_TOKEN;
+            if (delay > 0) {
+                TimeUnit.NANOSECONDS.sleep(delay);
+            }
+
+            // read once, the limit may be changed while we wait
+            semaphore = this.inFlight;
+            if (semaphore != null) {
+                if (timeoutNanos == Long.MAX_VALUE) {
+                    semaphore.acquire();
+                } else if (!semaphore.tryAcquire(timeoutNanos - (System.nanoTime() - start), TimeUnit.NANOSECONDS)) {
+                    this.timedOutRequests.incrementAndGet();
+                    return null;
+                }
+            }
+            reserved = false;
+
+            long waited = System.nanoTime() - start;
+            if (waited >= TimeUnit.MILLISECONDS.toNanos(1)) {
+                this.delayedRequests.incrementAndGet();
+                this.totalWaitNanos.addAndGet(waited);
+                long max = this.maxWaitNanos.get();
+                while (waited > max && !this.maxWaitNanos.compareAndSet(max, waited)) {
+                    max = this.maxWaitNanos.get();
+                }
+            }
+            return new Permit(semaphore, 0);
+        } finally {
+            if (reserved) {
+                // the request is not sent after all, so it doesn't use up its token
+                this.returnToken();
+            }
+            this.waiting.decrementAndGet();
+        }
+    }
+
+    /**
+     * Lets a request through if it may be sent right now, without waiting and without holding a place in line. A
+     * request that was let through must be followed by a call to {@link #release(Permit)}.
+     *
+     * @return a permit; if it is not {@link Permit#isGranted() granted}, it tells how long to wait before trying again
+     */
+    public Permit tryAcquire() {
+        // read once, the limit may be changed meanwhile
+        Semaphore semaphore = this.inFlight;
+        try {
+            // with a timeout, so the requests that are waiting in acquire() keep their turn
+            if (semaphore != null && !semaphore.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+                this.deferredRequests.incrementAndGet();
+                return new Permit(null, TimeUnit.MILLISECONDS.toNanos(BUSY_DELAY));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.deferredRequests.incrementAndGet();
+            return new Permit(null, TimeUnit.MILLISECONDS.toNanos(BUSY_DELAY));
+        }
+        long delay = this.takeToken();
+        if (delay > 0) {
+            if (semaphore != null) {
+                semaphore.release();
+            }
+            this.deferredRequests.incrementAndGet();
+            return new Permit(null, delay);
+        }
+        this.requests.incrementAndGet();
+        return new Permit(semaphore, 0);
+    }
+
+    /**
+     * @param permit
+     *            what {@link #acquire()} or {@link #tryAcquire()} returned
+     */
+    public void release(Permit permit) {
+        if (permit.semaphore != null) {
+            permit.semaphore.release();
+        }
+    }
+
+    /**
+     * Takes a token out of the bucket, or reserves the next one if the bucket is empty.
+     *
+     * @param timeoutNanos
+     *            longest the request may wait for the token
+     * @return nanoseconds to wait until the token is there; {@link #TIMED_OUT} if that is longer than the request may
+     *         wait, or {@link #NO_TOKEN} if there is no limit; no token is taken then
+     */
+    private long reserveToken(long timeoutNanos) throws InterruptedException {
+        if (this.requestsPerSecond <= 0) {
+            return NO_TOKEN;
+        }
+        this.bucketLock.lockInterruptibly();
+        try {
+            double rate = this.requestsPerSecond;
+            if (rate <= 0) {
+                return NO_TOKEN;
+            }
+            this.refill(System.nanoTime());
+            // tokens go below zero while they are reserved by waiting requests
+            long delay = this.tokens >= 1 ? 0 : (long) ((1 - this.tokens) / rate * 1e9);
+            if (delay > timeoutNanos) {
+                return TIMED_OUT;
+            }
+            this.tokens -= 1;
+            return delay;
+        } finally {
+            this.bucketLock.unlock();
+        }
+    }
+
+    /**
+     * Takes a token out of the bucket if there is one, but never reserves one.
+     *
+     * @return 0 if a token was taken, or there is no limit; otherwise nanoseconds until there may be one
+     */
+    private long takeToken() {
+        if (this.requestsPerSecond <= 0) {
+            return 0;
+        }
+        this.bucketLock.lock();
+        try {
+            double rate = this.requestsPerSecond;
+            if (rate <= 0) {
+                return 0;
+            }
+            this.refill(System.nanoTime());
+            if (this.tokens < 1) {
+                // the tokens that are reserved by waiting requests come first
+                return Math.max(1, (long) ((1 - this.tokens) / rate * 1e9));
+            }
+            this.tokens -= 1;
+            return 0;
+        } finally {
+            this.bucketLock.unlock();
+        }
+    }
+
+    /**
+     * Puts back a token that was reserved for a request that is not sent after all.
+     */
+    private void returnToken() {
+        this.bucketLock.lock();
+        try {
+            if (this.requestsPerSecond > 0) {
+                this.refill(System.nanoTime());
+                this.tokens = Math.min(Math.max(1, this.requestsPerSecond), this.tokens + 1);
+            }
+        } finally {
+            this.bucketLock.unlock();
+        }
+    }
+
+    /**
+     * Adds the tokens that came in since the last refill, up to a second's worth. Must hold the bucket lock.
+     */
+    private void refill(long now) {
+        double rate = this.requestsPerSecond;
+        this.tokens = Math.min(Math.max(1, rate), this.tokens + (now - this.lastRefill) * rate / 1e9);
+        this.lastRefill = now;
+    }
+
+    /**
+     * @return number of requests that are waiting for their turn right now
+     */
+    public int getQueueDepth() {
+        return this.waiting.get();
+    }
+
+    /**
+     * @return number of requests that went through the governor
+     */
+    public long getRequests() {
+        return this.requests.get();
+    }
+
+    /**
+     * @return number of requests that had to wait for their turn
+     */
+    public long getDelayedRequests() {
+        return this.delayedRequests.get();
+    }
+
+    /**
+     * @return number of requests that gave up because it wasn't their turn by their deadline
+     */
+    public long getTimedOutRequests() {
+        return this.timedOutRequests.get();
+    }
+
+    /**
+     * @return number of times {@link #tryAcquire()} told a request to come back later
+     */
+    public long getDeferredRequests() {
+        return this.deferredRequests.get();
+    }
+
+    /**
+     * @return milliseconds that requests have waited for their turn, all together
+     */
+    public long getTotalWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(this.totalWaitNanos.get());
+    }
+
+    /**
+     * @return longest time (in milliseconds) a single request has waited for its turn
+     */
+    public long getMaxWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(this.maxWaitNanos.get());
+    }
+
+    /**
+     * Handed out by {@link RequestGovernor#acquire()}, remembers which in-flight slot the request took, if any. One
+     * handed out by {@link RequestGovernor#tryAcquire()} may instead tell the request to come back later.
+     */
+    public static final class Permit {
+        private final Semaphore semaphore;
+        // how long until the request may come back, 0 if it was let through
+        private final long      delayNanos;
+
+        private Permit(Semaphore semaphore, long delayNanos) {
+            this.semaphore = semaphore;
+            this.delayNanos = delayNanos;
+        }
+
+        /**
+         * @return true if the request may be sent
+         */
+        public boolean isGranted() {
+            return this.delayNanos == 0;
+        }
+
+        /**
+         * @return milliseconds to wait before trying again, if the request was not let through
+         */
+        public long getDelayMillis() {
+            return Math.max(1, TimeUnit.NANOSECONDS.toMillis(this.delayNanos + 999999));
+        }
+    }
+}
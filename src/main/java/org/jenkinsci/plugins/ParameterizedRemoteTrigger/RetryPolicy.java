@@ -0,0 +1,248 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.Random;
+
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+
+/**
+ * Decides whether, and when, a failed call to a remote server is tried again.
+ *
+ * Only failures that may go away by themselves are retried: timeouts, connections that were refused or reset, and the
+ * 502, 503 and 504 responses of a proxy in front of a server that is (re)starting. Anything else, i.e.: a 401 or a host
+ * that doesn't exist, fails right away. The delay between attempts starts at 'initialDelay' and doubles with every
+ * retry up to 'maxDelay', with some jitter so that builds that failed together don't all retry together. No retry is
+ * started that would end after the 'deadline', counted from the first attempt.
+ *
+ * A call that isn't idempotent, i.e.: the POST that triggers a remote build, is only retried if it never reached the
+ * remote server. Once it may have been sent, a timeout or a dropped connection doesn't tell whether the remote server
+ * acted on it, and trying again could trigger the remote build twice.
+ */
+public class RetryPolicy {
+
+    public static final int     DEFAULT_MAX_RETRIES   = 5;
+    public static final int     DEFAULT_INITIAL_DELAY = 2;
+    public static final int     DEFAULT_MAX_DELAY     = 60;
+    public static final int     DEFAULT_DEADLINE      = 300;
+
+    // each delay is randomly up to this fraction shorter or longer
+    static final double         JITTER                = 0.2;
+
+    private static final Random RANDOM                = new Random();
+
+    private final int           maxRetries;
+    private final long          initialDelayMillis;
+    private final long          maxDelayMillis;
+    private final long          deadlineMillis;
+
+    /**
+     * @param maxRetries
+     *            most attempts after the first one
+     * @param initialDelayMillis
+     *            delay before the first retry
+     * @param maxDelayMillis
+     *            longest delay between two attempts
+     * @param deadlineMillis
+     *            time after the first attempt from which nothing is retried anymore, 0 for no deadline
+     */
+    public RetryPolicy(int maxRetries, long initialDelayMillis, long maxDelayMillis, long deadlineMillis) {
+        this.maxRetries = Math.max(0, maxRetries);
+        this.initialDelayMillis = Math.max(0, initialDelayMillis);
+        this.maxDelayMillis = Math.max(this.initialDelayMillis, maxDelayMillis);
+        this.deadlineMillis = Math.max(0, deadlineMillis);
+    }
+
+    /**
+     * One call to the remote server.
+     */
+    public interface Attempt<T> {
+        T call() throws IOException;
+    }
+
+    /**
+     * Is told about every attempt, i.e.: to log it and to count it.
+     */
+    public interface Listener {
+        /**
+         * @param attempt
+         *            number of the attempt, starting at 1
+         * @param latencyNanos
+         *            how long the attempt took
+         * @param failure
+         *            why it failed, or null if it succeeded
+         */
+        void onAttempt(int attempt, long latencyNanos, IOException failure);
+
+        /**
+         * @param attempt
+         *            number of the attempt that failed
+         * @param delayMillis
+         *            how long to wait before the next one
+         */
+        void onRetry(int attempt, long delayMillis);
+    }
+
+    /**
+     * Makes the call, and retries it for as long as this policy allows.
+     *
+     * @param attempt
+     *            the call to make
+     * @param firstAttempt
+     *            number of the first attempt, attempts before it count against the retry limit
+     * @param listener
+     *            is told about every attempt
+     * @return whatever the call returned
+     * @throws IOException
+     *             the failure of the last attempt; an {@link InterruptedIOException} if the thread was interrupted
+     *             while waiting for the next one
+     */
+    public <T> T execute(Attempt<T> attempt, int firstAttempt, Listener listener) throws IOException {
+        return this.execute(attempt, firstAttempt, true, listener);
+    }
+
+    /**
+     * Same as above, for a call that may not be safe to make twice.
+     *
+     * @param idempotent
+     *            false if the call must not be retried once it may have reached the remote server
+     */
+    public <T> T execute(Attempt<T> attempt, int firstAttempt, boolean idempotent, Listener listener)
+            throws IOException {
+        long start = System.nanoTime();
+        for (int number = Math.max(1, firstAttempt);; number++) {
+            long attemptStart = System.nanoTime();
+            try {
+                T result = attempt.call();
+                listener.onAttempt(number, System.nanoTime() - attemptStart, null);
+                return result;
+            } catch (IOException e) {
+                listener.onAttempt(number, System.nanoTime() - attemptStart, e);
+
+                long delay = this.getRetryDelay(e, number, idempotent, (System.nanoTime() - start) / 1000000L);
+                if (delay < 0) {
+                    throw e;
+                }
+
+                listener.onRetry(number, delay);
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting to retry: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Decides on a failed attempt without waiting for the next one, for a caller that schedules the next attempt itself
+     * rather than holding a thread while it waits, i.e.: the {@link RemoteBuildWatcher}.
+     *
+     * @param failure
+     *            why the attempt failed
+     * @param attempt
+     *            number of the attempt that failed, starting at 1
+     * @param idempotent
+     *            false if the call must not be retried once it may have reached the remote server
+     * @param elapsedMillis
+     *            time since the first attempt started
+     * @return how long to wait before the next attempt, in milliseconds, or -1 if the call is not to be tried again
+     */
+    public long getRetryDelay(IOException failure, int attempt, boolean idempotent, long elapsedMillis) {
+        long delay = this.getDelay(attempt);
+        if (!isRetryable(failure, idempotent) || attempt > this.maxRetries
+                || (this.deadlineMillis > 0 && elapsedMillis + delay > this.deadlineMillis)) {
+            return -1;
+        }
+        return delay;
+    }
+
+    /**
+     * @param attempt
+     *            number of the attempt that failed
+     * @return how long to wait before the next attempt, in milliseconds
+     */
+    long getDelay(int attempt) {
+        // 2^30 times any sensible initial delay is beyond the maximum already
+        double delay = this.initialDelayMillis * Math.pow(2, Math.min(30, attempt - 1));
+        delay = Math.min(this.maxDelayMillis, delay);
+        double jitter;
+        synchronized (RANDOM) {
+            jitter = 1 + JITTER * (2 * RANDOM.nextDouble() - 1);
+        }
+        return Math.min(this.maxDelayMillis, (long) (delay * jitter));
+    }
+
+    /**
+     * @param e
+     *            why a call failed
+     * @return true if the failure may go away by itself, so that the call is worth trying again
+     */
+    public static boolean isRetryable(IOException e) {
+        return isRetryable(e, true);
+    }
+
+    /**
+     * @param e
+     *            why a call failed
+     * @param idempotent
+     *            whether the call is safe to make twice
+     * @return true if the failure may go away by itself, and the call is worth (and safe) trying again
+     */
+    public static boolean isRetryable(IOException e, boolean idempotent) {
+        if (!idempotent) {
+            return isNotSent(e);
+        }
+        if (e instanceof HttpTransport.StatusException) {
+            int status = ((HttpTransport.StatusException) e).getStatusCode();
+            return status == 502 || status == 503 || status == 504;
+        }
+        if (e instanceof CircuitBreaker.CircuitOpenException) {
+            // the remote server is down, which it may not be anymore by the next attempt
+            return true;
+        }
+        if (e instanceof ConnectTimeoutException || e instanceof SocketTimeoutException) {
+            return true;
+        }
+        // refused or reset connections, and servers that hung up without answering; not an aborted build, nor a
+        // certificate that isn't trusted
+        return e instanceof ConnectException || e instanceof SocketException || e instanceof NoHttpResponseException;
+    }
+
+    /**
+     * @param e
+     *            why a call failed
+     * @return true if the request certainly never reached the remote server: the connection was refused or could not
+     *         be opened in time, or the circuit breaker or the governor didn't let it through
+     */
+    static boolean isNotSent(IOException e) {
+        if (e instanceof ConnectionPoolTimeoutException) {
+            // a ConnectTimeoutException as well, but it only means the local pool stayed full for too long
+            return false;
+        }
+        return e instanceof ConnectException || e instanceof ConnectTimeoutException
+                || e instanceof CircuitBreaker.CircuitOpenException || e instanceof HttpTransport.TurnTimeoutException;
+    }
+
+    public int getMaxRetries() {
+        return this.maxRetries;
+    }
+
+    public long getInitialDelayMillis() {
+        return this.initialDelayMillis;
+    }
+
+    public long getMaxDelayMillis() {
+        return this.maxDelayMillis;
+    }
+
+    public long getDeadlineMillis() {
+        return this.deadlineMillis;
+    }
+}
@@ -0,0 +1,202 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONNull;
+import net.sf.json.JSONObject;
+import net.sf.json.util.JSONUtils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Reads the JSON response of the remote server straight from the connection, keeping only the fields that were asked
+ * for.
+ *
+ * The fields are given as a 'tree' expression (see {@link ApiQuery}). Remote servers honour that expression already,
+ * but older ones ignore it and send the whole object. Either way the response is never held in memory as a whole:
+ * everything outside the tree is skipped while it is being read, and what is left is put into a {@link JSONObject} as
+ * it comes in.
+ */
+public final class StreamingJsonReader {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private StreamingJsonReader() {
+    }
+
+    /**
+     * @param in
+     *            the response body, the caller is responsible for closing it
+     * @param tree
+     *            the fields to keep, or null to keep everything
+     * @return the fields of the response, or null if the response is empty or is not a JSON object
+     * @throws IOException
+     *             if the response could not be read, or is cut off halfway
+     */
+    public static JSONObject read(InputStream in, String tree) throws IOException {
+        JsonParser parser = FACTORY.createParser(in);
+        try {
+            JsonToken first;
+            try {
+                first = parser.nextToken();
+            } catch (JsonParseException e) {
+                // i.e.: some versions of Jenkins answer a trigger with plain text
+                return null;
+            }
+            if (first != JsonToken.START_OBJECT) {
+                return null;
+            }
+
+            return readObject(parser, Fields.parse(tree));
+        } finally {
+            parser.close();
+        }
+    }
+
+    /**
+     * Reads the object the parser is positioned on, leaving out the fields that are not wanted.
+     *
+     * @param fields
+     *            the fields to keep, or null to keep everything
+     */
+    private static JSONObject readObject(JsonParser parser, Fields fields) throws IOException {
+        JSONObject object = new JSONObject();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            if (fields == null || fields.includes(name)) {
+                Object value = readValue(parser, fields == null ? null : fields.get(name));
+                if (value instanceof String && JSONUtils.mayBeJSON((String) value)) {
+                    // json-lib would parse a string that looks like JSON, quoted it is kept as the string it is
+                    value = "\"" + value + "\"";
+                }
+                object.element(name, value);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return object;
+    }
+
+    /**
+     * Reads the list the parser is positioned on.
+     *
+     * @param fields
+     *            the fields to keep of every element, or null to keep everything
+     */
+    private static JSONArray readArray(JsonParser parser, Fields fields) throws IOException {
+        JSONArray array = new JSONArray();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            Object value = readValue(parser, fields);
+            if ("null".equals(value)) {
+                // the same as JSONSerializer makes of it, rather than a JSONNull
+                value = "\"null\"";
+            }
+            array.element(value);
+        }
+        return array;
+    }
+
+    private static Object readValue(JsonParser parser, Fields fields) throws IOException {
+        JsonToken token = parser.getCurrentToken();
+        if (token == JsonToken.START_OBJECT) {
+            return readObject(parser, fields);
+        } else if (token == JsonToken.START_ARRAY) {
+            return readArray(parser, fields);
+        } else if (token == JsonToken.VALUE_STRING) {
+            return parser.getText();
+        } else if (token == JsonToken.VALUE_NUMBER_INT) {
+            // an Integer, Long or BigInteger, whatever fits
+            return parser.getNumberValue();
+        } else if (token == JsonToken.VALUE_NUMBER_FLOAT) {
+            return parser.getDoubleValue();
+        } else if (token == JsonToken.VALUE_TRUE) {
+            return Boolean.TRUE;
+        } else if (token == JsonToken.VALUE_FALSE) {
+            return Boolean.FALSE;
+        }
+        return JSONNull.getInstance();
+    }
+
+    /**
+     * Parsed tree expression: the names of the fields to keep, and for each of them the nested fields to keep, or null
+     * to keep the whole value.
+     */
+    static final class Fields {
+        private final Map<String, Fields> children = new HashMap<String, Fields>();
+
+        private Fields() {
+        }
+
+        /**
+         * @param tree
+         *            i.e.: "number,builds[number,result]"
+         * @return the parsed expression, or null if the tree is null (keep everything)
+         */
+        static Fields parse(String tree) {
+            if (tree == null) {
+                return null;
+            }
+            Fields fields = new Fields();
+            fields.parse(tree, 0);
+            return fields;
+        }
+
+        /**
+         * Parses the fields of one level, starting at the given position.
+         *
+         * @return the position right after the closing bracket of this level, or the end of the expression
+         */
+        private int parse(String tree, int position) {
+            StringBuilder name = new StringBuilder();
+            int i = position;
+            while (i < tree.length()) {
+                char c = tree.charAt(i++);
+                if (c == '[') {
+                    Fields nested = new Fields();
+                    i = nested.parse(tree, i);
+                    this.children.put(name.toString().trim(), nested);
+                    name.setLength(0);
+                } else if (c == '{') {
+                    // a range ("builds[number]{0,10}") only limits what the remote server sends
+                    while (i < tree.length() && tree.charAt(i) != '}') {
+                        i++;
+                    }
+                    i++;
+                } else if (c == ',' || c == ']') {
+                    this.add(name);
+                    if (c == ']') {
+                        return i;
+                    }
+                } else {
+                    name.append(c);
+                }
+            }
+            this.add(name);
+            return i;
+        }
+
+        private void add(StringBuilder name) {
+            String field = name.toString().trim();
+            if (field.length() > 0) {
+                this.children.put(field, null);
+            }
+            name.setLength(0);
+        }
+
+        boolean includes(String name) {
+            return this.children.containsKey(name);
+        }
+
+        Fields get(String name) {
+            return this.children.get(name);
+        }
+    }
+}
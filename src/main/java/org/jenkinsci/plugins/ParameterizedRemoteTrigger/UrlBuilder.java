@@ -0,0 +1,119 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+
+/**
+ * Builds the URL of a single call to the remote server.
+ *
+ * A builder belongs to the one call it is created for and is never shared, so concurrent builds of the same job can
+ * not see (or clear) each other's query parameters. Everything is appended to one buffer, the URL is only turned into
+ * a String once it is complete.
+ */
+public final class UrlBuilder {
+
+    private final StringBuilder url;
+    private boolean             hasQuery = false;
+
+    /**
+     * @param base
+     *            the start of the URL, i.e.: the address of the remote server
+     */
+    public UrlBuilder(String base) {
+        this.url = new StringBuilder(base.length() + 64).append(base);
+    }
+
+    /**
+     * Appends a part of the path as-is.
+     *
+     * @param path
+     *            i.e.: "/job/"
+     * @return this builder
+     */
+    public UrlBuilder path(String path) {
+        if (this.hasQuery) {
+            throw new IllegalStateException("The path can not be extended once query parameters have been added.");
+        }
+        this.url.append(path);
+        return this;
+    }
+
+    /**
+     * Appends a part of the path that has to be encoded first, i.e.: the name of a job.
+     *
+     * @param value
+     *            the raw value
+     * @return this builder
+     */
+    public UrlBuilder encodedPath(String value) {
+        return this.path(encode(value));
+    }
+
+    /**
+     * Adds a query parameter, encoding both the name and the value.
+     *
+     * @param name
+     *            name of the parameter
+     * @param value
+     *            raw value of the parameter
+     * @return this builder
+     */
+    public UrlBuilder parameter(String name, String value) {
+        this.startParameter();
+        this.url.append(encode(name)).append('=').append(encode(value));
+        return this;
+    }
+
+    /**
+     * Adds a query parameter as the user entered it ("name=value"). Every part around an '=' is encoded on its own,
+     * the '=' characters themselves are kept.
+     *
+     * @param parameter
+     *            the raw parameter
+     * @return this builder
+     */
+    public UrlBuilder parameter(String parameter) {
+        this.startParameter();
+        int start = 0;
+        int separator;
+        while ((separator = parameter.indexOf('=', start)) >= 0) {
+            this.url.append(encode(parameter.substring(start, separator))).append('=');
+            start = separator + 1;
+        }
+        this.url.append(encode(parameter.substring(start)));
+        return this;
+    }
+
+    private void startParameter() {
+        this.url.append(this.hasQuery ? '&' : '?');
+        this.hasQuery = true;
+    }
+
+    /**
+     * @return the URL built so far
+     */
+    public String build() {
+        return this.url.toString();
+    }
+
+    @Override
+    public String toString() {
+        return this.build();
+    }
+
+    /**
+     * URL-encodes a value, spaces are encoded as "%20" rather than "+" so that the value can also be used in a path.
+     *
+     * @param value
+     *            the raw value
+     * @return the encoded value
+     */
+    public static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8").replace("+", "%20");
+        } catch (UnsupportedEncodingException e) {
+            // UTF-8 is always supported
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import junit.framework.TestCase;
+
+public class ApiQueryTest extends TestCase {
+
+    public void testNestedFields() {
+        assertEquals("builds[number,result]", ApiQuery.nested("builds", "number", "result"));
+        assertEquals("actions[parameters[name,value]]", ApiQuery.BUILD_PARAMETERS.getTree());
+    }
+
+    public void testForUrl() {
+        assertEquals("http://remote/job/foo/api/json?tree=nextBuildNumber",
+                ApiQuery.NEXT_BUILD_NUMBER.forUrl("http://remote/job/foo"));
+        assertEquals("http://remote/job/foo/api/json?tree=nextBuildNumber",
+                ApiQuery.NEXT_BUILD_NUMBER.forUrl("http://remote/job/foo/"));
+    }
+
+    public void testBracketsAreEncoded() {
+        assertEquals("http://remote/job/foo/12/api/json?tree=actions%5Bparameters%5Bname,value%5D%5D",
+                ApiQuery.BUILD_PARAMETERS.forUrl("http://remote/job/foo/12"));
+    }
+
+    public void testFirst() {
+        ApiQuery builds = new ApiQuery(ApiQuery.nested("builds", "number")).first(10);
+        assertEquals("builds[number]{0,10}", builds.getTree());
+        assertEquals("http://remote/job/foo/api/json?tree=builds%5Bnumber%5D%7B0,10%7D",
+                builds.forUrl("http://remote/job/foo"));
+        assertEquals(builds.getTree(), ApiQuery.treeOf(builds.forUrl("http://remote/job/foo")));
+    }
+
+    public void testTreeOf() {
+        assertEquals(ApiQuery.BUILD_PARAMETERS.getTree(),
+                ApiQuery.treeOf(ApiQuery.BUILD_PARAMETERS.forUrl("http://remote/job/foo/12")));
+        assertNull(ApiQuery.treeOf("http://remote/job/foo/buildWithParameters?token=abc"));
+    }
+}
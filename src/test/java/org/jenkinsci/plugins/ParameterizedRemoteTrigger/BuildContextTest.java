@@ -0,0 +1,42 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import net.sf.json.JSONObject;
+import junit.framework.TestCase;
+
+public class BuildContextTest extends TestCase {
+
+    private static Auth auth(String mode) {
+        JSONObject authenticationMode = new JSONObject();
+        authenticationMode.put("value", mode);
+        JSONObject formData = new JSONObject();
+        formData.put("authenticationMode", authenticationMode);
+        return new Auth(formData);
+    }
+
+    public void testCachedPerAuth() {
+        BuildContext context = new BuildContext(null, null, null);
+        Auth apiToken = auth("apiToken");
+        Auth none = auth("none");
+
+        assertNull(context.getAuthorization(apiToken));
+        context.putAuthorization(apiToken, "Basic abc");
+        context.putAuthorization(none, null);
+
+        assertEquals("Basic abc", context.getAuthorization(apiToken));
+        assertEquals(BuildContext.ANONYMOUS, context.getAuthorization(none));
+        // the same settings, saved again, are new credentials
+        assertNull(context.getAuthorization(auth("apiToken")));
+    }
+
+    public void testInvalidate() {
+        BuildContext context = new BuildContext(null, null, null);
+        Auth apiToken = auth("apiToken");
+        context.putAuthorization(apiToken, "Basic abc");
+
+        BuildContext.invalidateAuthorizations();
+        assertNull(context.getAuthorization(apiToken));
+
+        context.putAuthorization(apiToken, "Basic def");
+        assertEquals("Basic def", context.getAuthorization(apiToken));
+    }
+}
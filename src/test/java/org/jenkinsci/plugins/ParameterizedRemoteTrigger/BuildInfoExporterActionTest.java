@@ -0,0 +1,126 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import hudson.EnvVars;
+import hudson.model.Action;
+import hudson.model.Actionable;
+import hudson.model.Result;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class BuildInfoExporterActionTest extends TestCase {
+
+    private static EnvVars buildEnvVars(BuildInfoExporterAction action) {
+        EnvVars env = new EnvVars();
+        action.buildEnvVars(null, env);
+        return env;
+    }
+
+    public void testBuildsPerProject() {
+        BuildInfoExporterAction action = new BuildInfoExporterAction(null, new BuildInfoExporterAction.BuildReference(
+                "job-a", 3, Result.NOT_BUILT));
+        action.addBuildReference(new BuildInfoExporterAction.BuildReference("job b", 7, Result.SUCCESS));
+        action.addBuildReference(new BuildInfoExporterAction.BuildReference("job-a", 3, Result.FAILURE));
+        // cancelled while in the queue, it never got a number
+        action.addBuildReference(new BuildInfoExporterAction.BuildReference("job-a", 0, Result.ABORTED));
+        action.addBuildReference(new BuildInfoExporterAction.BuildReference("job-c", 0, Result.ABORTED));
+
+        EnvVars env = buildEnvVars(action);
+        assertEquals("3,3", env.get(BuildInfoExporterAction.ALL_BUILD_NUMBER_VARIABLE_PREFIX + "job_a"));
+        assertEquals("3", env.get(BuildInfoExporterAction.BUILD_RUN_COUNT_PREFIX + "job_a"));
+        assertEquals("3", env.get(BuildInfoExporterAction.BUILD_NUMBER_VARIABLE_PREFIX + "job_a"));
+        assertEquals("FAILURE", env.get(BuildInfoExporterAction.BUILD_RESULT_VARIABLE_PREFIX + "job_a"));
+        assertEquals("FAILURE", env.get(BuildInfoExporterAction.BUILD_RESULT_VARIABLE_PREFIX + "job_a"
+                + BuildInfoExporterAction.RUN + "3"));
+        assertEquals("7", env.get(BuildInfoExporterAction.BUILD_NUMBER_VARIABLE_PREFIX + "job_b"));
+        // a project none of whose builds got a number isn't exported at all
+        assertNull(env.get(BuildInfoExporterAction.BUILD_RUN_COUNT_PREFIX + "job_c"));
+    }
+
+    public void testBuildsAddedAfterExport() {
+        BuildInfoExporterAction action = new BuildInfoExporterAction(null, new BuildInfoExporterAction.BuildReference(
+                "job", 1, Result.SUCCESS));
+        assertEquals("1", buildEnvVars(action).get(BuildInfoExporterAction.BUILD_NUMBER_VARIABLE_PREFIX + "job"));
+
+        action.addBuildReference(new BuildInfoExporterAction.BuildReference("job", 2, Result.UNSTABLE,
+                new RemoteBuildTiming(1000L, 4000L, 2000L, -1)));
+        EnvVars env = buildEnvVars(action);
+        assertEquals("1,2", env.get(BuildInfoExporterAction.ALL_BUILD_NUMBER_VARIABLE_PREFIX + "job"));
+        assertEquals("2", env.get(BuildInfoExporterAction.BUILD_NUMBER_VARIABLE_PREFIX + "job"));
+        assertEquals("UNSTABLE", env.get(BuildInfoExporterAction.BUILD_RESULT_VARIABLE_PREFIX + "job"));
+        assertEquals("3000", env.get(BuildInfoExporterAction.BUILD_QUEUE_WAIT_PREFIX + "job"));
+        assertEquals("2000", env.get(BuildInfoExporterAction.BUILD_DURATION_PREFIX + "job"));
+    }
+
+    /**
+     * The targets of a fan-out record their builds with the same parent build at the same time, it gets a single
+     * action with all of them.
+     */
+    public void testConcurrentTargetsAddOneAction() throws Exception {
+        final int targets = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(targets);
+        try {
+            // only the first builds of a parent build race to add the action, so race a few times
+            for (int round = 0; round < 20; round++) {
+                final Actionable parentBuild = new Actionable() {
+                    public String getDisplayName() {
+                        return "parent";
+                    }
+
+                    public String getSearchUrl() {
+                        return "parent";
+                    }
+
+                    @Override
+                    public <T extends Action> T getAction(Class<T> type) {
+                        T action = super.getAction(type);
+                        // a slow lookup, so that the other targets look at the same time
+                        try {
+                            Thread.sleep(1);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return action;
+                    }
+                };
+                final CountDownLatch start = new CountDownLatch(1);
+                List<Future<Void>> adds = new ArrayList<Future<Void>>();
+                for (int i = 0; i < targets; i++) {
+                    final int number = i + 1;
+                    adds.add(executor.submit(new Callable<Void>() {
+                        public Void call() throws Exception {
+                            start.await();
+                            BuildInfoExporterAction.addBuildInfoExporterAction(parentBuild, "job", number,
+                                    Result.SUCCESS, null);
+                            return null;
+                        }
+                    }));
+                }
+                start.countDown();
+                for (Future<Void> add : adds) {
+                    add.get(10, TimeUnit.SECONDS);
+                }
+
+                int actions = 0;
+                for (Action action : parentBuild.getActions()) {
+                    if (action instanceof BuildInfoExporterAction) {
+                        actions++;
+                    }
+                }
+                assertEquals(1, actions);
+                EnvVars env = buildEnvVars(parentBuild.getAction(BuildInfoExporterAction.class));
+                assertEquals(Integer.toString(targets), env.get(BuildInfoExporterAction.BUILD_RUN_COUNT_PREFIX + "job"));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
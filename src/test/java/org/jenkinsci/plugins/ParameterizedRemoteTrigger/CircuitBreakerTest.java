@@ -0,0 +1,194 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+import net.sf.json.JSONObject;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.ResponseHandler;
+
+public class CircuitBreakerTest extends TestCase {
+
+    private static final ResponseHandler<Integer> STATUS = new ResponseHandler<Integer>() {
+                                                             public Integer handleResponse(HttpResponse response) {
+                                                                 return response.getStatusLine().getStatusCode();
+                                                             }
+                                                         };
+
+    private FakeRemoteJenkins                     remote;
+    private HttpTransport                         transport;
+
+    @Override
+    protected void setUp() throws Exception {
+        this.remote = new FakeRemoteJenkins();
+        this.remote.addJob("job");
+        this.transport = HttpTransport.forAddress(this.remote.getURL());
+        this.transport.getCircuitBreaker().configure(3, 200);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        this.remote.stop();
+    }
+
+    private int call() throws IOException {
+        return this.transport.execute("GET", this.remote.getURL() + "/job/job/api/json", null, STATUS);
+    }
+
+    public void testOpensAfterFailuresAndClosesAfterProbe() throws Exception {
+        CircuitBreaker breaker = this.transport.getCircuitBreaker();
+        assertEquals(200, this.call());
+
+        this.remote.setDown(true);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(503, this.call());
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        // while it is open, calls don't reach the server
+        int before = this.remote.getRequestCount();
+        for (int i = 0; i < 10; i++) {
+            try {
+                this.call();
+                fail("the breaker is open");
+            } catch (CircuitBreaker.CircuitOpenException e) {
+                // expected
+            }
+        }
+        assertEquals(before, this.remote.getRequestCount());
+
+        // a probe that fails keeps it open
+        Thread.sleep(250);
+        assertEquals(503, this.call());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(2, breaker.getOpened());
+
+        // a probe that gets through closes it
+        this.remote.setDown(false);
+        Thread.sleep(250);
+        assertEquals(200, this.call());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(200, this.call());
+    }
+
+    /**
+     * More calls than connections wait for their turn, and a full pool is not held against the remote server.
+     */
+    public void testFullPoolDoesNotOpen() throws Exception {
+        JSONObject authenticationMode = new JSONObject();
+        authenticationMode.put("value", "none");
+        JSONObject auth = new JSONObject();
+        auth.put("authenticationMode", authenticationMode);
+        RemoteJenkinsServer remoteServer = new RemoteJenkinsServer(this.remote.getURL().toString(), "FAKE", false,
+                auth);
+        remoteServer.setMaxConnections(1);
+        remoteServer.setConnectTimeout(1);
+        // each call holds the only connection for longer than the connect timeout
+        this.remote.setLatency(1500, 1500);
+        final HttpTransport transport = HttpTransport.forServer(remoteServer);
+        transport.getCircuitBreaker().configure(1, 60000);
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<Integer>> calls = new ArrayList<Future<Integer>>();
+            for (int i = 0; i < 3; i++) {
+                calls.add(executor.submit(new Callable<Integer>() {
+                    public Integer call() throws IOException {
+                        return transport.execute("GET", remote.getURL() + "/job/job/api/json", null, STATUS);
+                    }
+                }));
+            }
+            for (Future<Integer> call : calls) {
+                assertEquals(Integer.valueOf(200), call.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, transport.getCircuitBreaker().getState());
+        assertEquals(0, transport.getConnectTimeouts());
+        assertEquals(0, transport.getPoolTimeouts());
+        assertEquals(2, transport.getGovernor().getDelayedRequests());
+    }
+
+    public void testSingleProbe() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker();
+        breaker.configure(1, 0);
+        breaker.onFailure(false);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        assertTrue(breaker.beforeCall("remote"));
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        try {
+            breaker.beforeCall("remote");
+            fail("only one probe at a time");
+        } catch (CircuitBreaker.CircuitOpenException e) {
+            // expected
+        }
+
+        // a probe that wasn't sent after all lets the next call probe, once the breaker was open for long enough
+        breaker.onCancelled(true);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertTrue(breaker.beforeCall("remote"));
+        breaker.onSuccess(true);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertFalse(breaker.beforeCall("remote"));
+    }
+
+    public void testCancelledProbeStaysOpen() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker();
+        breaker.configure(1, 200);
+        breaker.onFailure(false);
+        Thread.sleep(250);
+
+        assertTrue(breaker.beforeCall("remote"));
+        breaker.onCancelled(true);
+        // the breaker was open for long enough before the probe, but is open anew now
+        try {
+            breaker.beforeCall("remote");
+            fail("the breaker is open");
+        } catch (CircuitBreaker.CircuitOpenException e) {
+            // expected
+        }
+        assertEquals(1, breaker.getOpened());
+
+        Thread.sleep(250);
+        assertTrue(breaker.beforeCall("remote"));
+    }
+
+    /**
+     * Calls that were let through while the breaker was closed, and finish after it opened, leave it to the probe.
+     */
+    public void testLateCallsDoNotChangeState() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker();
+        breaker.configure(1, 0);
+        assertFalse(breaker.beforeCall("remote"));
+        assertFalse(breaker.beforeCall("remote"));
+        assertFalse(breaker.beforeCall("remote"));
+        breaker.onFailure(false);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        // while it is open
+        breaker.onSuccess(false);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        // while it is half-open
+        assertTrue(breaker.beforeCall("remote"));
+        breaker.onSuccess(false);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.onFailure(false);
+        breaker.onCancelled(false);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertEquals(1, breaker.getOpened());
+
+        breaker.onSuccess(true);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+}
@@ -0,0 +1,470 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONNull;
+import net.sf.json.JSONObject;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Stand-in for a remote Jenkins server, for tests that need to see (or control) exactly what the plugin sends.
+ *
+ * It answers the calls the plugin makes: job and build JSON, triggering a build, its queue item and the console output.
+ * Every triggered build leaves the queue right away, and finishes with the result of its job once it has run for the
+ * duration of its job (right away, unless told otherwise). The 'tree' parameter is ignored, the plugin only keeps the
+ * fields it asked for anyway.
+ *
+ * To act like a busy server under load, every answer can be delayed and a share of the calls can be answered with a
+ * 503, see {@link #setLatency(long, long)} and {@link #setErrorRate(double)}.
+ */
+public class FakeRemoteJenkins {
+
+    // connections waiting to be accepted, the default of the system is too few for a load test
+    private static final int            BACKLOG  = 1024;
+
+    private final HttpServer            server;
+    private final ExecutorService       executor;
+    private final Map<String, FakeJob>  jobs     = new ConcurrentHashMap<String, FakeJob>();
+    private final List<String>          triggers = Collections.synchronizedList(new ArrayList<String>());
+    // queue item id -> the build it turned into
+    private final Map<Integer, Integer> queue    = new ConcurrentHashMap<Integer, Integer>();
+    // queue item id -> when it entered the queue
+    private final Map<Integer, Long>    queued   = new ConcurrentHashMap<Integer, Long>();
+    private final AtomicInteger         queueIds = new AtomicInteger();
+    private volatile boolean            location = true;
+    private volatile boolean            down     = false;
+    private final AtomicInteger         requests = new AtomicInteger();
+    private final AtomicInteger         errors   = new AtomicInteger();
+    private final Random                random   = new Random();
+    private volatile long               minLatency;
+    private volatile long               maxLatency;
+    private volatile double             errorRate;
+    private volatile long               triggerStall;
+    private final AtomicInteger         queueItemFailures = new AtomicInteger();
+    private final AtomicInteger         queueItemPolls    = new AtomicInteger();
+
+    public FakeRemoteJenkins() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), BACKLOG);
+        this.executor = Executors.newCachedThreadPool();
+        this.server.setExecutor(this.executor);
+        this.server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    // read the request to the end, or the connection can not be kept alive
+                    InputStream request = exchange.getRequestBody();
+                    while (request.read() != -1) {
+                        // nothing to do with it
+                    }
+                    FakeRemoteJenkins.this.handle(exchange);
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        this.server.start();
+    }
+
+    public URL getURL() throws IOException {
+        return new URL("http://127.0.0.1:" + this.server.getAddress().getPort());
+    }
+
+    public void stop() {
+        this.server.stop(0);
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * @param name
+     *            name of the job
+     * @param parameterNames
+     *            names of the parameters the job defines
+     * @return the new job
+     */
+    public FakeJob addJob(String name, String... parameterNames) {
+        FakeJob job = new FakeJob(parameterNames);
+        this.jobs.put(name, job);
+        return job;
+    }
+
+    public FakeJob getJob(String name) {
+        return this.jobs.get(name);
+    }
+
+    /**
+     * @param location
+     *            false to act like a remote server from before Jenkins 1.519, which doesn't say where a triggered
+     *            build is queued
+     */
+    public void setLocation(boolean location) {
+        this.location = location;
+    }
+
+    /**
+     * @param down
+     *            true to answer every call with a 503, like a proxy in front of a remote server that is down
+     */
+    public void setDown(boolean down) {
+        this.down = down;
+    }
+
+    /**
+     * @param minLatency
+     *            least time (in milliseconds) to wait before answering a call
+     * @param maxLatency
+     *            most time (in milliseconds) to wait before answering a call, every call waits a random time in between
+     */
+    public void setLatency(long minLatency, long maxLatency) {
+        this.minLatency = minLatency;
+        this.maxLatency = Math.max(minLatency, maxLatency);
+    }
+
+    /**
+     * @param errorRate
+     *            share of the calls (between 0 and 1) to answer with a 503, picked at random
+     */
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * @param triggerStall
+     *            time (in milliseconds) to wait before answering a trigger call, after the build has been queued; like
+     *            a busy server that acts on the call but is slow to say so
+     */
+    public void setTriggerStall(long triggerStall) {
+        this.triggerStall = triggerStall;
+    }
+
+    /**
+     * @param failures
+     *            number of the next polls of a queue item to answer with a 503
+     */
+    public void failQueueItemPolls(int failures) {
+        this.queueItemFailures.set(failures);
+    }
+
+    /**
+     * @return number of polls of a queue item that reached the server, failed ones included
+     */
+    public int getQueueItemPollCount() {
+        return this.queueItemPolls.get();
+    }
+
+    /**
+     * @return number of calls that were answered with a 503 because of the error rate
+     */
+    public int getErrorCount() {
+        return this.errors.get();
+    }
+
+    /**
+     * @return number of calls that reached the server
+     */
+    public int getRequestCount() {
+        return this.requests.get();
+    }
+
+    /**
+     * @return the raw query strings of every trigger call, in the order they came in
+     */
+    public List<String> getTriggerQueries() {
+        synchronized (this.triggers) {
+            return new ArrayList<String>(this.triggers);
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        this.requests.incrementAndGet();
+        this.delay();
+        if (this.down) {
+            respond(exchange, 503, null);
+            return;
+        }
+        if (this.errorRate > 0 && this.random.nextDouble() < this.errorRate) {
+            this.errors.incrementAndGet();
+            respond(exchange, 503, null);
+            return;
+        }
+        // /job/<name>/..., the path is decoded already
+        String[] path = exchange.getRequestURI().getPath().split("/");
+        if (path.length > 3 && "queue".equals(path[1]) && "item".equals(path[2])) {
+            this.handleQueueItem(exchange, parseNumber(path[3]));
+            return;
+        }
+        FakeJob job = path.length > 2 && "job".equals(path[1]) ? this.jobs.get(path[2]) : null;
+        if (job == null) {
+            respond(exchange, 404, null);
+            return;
+        }
+        String jobUrl = this.getURL() + "/job/" + UrlBuilder.encode(path[2]) + "/";
+        String rest = path.length > 3 ? path[3] : "";
+
+        if ("api".equals(rest)) {
+            respond(exchange, 200, job.toJSON());
+        } else if ("build".equals(rest) || "buildWithParameters".equals(rest)) {
+            String query = exchange.getRequestURI().getRawQuery();
+            this.triggers.add(query == null ? "" : query);
+            int number = job.trigger(parseQuery(query));
+            if (this.location) {
+                int id = this.queueIds.incrementAndGet();
+                this.queue.put(id, number);
+                this.queued.put(id, job.getBuild(number).timestamp - job.queueWait);
+                exchange.getResponseHeaders().add("Location", this.getURL() + "/queue/item/" + id + "/");
+            }
+            if (this.triggerStall > 0) {
+                try {
+                    Thread.sleep(this.triggerStall);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            respond(exchange, 201, null);
+        } else {
+            FakeBuild build = job.getBuild("lastBuild".equals(rest) ? job.getLastBuildNumber() : parseNumber(rest));
+            String what = path.length > 4 ? path[4] : "";
+            if (build == null) {
+                respond(exchange, 404, null);
+            } else if ("api".equals(what)) {
+                respond(exchange, 200, build.toJSON(jobUrl).toString());
+            } else if ("logText".equals(what)) {
+                // read whether it is building first, the log may not be complete otherwise
+                boolean building = build.isBuilding();
+                String log = build.getLog();
+                String start = parseQuery(exchange.getRequestURI().getRawQuery()).get("start");
+                int offset = start == null ? 0 : Math.min(log.length(), parseNumber(start));
+                exchange.getResponseHeaders().add("X-Text-Size", Integer.toString(log.length()));
+                if (building) {
+                    exchange.getResponseHeaders().add("X-More-Data", "true");
+                }
+                respond(exchange, 200, log.substring(offset));
+            } else if ("consoleText".equals(what)) {
+                respond(exchange, 200, build.getLog());
+            } else {
+                respond(exchange, 404, null);
+            }
+        }
+    }
+
+    private void handleQueueItem(HttpExchange exchange, int id) throws IOException {
+        this.queueItemPolls.incrementAndGet();
+        if (this.queueItemFailures.getAndDecrement() > 0) {
+            respond(exchange, 503, null);
+            return;
+        }
+        Integer number = this.queue.get(id);
+        if (number == null) {
+            respond(exchange, 404, null);
+            return;
+        }
+        JSONObject executable = new JSONObject();
+        executable.put("number", number);
+        JSONObject item = new JSONObject();
+        item.put("cancelled", false);
+        item.put("inQueueSince", this.queued.get(id));
+        item.put("executable", executable);
+        respond(exchange, 200, item.toString());
+    }
+
+    private void delay() {
+        long latency = this.minLatency;
+        if (this.maxLatency > latency) {
+            latency += (long) (this.random.nextDouble() * (this.maxLatency - latency));
+        }
+        if (latency > 0) {
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static int parseNumber(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static Map<String, String> parseQuery(String query) throws UnsupportedEncodingException {
+        Map<String, String> parameters = new LinkedHashMap<String, String>();
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                int separator = pair.indexOf('=');
+                String name = separator < 0 ? pair : pair.substring(0, separator);
+                String value = separator < 0 ? "" : pair.substring(separator + 1);
+                parameters.put(URLDecoder.decode(name, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+            }
+        }
+        return parameters;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body == null ? new byte[0] : body.getBytes("UTF-8");
+        exchange.getResponseHeaders().add("Content-Type", "application/json;charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            OutputStream out = exchange.getResponseBody();
+            out.write(bytes);
+            out.close();
+        }
+    }
+
+    /**
+     * A job on the fake server, its builds are numbered in the order they are triggered.
+     */
+    public static class FakeJob {
+        private final String[]                parameterNames;
+        private final Map<Integer, FakeBuild> builds          = new ConcurrentHashMap<Integer, FakeBuild>();
+        private int                           nextBuildNumber = 1;
+        private volatile String               result          = "SUCCESS";
+        private volatile long                 queueWait       = 0;
+        private volatile long                 duration        = 0;
+
+        FakeJob(String... parameterNames) {
+            this.parameterNames = parameterNames;
+        }
+
+        public void setResult(String result) {
+            this.result = result;
+        }
+
+        /**
+         * @param queueWait
+         *            how long (in milliseconds) the builds that are triggered from now on claim to have been queued
+         * @param duration
+         *            how long (in milliseconds) they run, they report to be building until then
+         */
+        public void setTiming(long queueWait, long duration) {
+            this.queueWait = queueWait;
+            this.duration = duration;
+        }
+
+        synchronized int trigger(Map<String, String> parameters) {
+            int number = this.nextBuildNumber++;
+            parameters.remove("token");
+            parameters.remove("delay");
+            parameters.remove("job");
+            this.builds.put(number, new FakeBuild(number, parameters, this.result, this.duration));
+            return number;
+        }
+
+        synchronized int getLastBuildNumber() {
+            return this.nextBuildNumber - 1;
+        }
+
+        public FakeBuild getBuild(int number) {
+            return this.builds.get(number);
+        }
+
+        synchronized String toJSON() {
+            JSONArray definitions = new JSONArray();
+            for (String name : this.parameterNames) {
+                JSONObject definition = new JSONObject();
+                definition.put("name", name);
+                definitions.add(definition);
+            }
+            JSONObject parametersAction = new JSONObject();
+            parametersAction.put("parameterDefinitions", definitions);
+            JSONArray actions = new JSONArray();
+            if (this.parameterNames.length > 0) {
+                actions.add(parametersAction);
+            }
+
+            JSONArray builds = new JSONArray();
+            for (FakeBuild build : this.builds.values()) {
+                builds.add(build.toJSON(null));
+            }
+
+            JSONObject job = new JSONObject();
+            job.put("nextBuildNumber", this.nextBuildNumber);
+            job.put("actions", actions);
+            job.put("property", new JSONArray());
+            job.put("builds", builds);
+            return job.toString();
+        }
+    }
+
+    /**
+     * A build on the fake server, it starts as soon as it has been triggered and is done once its duration has passed.
+     */
+    public static class FakeBuild {
+        private final int                 number;
+        private final Map<String, String> parameters;
+        private final String              result;
+        private final long                timestamp = System.currentTimeMillis();
+        private final long                duration;
+
+        FakeBuild(int number, Map<String, String> parameters, String result, long duration) {
+            this.number = number;
+            this.parameters = parameters;
+            this.result = result;
+            this.duration = duration;
+        }
+
+        public Map<String, String> getParameters() {
+            return this.parameters;
+        }
+
+        boolean isBuilding() {
+            return System.currentTimeMillis() < this.timestamp + this.duration;
+        }
+
+        String getLog() {
+            if (this.isBuilding()) {
+                return "Started by remote host\n";
+            }
+            return "Started by remote host\nFinished: " + this.result + "\n";
+        }
+
+        JSONObject toJSON(String jobUrl) {
+            JSONArray parameters = new JSONArray();
+            for (Map.Entry<String, String> parameter : this.parameters.entrySet()) {
+                JSONObject value = new JSONObject();
+                value.put("name", parameter.getKey());
+                value.put("value", parameter.getValue());
+                parameters.add(value);
+            }
+            JSONObject parametersAction = new JSONObject();
+            parametersAction.put("parameters", parameters);
+            JSONArray actions = new JSONArray();
+            actions.add(parametersAction);
+
+            JSONObject build = new JSONObject();
+            build.put("number", this.number);
+            boolean building = this.isBuilding();
+            build.put("building", building);
+            // like a real server, a build only has a result (and a duration) once it is done
+            build.put("result", building ? JSONNull.getInstance() : (Object) this.result);
+            build.put("timestamp", this.timestamp);
+            build.put("duration", building ? 0 : this.duration);
+            build.put("estimatedDuration", 0);
+            build.put("actions", actions);
+            if (jobUrl != null) {
+                build.put("url", jobUrl + this.number + "/");
+            }
+            return build;
+        }
+    }
+}
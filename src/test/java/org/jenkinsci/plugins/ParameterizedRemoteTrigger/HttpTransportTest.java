@@ -0,0 +1,210 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+import net.sf.json.JSONObject;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.util.EntityUtils;
+
+public class HttpTransportTest extends TestCase {
+
+    private static final ResponseHandler<String> BODY = new ResponseHandler<String>() {
+                                                          public String handleResponse(HttpResponse response)
+                                                                  throws IOException {
+                                                              return EntityUtils.toString(response.getEntity());
+                                                          }
+                                                      };
+
+    private ServerSocket                         server;
+
+    @Override
+    protected void setUp() throws Exception {
+        this.server = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        this.server.close();
+    }
+
+    private String url() {
+        return "http://127.0.0.1:" + this.server.getLocalPort() + "/";
+    }
+
+    /**
+     * Accepts one connection, and then sends the given bytes one at a time with a pause in between.
+     */
+    private void serve(final byte[] response, final long pause) {
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Socket socket = server.accept();
+                    try {
+                        OutputStream out = socket.getOutputStream();
+                        for (byte b : response) {
+                            Thread.sleep(pause);
+                            out.write(b);
+                            out.flush();
+                        }
+                        Thread.sleep(10000);
+                    } finally {
+                        socket.close();
+                    }
+                } catch (Exception e) {
+                    // the test is over
+                }
+            }
+        };
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void testReadTimeout() throws Exception {
+        // accepts the connection, but never answers
+        this.serve(new byte[0], 0);
+        HttpTransport transport = HttpTransport.forAddress(new URL(this.url()));
+        long before = transport.getReadTimeouts();
+
+        long start = System.currentTimeMillis();
+        try {
+            transport.execute("GET", this.url(), null, BODY, new HttpTransport.Timeouts(1000, 200, 5000));
+            fail("the server never answers");
+        } catch (SocketTimeoutException e) {
+            // expected
+        }
+        assertTrue(System.currentTimeMillis() - start < 4000);
+        assertEquals(before + 1, transport.getReadTimeouts());
+    }
+
+    public void testDeadline() throws Exception {
+        // answers, but so slowly that the read timeout never hits
+        this.serve("HTTP/1.1 200 OK\r\nContent-Length: 1000\r\n\r\n".getBytes("US-ASCII"), 50);
+        HttpTransport transport = HttpTransport.forAddress(new URL(this.url()));
+        long before = transport.getDeadlinesExceeded();
+
+        long start = System.currentTimeMillis();
+        try {
+            transport.execute("GET", this.url(), null, BODY, new HttpTransport.Timeouts(1000, 1000, 500));
+            fail("the response takes longer than the deadline");
+        } catch (SocketTimeoutException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("did not complete within 500 ms"));
+        }
+        assertTrue(System.currentTimeMillis() - start < 4000);
+        assertEquals(before + 1, transport.getDeadlinesExceeded());
+    }
+
+    public void testExecuteOnceIsNotShared() throws Exception {
+        this.serve("HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nok".getBytes("US-ASCII"), 0);
+        URL address = new URL(this.url());
+
+        assertEquals("ok", HttpTransport.executeOnce(address, "GET", this.url(), null, BODY,
+                HttpTransport.Timeouts.DEFAULT, RemoteCallMetrics.Endpoint.VALIDATE));
+        for (HttpTransport transport : HttpTransport.all()) {
+            assertFalse(HttpTransport.getKey(address).equals(transport.getKey()));
+        }
+    }
+
+    public void testTurnTimeout() throws Exception {
+        // accepts the connection, but never answers
+        this.serve(new byte[0], 0);
+        final HttpTransport transport = HttpTransport.forAddress(new URL(this.url()));
+        transport.getGovernor().configure(1, 0);
+
+        // takes the only turn there is
+        Thread first = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    transport.execute("GET", url(), null, BODY, new HttpTransport.Timeouts(1000, 2000, 2000));
+                } catch (IOException e) {
+                    // the test is over
+                }
+            }
+        };
+        first.setDaemon(true);
+        first.start();
+        while (transport.getGovernor().getRequests() == 0) {
+            Thread.sleep(10);
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            transport.execute("GET", this.url(), null, BODY, new HttpTransport.Timeouts(1000, 1000, 300));
+            fail("the request never gets its turn");
+        } catch (HttpTransport.TurnTimeoutException e) {
+            // expected
+        }
+        assertTrue(System.currentTimeMillis() - start < 1500);
+        assertTrue(RetryPolicy.isNotSent(new HttpTransport.TurnTimeoutException("")));
+    }
+
+    public void testTransportPerServerEntry() throws Exception {
+        JSONObject authenticationMode = new JSONObject();
+        authenticationMode.put("value", "none");
+        JSONObject auth = new JSONObject();
+        auth.put("authenticationMode", authenticationMode);
+        RemoteJenkinsServer one = new RemoteJenkinsServer(this.url(), "one", false, auth);
+        RemoteJenkinsServer other = new RemoteJenkinsServer(this.url(), "other", false, auth);
+        one.setMaxConnections(1);
+        other.setMaxConnections(5);
+
+        // the same address, but each entry keeps its own settings
+        assertNotSame(HttpTransport.forServer(one), HttpTransport.forServer(other));
+        assertSame(HttpTransport.forServer(one), HttpTransport.forServer(one));
+    }
+
+    public void testRetainClosesTransportsOfRemovedEntries() throws Exception {
+        // answers, slowly enough to still be in flight when the entry is removed
+        this.serve("HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nok".getBytes("US-ASCII"), 20);
+        JSONObject authenticationMode = new JSONObject();
+        authenticationMode.put("value", "none");
+        JSONObject auth = new JSONObject();
+        auth.put("authenticationMode", authenticationMode);
+        RemoteJenkinsServer kept = new RemoteJenkinsServer(this.url(), "kept", false, auth);
+        RemoteJenkinsServer removed = new RemoteJenkinsServer(this.url(), "removed", false, auth);
+        HttpTransport keptTransport = HttpTransport.forServer(kept);
+        final HttpTransport removedTransport = HttpTransport.forServer(removed);
+
+        final String[] body = new String[1];
+        Thread request = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    body[0] = removedTransport.execute("GET", url(), null, BODY);
+                } catch (IOException e) {
+                    body[0] = e.toString();
+                }
+            }
+        };
+        request.start();
+        while (removedTransport.getMetrics().getInFlight() == 0) {
+            Thread.sleep(10);
+        }
+
+        HttpTransport.retain(Collections.singletonList(kept));
+        assertTrue(HttpTransport.all().contains(keptTransport));
+        assertFalse(HttpTransport.all().contains(removedTransport));
+
+        // the request in flight is not cut short, but the transport is closed after it
+        request.join(10000);
+        assertEquals("ok", body[0]);
+        try {
+            removedTransport.execute("GET", this.url(), null, BODY);
+            fail("the transport is closed");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("anymore"));
+        }
+        assertNotSame(removedTransport, HttpTransport.forServer(removed));
+    }
+}
@@ -0,0 +1,47 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import java.util.Arrays;
+
+import net.sf.json.JSONObject;
+import junit.framework.TestCase;
+
+public class JobMetadataCacheTest extends TestCase {
+
+    private static final String PARAMETERIZED = "{\"nextBuildNumber\":3,\"actions\":[{},{\"parameterDefinitions\":"
+                                                      + "[{\"name\":\"A\"},{\"name\":\"B\"}]}],\"property\":[]}";
+    private static final String PLAIN         = "{\"nextBuildNumber\":3,\"actions\":[{},{}],\"property\":[{}]}";
+
+    public void testParameterDefinitions() {
+        JobMetadataCache.JobMetadata metadata = JobMetadataCache.JobMetadata.fromJSON(
+                JSONObject.fromObject(PARAMETERIZED), 0);
+        assertTrue(metadata.isParameterized());
+        assertEquals(Arrays.asList("A", "B"), metadata.getParameterNames());
+
+        assertFalse(JobMetadataCache.JobMetadata.fromJSON(JSONObject.fromObject(PLAIN), 0).isParameterized());
+        assertFalse(JobMetadataCache.JobMetadata.fromJSON(null, 0).isParameterized());
+    }
+
+    public void testTimeToLive() throws Exception {
+        JobMetadataCache cache = new JobMetadataCache(10);
+        cache.put("job", JSONObject.fromObject(PARAMETERIZED));
+
+        assertNotNull(cache.get("job", 60000));
+        Thread.sleep(20);
+        assertNull(cache.get("job", 10));
+        // and it is gone for good
+        assertNull(cache.get("job", 60000));
+    }
+
+    public void testLeastRecentlyUsedIsDropped() {
+        JobMetadataCache cache = new JobMetadataCache(2);
+        cache.put("a", JSONObject.fromObject(PLAIN));
+        cache.put("b", JSONObject.fromObject(PLAIN));
+        cache.get("a", 60000);
+        cache.put("c", JSONObject.fromObject(PLAIN));
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("a", 60000));
+        assertNull(cache.get("b", 60000));
+        assertNotNull(cache.get("c", 60000));
+    }
+}
@@ -0,0 +1,62 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import junit.framework.TestCase;
+
+public class PollIntervalPolicyTest extends TestCase {
+
+    public void testFixedInterval() {
+        PollIntervalPolicy policy = PollIntervalPolicy.fixed(10000);
+        RemoteBuildStatus running = new RemoteBuildStatus(RemoteBuildStatus.RUNNING, 0, -1);
+        for (int x = 0; x < 5; x++) {
+            assertEquals(10000, policy.nextInterval(running, 0));
+        }
+    }
+
+    public void testBacksOffUpToMaximum() {
+        PollIntervalPolicy policy = new PollIntervalPolicy(1000, 60000);
+        RemoteBuildStatus running = new RemoteBuildStatus(RemoteBuildStatus.RUNNING, 0, -1);
+
+        long first = policy.nextInterval(running, 0);
+        assertTrue(first >= 1000 && first <= 1100);
+
+        long last = first;
+        for (int x = 0; x < 20; x++) {
+            last = policy.nextInterval(running, 0);
+            assertTrue(last >= 1000 && last <= 60000);
+        }
+        // after enough polls the interval hovers around the maximum, minus the jitter
+        assertTrue(last >= 54000);
+    }
+
+    private static final long STARTED = 1000000;
+
+    public void testDoesNotSleepPastExpectedEnd() {
+        PollIntervalPolicy policy = new PollIntervalPolicy(1000, 60000);
+        RemoteBuildStatus running = new RemoteBuildStatus(RemoteBuildStatus.RUNNING, STARTED, 100000);
+
+        for (int x = 0; x < 20; x++) {
+            policy.nextInterval(running, STARTED);
+        }
+        // 5 seconds to go, so the next poll is due in about 5 seconds instead of a minute
+        long next = policy.nextInterval(running, STARTED + 95000);
+        assertTrue(next >= 4500 && next <= 5500);
+    }
+
+    public void testStartsOverWhenEstimateIsExceeded() {
+        PollIntervalPolicy policy = new PollIntervalPolicy(1000, 60000);
+        RemoteBuildStatus running = new RemoteBuildStatus(RemoteBuildStatus.RUNNING, STARTED, 100000);
+
+        for (int x = 0; x < 20; x++) {
+            policy.nextInterval(running, STARTED);
+        }
+        long next = policy.nextInterval(running, STARTED + 120000);
+        assertTrue(next >= 1000 && next <= 1100);
+    }
+
+    public void testCountsPolls() {
+        PollIntervalPolicy policy = new PollIntervalPolicy(1000, 60000);
+        policy.recordPoll();
+        policy.recordPoll();
+        assertEquals(2, policy.getPollCount());
+    }
+}
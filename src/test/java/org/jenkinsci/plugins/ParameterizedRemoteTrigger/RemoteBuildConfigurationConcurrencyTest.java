@@ -0,0 +1,118 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import hudson.model.Cause;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.ParametersAction;
+import hudson.model.ParametersDefinitionProperty;
+import hudson.model.StringParameterDefinition;
+import hudson.model.StringParameterValue;
+import hudson.model.TaskListener;
+import hudson.model.queue.QueueTaskFuture;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import net.sf.json.JSONObject;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+/**
+ * Runs many builds of the same job at once, all triggering the same remote job, to make sure they don't get in each
+ * other's way.
+ */
+public class RemoteBuildConfigurationConcurrencyTest {
+
+    private static final int  BUILDS = 12;
+
+    @Rule
+    public JenkinsRule        jenkinsRule = new JenkinsRule();
+
+    private FakeRemoteJenkins remote;
+
+    @Before
+    public void startRemote() throws Exception {
+        this.remote = new FakeRemoteJenkins();
+    }
+
+    @After
+    public void stopRemote() {
+        this.remote.stop();
+    }
+
+    @Test
+    public void testConcurrentTriggers() throws Exception {
+        this.triggerConcurrently();
+    }
+
+    /**
+     * Without the queue item to go by, every build has to pick its remote build out of the builds that were triggered
+     * at about the same time.
+     */
+    @Test
+    public void testConcurrentTriggersWithoutQueueItems() throws Exception {
+        this.remote.setLocation(false);
+        this.triggerConcurrently();
+    }
+
+    private void triggerConcurrently() throws Exception {
+        jenkinsRule.jenkins.setNumExecutors(BUILDS);
+        this.remote.addJob("remote-job", "ID");
+
+        JSONObject authenticationMode = new JSONObject();
+        authenticationMode.put("value", "none");
+        JSONObject auth = new JSONObject();
+        auth.put("authenticationMode", authenticationMode);
+
+        RemoteJenkinsServer remoteJenkinsServer = new RemoteJenkinsServer(this.remote.getURL().toString(), "FAKE",
+                false, auth);
+        RemoteBuildConfiguration.DescriptorImpl descriptor = jenkinsRule.jenkins
+                .getDescriptorByType(RemoteBuildConfiguration.DescriptorImpl.class);
+        descriptor.setRemoteSites(remoteJenkinsServer);
+
+        FreeStyleProject project = jenkinsRule.createFreeStyleProject();
+        project.setConcurrentBuild(true);
+        project.addProperty(new ParametersDefinitionProperty(new StringParameterDefinition("ID", "")));
+        project.getBuildersList().add(
+                new RemoteBuildConfiguration(remoteJenkinsServer.getDisplayName(), false, "remote-job", "secret",
+                        "ID=$ID", false, null, null, false, true, 1));
+
+        List<QueueTaskFuture<FreeStyleBuild>> futures = new ArrayList<QueueTaskFuture<FreeStyleBuild>>();
+        for (int i = 0; i < BUILDS; i++) {
+            futures.add(project.scheduleBuild2(0, new Cause.UserIdCause(), new ParametersAction(
+                    new StringParameterValue("ID", "build-" + i))));
+        }
+
+        for (int i = 0; i < BUILDS; i++) {
+            FreeStyleBuild build = jenkinsRule.assertBuildStatusSuccess(futures.get(i));
+
+            // every build must have found the remote build it triggered itself
+            String remoteNumber = build.getEnvironment(TaskListener.NULL).get(
+                    BuildInfoExporterAction.BUILD_NUMBER_VARIABLE_PREFIX + "remote_job");
+            assertEquals("build-" + i, this.remote.getJob("remote-job").getBuild(Integer.parseInt(remoteNumber))
+                    .getParameters().get("ID"));
+        }
+
+        // and every trigger URL must hold exactly the parameters of its own build
+        List<String> queries = this.remote.getTriggerQueries();
+        assertEquals(BUILDS, queries.size());
+        Set<String> ids = new HashSet<String>();
+        for (String query : queries) {
+            String[] parameters = query.split("&");
+            assertEquals(query, 3, parameters.length);
+            assertEquals(query, "token=secret", parameters[0]);
+            assertTrue(query, parameters[1].startsWith("ID=build-"));
+            assertEquals(query, "delay=0", parameters[2]);
+            ids.add(parameters[1]);
+        }
+        assertEquals(BUILDS, ids.size());
+    }
+}
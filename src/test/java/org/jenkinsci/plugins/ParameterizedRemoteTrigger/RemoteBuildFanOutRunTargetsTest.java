@@ -0,0 +1,108 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+/**
+ * How {@link RemoteBuildFanOut} runs its targets, without Jenkins; see {@link RemoteBuildFanOutTest} for whole builds.
+ */
+public class RemoteBuildFanOutRunTargetsTest extends TestCase {
+
+    private final ByteArrayOutputStream log    = new ByteArrayOutputStream();
+    private final PrintStream           logger = new PrintStream(this.log, true);
+
+    private static Callable<Void> failing() {
+        return new Callable<Void>() {
+            public Void call() throws Exception {
+                throw new Exception("remote build failed");
+            }
+        };
+    }
+
+    /**
+     * @return a target that takes the given time, and counts down the latch once it is done or stopped
+     */
+    private static Callable<Void> running(final long millis, final CountDownLatch stopped) {
+        return new Callable<Void>() {
+            public Void call() throws Exception {
+                try {
+                    Thread.sleep(millis);
+                } finally {
+                    stopped.countDown();
+                }
+                return null;
+            }
+        };
+    }
+
+    public void testFailFastStopsTheOtherTargets() throws Exception {
+        CountDownLatch stopped = new CountDownLatch(2);
+        Map<String, Callable<Void>> tasks = new LinkedHashMap<String, Callable<Void>>();
+        tasks.put("job-a", failing());
+        tasks.put("job-b", running(60000, stopped));
+        tasks.put("job-c", running(60000, stopped));
+
+        long start = System.currentTimeMillis();
+        List<String> failed = RemoteBuildFanOut.runTargets(tasks, 3, true, this.logger, "test");
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertEquals(Collections.singletonList("job-a"), failed);
+        assertTrue("took " + elapsed + " ms", elapsed < 10000);
+        // the other targets were interrupted, rather than left running
+        assertTrue(stopped.await(5, TimeUnit.SECONDS));
+        String log = this.log.toString();
+        assertTrue(log, log.contains("Stopping the other 2 remote jobs."));
+        assertFalse(log, log.contains("succeeded"));
+    }
+
+    public void testWithoutFailFastAllTargetsFinish() throws Exception {
+        CountDownLatch finished = new CountDownLatch(2);
+        Map<String, Callable<Void>> tasks = new LinkedHashMap<String, Callable<Void>>();
+        tasks.put("job-a", failing());
+        tasks.put("job-b", running(200, finished));
+        tasks.put("job-c", running(200, finished));
+
+        List<String> failed = RemoteBuildFanOut.runTargets(tasks, 3, false, this.logger, "test");
+
+        assertEquals(Collections.singletonList("job-a"), failed);
+        assertEquals(0, finished.getCount());
+        String log = this.log.toString();
+        assertTrue(log, log.contains("Remote job job-b succeeded."));
+        assertTrue(log, log.contains("Remote job job-c succeeded."));
+        assertFalse(log, log.contains("Stopping"));
+    }
+
+    public void testMaxParallel() throws Exception {
+        final Object lock = new Object();
+        final int[] running = new int[2];
+        Map<String, Callable<Void>> tasks = new LinkedHashMap<String, Callable<Void>>();
+        for (String job : Arrays.asList("job-a", "job-b", "job-c", "job-d", "job-e")) {
+            tasks.put(job, new Callable<Void>() {
+                public Void call() throws Exception {
+                    synchronized (lock) {
+                        running[0]++;
+                        running[1] = Math.max(running[1], running[0]);
+                    }
+                    Thread.sleep(100);
+                    synchronized (lock) {
+                        running[0]--;
+                    }
+                    return null;
+                }
+            });
+        }
+
+        assertTrue(RemoteBuildFanOut.runTargets(tasks, 2, false, this.logger, "test").isEmpty());
+        assertEquals(2, running[1]);
+    }
+}
@@ -0,0 +1,136 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import hudson.EnvVars;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Result;
+import hudson.model.TaskListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.json.JSONObject;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+public class RemoteBuildFanOutTest {
+
+    @Rule
+    public JenkinsRule        jenkinsRule = new JenkinsRule();
+
+    private FakeRemoteJenkins remote;
+
+    @Before
+    public void startRemote() throws Exception {
+        this.remote = new FakeRemoteJenkins();
+
+        JSONObject authenticationMode = new JSONObject();
+        authenticationMode.put("value", "none");
+        JSONObject auth = new JSONObject();
+        auth.put("authenticationMode", authenticationMode);
+
+        RemoteJenkinsServer remoteJenkinsServer = new RemoteJenkinsServer(this.remote.getURL().toString(), "FAKE",
+                false, auth);
+        jenkinsRule.jenkins.getDescriptorByType(RemoteBuildConfiguration.DescriptorImpl.class).setRemoteSites(
+                remoteJenkinsServer);
+    }
+
+    @After
+    public void stopRemote() {
+        this.remote.stop();
+    }
+
+    private FreeStyleProject createProject(int maxParallel, String... jobs) throws Exception {
+        return this.createProject(maxParallel, false, jobs);
+    }
+
+    private FreeStyleProject createProject(int maxParallel, boolean failFast, String... jobs) throws Exception {
+        List<RemoteBuildTarget> targets = new ArrayList<RemoteBuildTarget>();
+        for (String job : jobs) {
+            this.remote.addJob(job, "ID");
+            targets.add(new RemoteBuildTarget("FAKE", job, "", "ID=" + job));
+        }
+        RemoteBuildFanOut fanOut = new RemoteBuildFanOut(targets, 1);
+        fanOut.setMaxParallel(maxParallel);
+        fanOut.setFailFast(failFast);
+
+        FreeStyleProject project = jenkinsRule.createFreeStyleProject();
+        project.getBuildersList().add(fanOut);
+        return project;
+    }
+
+    @Test
+    public void testAllTargetsAreRecorded() throws Exception {
+        FreeStyleProject project = this.createProject(2, "job-a", "job-b", "job-c");
+
+        FreeStyleBuild build = jenkinsRule.buildAndAssertSuccess(project);
+
+        EnvVars env = build.getEnvironment(TaskListener.NULL);
+        for (String job : new String[] { "job_a", "job_b", "job_c" }) {
+            assertEquals("1", env.get(BuildInfoExporterAction.BUILD_NUMBER_VARIABLE_PREFIX + job));
+            assertEquals("SUCCESS", env.get(BuildInfoExporterAction.BUILD_RESULT_VARIABLE_PREFIX + job));
+        }
+        assertEquals("job-b", this.remote.getJob("job-b").getBuild(1).getParameters().get("ID"));
+    }
+
+    @Test
+    public void testRemoteTimingIsExported() throws Exception {
+        FreeStyleProject project = this.createProject(1, "job-a");
+        this.remote.getJob("job-a").setTiming(5000, 2000);
+
+        FreeStyleBuild build = jenkinsRule.buildAndAssertSuccess(project);
+
+        EnvVars env = build.getEnvironment(TaskListener.NULL);
+        assertEquals("5000", env.get(BuildInfoExporterAction.BUILD_QUEUE_WAIT_PREFIX + "job_a"));
+        assertEquals("2000", env.get(BuildInfoExporterAction.BUILD_DURATION_PREFIX + "job_a"));
+        assertEquals("0", env.get(BuildInfoExporterAction.BUILD_ESTIMATED_DURATION_PREFIX + "job_a"));
+
+        RemoteBuildTrace trace = build.getAction(RemoteBuildTraceAction.class).getTraces().get(0);
+        assertEquals(5000, trace.getTiming().getQueueWait());
+        assertEquals(1, trace.getBuildNumber());
+    }
+
+    @Test
+    public void testWaitsForAllTargets() throws Exception {
+        FreeStyleProject project = this.createProject(3, "job-a", "job-b", "job-c");
+        this.remote.getJob("job-b").setResult("FAILURE");
+
+        FreeStyleBuild build = jenkinsRule.assertBuildStatus(Result.FAILURE, project.scheduleBuild2(0).get());
+
+        // the other targets still ran to the end
+        EnvVars env = build.getEnvironment(TaskListener.NULL);
+        assertEquals("SUCCESS", env.get(BuildInfoExporterAction.BUILD_RESULT_VARIABLE_PREFIX + "job_a"));
+        assertEquals("FAILURE", env.get(BuildInfoExporterAction.BUILD_RESULT_VARIABLE_PREFIX + "job_b"));
+        assertEquals("SUCCESS", env.get(BuildInfoExporterAction.BUILD_RESULT_VARIABLE_PREFIX + "job_c"));
+        jenkinsRule.assertLogContains("1 of 3 remote jobs did not succeed", build);
+        jenkinsRule.assertLogContains("[job-b] ", build);
+    }
+
+    @Test
+    public void testFailFastStopsTheOtherTargets() throws Exception {
+        FreeStyleProject project = this.createProject(3, true, "job-a", "job-b", "job-c");
+        this.remote.getJob("job-a").setResult("FAILURE");
+        this.remote.getJob("job-b").setTiming(0, 60000);
+        this.remote.getJob("job-c").setTiming(0, 60000);
+
+        long start = System.currentTimeMillis();
+        FreeStyleBuild build = jenkinsRule.assertBuildStatus(Result.FAILURE, project.scheduleBuild2(0).get());
+        long elapsed = System.currentTimeMillis() - start;
+
+        // the build did not wait for the remote builds that were still running
+        assertTrue("took " + elapsed + " ms", elapsed < 30000);
+        jenkinsRule.assertLogContains("Stopping the other 2 remote jobs.", build);
+        jenkinsRule.assertLogContains("1 of 3 remote jobs did not succeed", build);
+        EnvVars env = build.getEnvironment(TaskListener.NULL);
+        assertEquals("FAILURE", env.get(BuildInfoExporterAction.BUILD_RESULT_VARIABLE_PREFIX + "job_a"));
+        assertFalse("SUCCESS".equals(env.get(BuildInfoExporterAction.BUILD_RESULT_VARIABLE_PREFIX + "job_b")));
+        assertFalse("SUCCESS".equals(env.get(BuildInfoExporterAction.BUILD_RESULT_VARIABLE_PREFIX + "job_c")));
+    }
+}
@@ -0,0 +1,174 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import hudson.AbortException;
+import hudson.model.TaskListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.json.JSONObject;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Triggers many remote builds at once, each from its own {@link RemoteBuildConfiguration} and on its own thread like
+ * the builds of a busy Jenkins would, against a {@link FakeRemoteJenkins} that answers slowly and now and then fails.
+ * It reports how the plugin held up: throughput, the calls it took per build and how long they took.
+ *
+ * It takes a while, so it is left out of the regular tests. Run it with 'mvn -Pload-test test', the load can be
+ * changed with system properties, i.e.: -DloadTest.builds=1000 -DloadTest.jobs=20 -DloadTest.latency=50
+ * -DloadTest.errorRate=0.05 -DloadTest.duration=5000 -DloadTest.maxConnections=100 (latency and duration in
+ * milliseconds).
+ */
+public class RemoteBuildLoadTest {
+
+    private static final int    BUILDS          = Integer.getInteger("loadTest.builds", 500);
+    private static final int    JOBS            = Integer.getInteger("loadTest.jobs", 10);
+    private static final long   LATENCY         = Long.getLong("loadTest.latency", 20);
+    private static final double ERROR_RATE      = Double.parseDouble(System.getProperty("loadTest.errorRate", "0.01"));
+    private static final long   DURATION        = Long.getLong("loadTest.duration", 2000);
+    // 0 for the default of the remote server
+    private static final int    MAX_CONNECTIONS = Integer.getInteger("loadTest.maxConnections", 0);
+
+    private FakeRemoteJenkins   remote;
+    private RemoteJenkinsServer remoteServer;
+
+    @Before
+    public void startRemote() throws Exception {
+        this.remote = new FakeRemoteJenkins();
+        // every call takes between half and one and a half times the latency
+        this.remote.setLatency(LATENCY / 2, LATENCY * 3 / 2);
+        this.remote.setErrorRate(ERROR_RATE);
+        for (int job = 0; job < JOBS; job++) {
+            this.remote.addJob("job-" + job, "ID").setTiming(0, DURATION);
+        }
+
+        JSONObject authenticationMode = new JSONObject();
+        authenticationMode.put("value", "none");
+        JSONObject auth = new JSONObject();
+        auth.put("authenticationMode", authenticationMode);
+
+        this.remoteServer = new RemoteJenkinsServer(this.remote.getURL().toString(), "LOAD", false, auth);
+        this.remoteServer.setMaxConnections(MAX_CONNECTIONS);
+    }
+
+    @After
+    public void stopRemote() {
+        this.remote.stop();
+    }
+
+    @Test
+    public void testManyConcurrentTriggers() throws Exception {
+        final LatencyHistogram latency = new LatencyHistogram();
+        ExecutorService executor = Executors.newFixedThreadPool(BUILDS);
+        List<Future<String>> results = new ArrayList<Future<String>>();
+        int failedTriggers = 0;
+
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < BUILDS; i++) {
+                final String job = "job-" + (i % JOBS);
+                final String id = "build-" + i;
+                results.add(executor.submit(new Callable<String>() {
+                    public String call() throws Exception {
+                        return trigger(job, id, latency);
+                    }
+                }));
+            }
+
+            Set<String> builds = new HashSet<String>();
+            for (Future<String> result : results) {
+                String build = result.get(10, TimeUnit.MINUTES);
+                if (build == null) {
+                    failedTriggers++;
+                } else {
+                    builds.add(build);
+                }
+            }
+            // every build must have found the remote build it triggered itself
+            assertEquals(BUILDS - failedTriggers, builds.size());
+        } finally {
+            executor.shutdownNow();
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        this.report(elapsed, latency, failedTriggers);
+        // a trigger that failed is not sent again, so no remote build is triggered twice
+        assertEquals(BUILDS - failedTriggers, this.remote.getTriggerQueries().size());
+        assertTrue("the remote server took " + this.remote.getErrorCount() + " failures, none was retried",
+                this.remote.getErrorCount() == 0
+                        || HttpTransport.forServer(this.remoteServer).getRetries() > 0);
+    }
+
+    /**
+     * Triggers a build of the remote job and waits for it to finish, the way a build step does.
+     *
+     * @return the remote job and number of the build, and its parameter; null if the remote build could not be
+     *         triggered
+     */
+    private String trigger(String job, String id, LatencyHistogram latency) throws Exception {
+        long start = System.nanoTime();
+        RemoteBuildConfiguration configuration = new RemoteBuildConfiguration("LOAD", false, job, "", "ID=" + id,
+                false, null, null, false, true, 1);
+        BuildContext context = new BuildContext(null, TaskListener.NULL, this.remoteServer);
+
+        int number;
+        try {
+            number = configuration.startRemoteBuild(context, job, "", Collections.singletonList("ID=" + id));
+        } catch (AbortException e) {
+            // the trigger call failed, and isn't retried once it may have reached the remote server
+            return null;
+        }
+        RemoteBuildStatus status = configuration.watchRemoteBuild(this.remoteServer,
+                configuration.getJobUrl(this.remoteServer, job), number, null, context,
+                configuration.getPollIntervalPolicy()).get();
+        configuration.recordTiming(context, status);
+        latency.record(System.nanoTime() - start);
+
+        assertEquals("SUCCESS", status.getStatus());
+        assertEquals(id, this.remote.getJob(job).getBuild(number).getParameters().get("ID"));
+        return job + "#" + number + " " + id;
+    }
+
+    private void report(long elapsed, LatencyHistogram latency, int failedTriggers) {
+        HttpTransport transport = HttpTransport.forServer(this.remoteServer);
+        RemoteCallMetrics metrics = transport.getMetrics();
+
+        System.out.println("Load test: " + BUILDS + " builds of " + JOBS + " remote jobs, " + LATENCY
+                + " ms latency, " + ERROR_RATE * 100 + "% errors, " + DURATION + " ms per build, "
+                + this.remoteServer.getMaxConnections() + " connections");
+        System.out.println(String.format("  %d ms in total, %.1f builds per second", elapsed, BUILDS * 1000.0
+                / Math.max(1, elapsed)));
+        System.out.println(String.format("  %d calls reached the remote server (%.1f per build), %d answered with a 503",
+                this.remote.getRequestCount(), (double) this.remote.getRequestCount() / BUILDS,
+                this.remote.getErrorCount()));
+        System.out.println("  " + failedTriggers + " builds failed to trigger; trigger to finish: " + summary(latency));
+        for (RemoteCallMetrics.Endpoint endpoint : RemoteCallMetrics.Endpoint.values()) {
+            RemoteCallMetrics.EndpointMetrics endpointMetrics = metrics.get(endpoint);
+            if (endpointMetrics.getRequests() > 0) {
+                System.out.println("  " + endpoint.getName() + ": " + endpointMetrics.getRequests() + " calls, "
+                        + endpointMetrics.getErrors() + " failed, " + endpointMetrics.getRetries() + " retried, "
+                        + summary(endpointMetrics.getLatency()));
+            }
+        }
+        System.out.println("  connection pool: " + transport.getPoolHits() + " hits, " + transport.getPoolMisses()
+                + " misses; " + transport.getGovernor().getDelayedRequests() + " calls waited for their turn");
+    }
+
+    private static String summary(LatencyHistogram latency) {
+        return "p50 " + latency.getPercentile(50) + " ms, p90 " + latency.getPercentile(90) + " ms, p99 "
+                + latency.getPercentile(99) + " ms, max " + latency.getMax() + " ms";
+    }
+}
@@ -0,0 +1,84 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import hudson.AbortException;
+import junit.framework.TestCase;
+
+/**
+ * Checks where a 'triggerRemoteJob' step picks up after a restart, depending on what its {@link RemoteBuildStepAction}
+ * recorded.
+ */
+public class RemoteBuildStepTest extends TestCase {
+
+    /**
+     * Remembers how it was resumed, instead of calling the remote server.
+     */
+    private static class ResumedExecution extends RemoteBuildStep.Execution {
+
+        private static final long serialVersionUID = 1L;
+
+        private String            resumedWith;
+
+        @Override
+        void trigger() {
+            this.resumedWith = "trigger";
+        }
+
+        @Override
+        void follow(QueuedRemoteBuild queued) {
+            this.resumedWith = "follow " + queued.getQueueItemUrl();
+        }
+
+        @Override
+        void watch(int buildNumber) {
+            this.resumedWith = "watch #" + buildNumber;
+        }
+    }
+
+    private static final String QUEUE_ITEM = "http://remote/queue/item/7/";
+
+    private ResumedExecution      execution;
+    private RemoteBuildStepAction action;
+
+    @Override
+    protected void setUp() {
+        this.execution = new ResumedExecution();
+        this.action = new RemoteBuildStepAction();
+    }
+
+    public void testResumeBeforeTrigger() throws Exception {
+        this.execution.resume(this.action);
+        assertEquals("trigger", this.execution.resumedWith);
+    }
+
+    public void testResumeWhileTriggering() throws Exception {
+        this.action.put(this.execution.getId(), RemoteBuildStepAction.TRIGGERING);
+        try {
+            this.execution.resume(this.action);
+            fail("the remote job may have been triggered already");
+        } catch (AbortException e) {
+            // expected
+        }
+        assertNull(this.execution.resumedWith);
+    }
+
+    public void testResumeInQueue() throws Exception {
+        this.action.put(this.execution.getId(), new QueuedRemoteBuild(QUEUE_ITEM, 3));
+        this.execution.resume(this.action);
+        assertEquals("follow " + QUEUE_ITEM, this.execution.resumedWith);
+    }
+
+    public void testResumeAfterQueue() throws Exception {
+        this.action.put(this.execution.getId(), new QueuedRemoteBuild(QUEUE_ITEM, 3));
+        this.action.put(this.execution.getId(), 4);
+        this.execution.resume(this.action);
+        assertEquals("watch #4", this.execution.resumedWith);
+        assertNull(this.action.getQueuedBuild(this.execution.getId()));
+    }
+
+    public void testResumeOtherStep() throws Exception {
+        // another step of the same run is past the queue, this one never got to trigger
+        this.action.put("another step", 4);
+        this.execution.resume(this.action);
+        assertEquals("trigger", this.execution.resumedWith);
+    }
+}
@@ -0,0 +1,41 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import junit.framework.TestCase;
+import net.sf.json.JSONObject;
+
+public class RemoteBuildTimingTest extends TestCase {
+
+    public void testFromStatus() {
+        JSONObject build = new JSONObject();
+        build.put("building", false);
+        build.put("result", "SUCCESS");
+        build.put("timestamp", 100000L);
+        build.put("duration", 30000L);
+        build.put("estimatedDuration", 25000L);
+
+        RemoteBuildTiming timing = RemoteBuildTiming.of(40000L, RemoteBuildStatus.fromJSON(build));
+        assertEquals(60000L, timing.getQueueWait());
+        assertEquals(30000L, timing.getExecutionTime());
+        assertEquals(25000L, timing.getEstimatedDuration());
+    }
+
+    public void testUnknown() {
+        // no queue item was followed, and the build hasn't finished
+        RemoteBuildTiming timing = RemoteBuildTiming.of(0, new RemoteBuildStatus(RemoteBuildStatus.RUNNING, 100000L,
+                -1));
+        assertEquals(-1, timing.getQueueWait());
+        assertEquals(-1, timing.getExecutionTime());
+    }
+
+    public void testServerStatistics() {
+        RemoteCallMetrics metrics = new RemoteCallMetrics("http://host:8080");
+        metrics.onRemoteBuild(new RemoteBuildTiming(40000L, 100000L, 30000L, -1));
+        metrics.onRemoteBuild(new RemoteBuildTiming(0, 100000L, 90000L, -1));
+
+        assertEquals(1, metrics.getQueueWait().getCount());
+        assertEquals(60000L, metrics.getQueueWait().getMax());
+        assertEquals(2, metrics.getExecutionTime().getCount());
+        assertEquals(30000L, metrics.getExecutionTime().getPercentile(50));
+        assertEquals(90000L, metrics.getExecutionTime().getPercentile(100));
+    }
+}
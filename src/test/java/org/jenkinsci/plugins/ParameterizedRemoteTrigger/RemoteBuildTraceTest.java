@@ -0,0 +1,59 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.jenkinsci.plugins.ParameterizedRemoteTrigger.RemoteBuildTrace.Phase;
+import org.jenkinsci.plugins.ParameterizedRemoteTrigger.RemoteBuildTrace.Span;
+
+public class RemoteBuildTraceTest extends TestCase {
+
+    public void testPhasesFollowEachOther() throws Exception {
+        RemoteBuildTrace trace = new RemoteBuildTrace("remote");
+        trace.setJob("job");
+
+        // calls outside of a phase are not counted
+        trace.countRequest();
+        trace.begin(Phase.JOB_METADATA);
+        trace.countRequest();
+        trace.begin(Phase.TRIGGER);
+        trace.countRequest();
+        trace.begin(Phase.QUEUE);
+        trace.countRequests(3);
+        Thread.sleep(20);
+        trace.end();
+        trace.setBuildNumber(7);
+        trace.countRequest();
+
+        List<Span> spans = trace.getSpans();
+        assertEquals(3, spans.size());
+        assertEquals(Phase.JOB_METADATA, spans.get(0).getPhase());
+        assertEquals(Phase.TRIGGER, spans.get(1).getPhase());
+        assertEquals(Phase.QUEUE, spans.get(2).getPhase());
+        assertEquals(1, spans.get(0).getRequests());
+        assertEquals(3, spans.get(2).getRequests());
+        assertEquals(5, trace.getRequests());
+
+        // a phase ends where the next one starts
+        assertEquals(spans.get(0).getEnd(), spans.get(1).getStart());
+        assertEquals(spans.get(1).getEnd(), spans.get(2).getStart());
+        assertTrue(trace.getDuration(Phase.QUEUE) >= 20);
+        assertEquals(0, trace.getDuration(Phase.RUN));
+        assertEquals(spans.get(2).getEnd() - spans.get(0).getStart(), trace.getDuration());
+
+        assertEquals("remote", trace.getRemoteServer());
+        assertEquals("job", trace.getJob());
+        assertEquals(7, trace.getBuildNumber());
+    }
+
+    public void testOpenPhaseLastsUntilNow() throws Exception {
+        RemoteBuildTrace trace = new RemoteBuildTrace("remote");
+        assertEquals(0, trace.getDuration());
+
+        trace.begin(Phase.RUN);
+        Thread.sleep(20);
+        assertTrue(trace.getDuration(Phase.RUN) >= 20);
+        assertTrue(trace.getDuration() >= 20);
+    }
+}
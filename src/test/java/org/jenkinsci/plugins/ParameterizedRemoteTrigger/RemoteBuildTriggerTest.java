@@ -0,0 +1,101 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import hudson.AbortException;
+import hudson.model.TaskListener;
+
+import java.util.Collections;
+
+import junit.framework.TestCase;
+import net.sf.json.JSONObject;
+
+/**
+ * Triggers remote builds straight through {@link RemoteBuildConfiguration#startRemoteBuild}, without a local build.
+ */
+public class RemoteBuildTriggerTest extends TestCase {
+
+    private FakeRemoteJenkins   remote;
+    private RemoteJenkinsServer remoteServer;
+
+    @Override
+    protected void setUp() throws Exception {
+        this.remote = new FakeRemoteJenkins();
+        this.remote.addJob("job", "ID");
+
+        JSONObject authenticationMode = new JSONObject();
+        authenticationMode.put("value", "none");
+        JSONObject auth = new JSONObject();
+        auth.put("authenticationMode", authenticationMode);
+        this.remoteServer = new RemoteJenkinsServer(this.remote.getURL().toString(), "FAKE", false, auth);
+        this.remoteServer.setConnectionRetryLimit(2);
+        this.remoteServer.setRetryInitialDelay(1);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        this.remote.stop();
+    }
+
+    private RemoteBuildConfiguration configuration() throws Exception {
+        return this.configuration(false);
+    }
+
+    private RemoteBuildConfiguration configuration(boolean shouldNotFailBuild) throws Exception {
+        RemoteBuildConfiguration configuration = new RemoteBuildConfiguration("FAKE", shouldNotFailBuild, "job", "",
+                "ID=1", false, null, null, false, true, 1);
+        configuration.setReadTimeout(1);
+        return configuration;
+    }
+
+    private BuildContext context() {
+        return new BuildContext(null, TaskListener.NULL, this.remoteServer);
+    }
+
+    private int trigger(RemoteBuildConfiguration configuration) throws Exception {
+        return configuration.startRemoteBuild(this.context(), "job", "", Collections.singletonList("ID=1"));
+    }
+
+    public void testTrigger() throws Exception {
+        assertEquals(1, this.trigger(this.configuration()));
+        assertEquals(1, this.remote.getTriggerQueries().size());
+    }
+
+    /**
+     * A poll of the queue item that fails now and then is tried again, rather than guessing which build is ours.
+     */
+    public void testQueueItemIsFollowedThroughFailures() throws Exception {
+        this.remote.failQueueItemPolls(2);
+        assertEquals(1, this.trigger(this.configuration()));
+        assertEquals(3, this.remote.getQueueItemPollCount());
+    }
+
+    /**
+     * The remote server queued the build but didn't answer in time, sending the trigger again would queue another one.
+     */
+    public void testTriggerIsNotRetriedOnceSent() throws Exception {
+        this.remote.setTriggerStall(3000);
+        try {
+            this.trigger(this.configuration());
+            fail("the remote server didn't answer the trigger in time");
+        } catch (AbortException e) {
+            // expected
+        }
+        assertEquals(1, this.remote.getTriggerQueries().size());
+    }
+
+    /**
+     * A local build that is aborted while it waits, but is not to fail, still gets a status to report.
+     */
+    public void testWaitIsInterrupted() throws Exception {
+        this.remote.getJob("job").setTiming(0, 60000);
+        RemoteBuildConfiguration configuration = this.configuration(true);
+        int number = this.trigger(configuration);
+
+        Thread.currentThread().interrupt();
+        try {
+            assertEquals("ABORTED", configuration.waitForRemoteBuild(this.remoteServer,
+                    configuration.getJobUrl(this.remoteServer, "job"), number, null, this.context()));
+        } finally {
+            Thread.interrupted();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import hudson.model.TaskListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+import net.sf.json.JSONObject;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+public class RemoteBuildWatcherTest extends TestCase {
+
+    // more remote jobs than the watcher has threads
+    private static final int  JOBS = 8;
+
+    private FakeRemoteJenkins down;
+    private FakeRemoteJenkins up;
+
+    @Override
+    protected void setUp() throws Exception {
+        this.down = new FakeRemoteJenkins();
+        this.down.setDown(true);
+        for (int job = 0; job < JOBS; job++) {
+            this.down.addJob("job-" + job);
+        }
+        this.up = new FakeRemoteJenkins();
+        this.up.addJob("job", "ID").setTiming(0, 500);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        this.down.stop();
+        this.up.stop();
+    }
+
+    private static RemoteJenkinsServer remoteServer(FakeRemoteJenkins remote, String name) throws Exception {
+        JSONObject authenticationMode = new JSONObject();
+        authenticationMode.put("value", "none");
+        JSONObject auth = new JSONObject();
+        auth.put("authenticationMode", authenticationMode);
+        return new RemoteJenkinsServer(remote.getURL().toString(), name, false, auth);
+    }
+
+    /**
+     * The polls of a remote server that is down wait for their retry on the scheduler, not on the threads of the
+     * watcher, so the builds of another remote server are still polled.
+     */
+    public void testServerThatIsDownDoesNotHoldUpOthers() throws Exception {
+        RemoteJenkinsServer downServer = remoteServer(this.down, "DOWN");
+        downServer.setRetryInitialDelay(30);
+        downServer.setConnectionRetryLimit(1);
+        RemoteBuildConfiguration downConfiguration = new RemoteBuildConfiguration("DOWN", false, "job-0", "", "",
+                false, null, null, false, true, 1);
+
+        List<ListenableFuture<RemoteBuildStatus>> waiting = new ArrayList<ListenableFuture<RemoteBuildStatus>>();
+        try {
+            for (int job = 0; job < JOBS; job++) {
+                waiting.add(downConfiguration.watchRemoteBuild(downServer, downConfiguration.getJobUrl(downServer,
+                        "job-" + job), 1, null, new BuildContext(null, TaskListener.NULL, downServer),
+                        downConfiguration.getPollIntervalPolicy()));
+            }
+            // the batch of every job failed, and so did the poll of its build on its own, or the circuit breaker
+            // stopped it once the remote server was found to be down
+            long deadline = System.currentTimeMillis() + 10000;
+            while (this.down.getRequestCount() < JOBS && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            Thread.sleep(1000);
+            int requests = this.down.getRequestCount();
+
+            RemoteJenkinsServer upServer = remoteServer(this.up, "UP");
+            RemoteBuildConfiguration upConfiguration = new RemoteBuildConfiguration("UP", false, "job", "", "ID=1",
+                    false, null, null, false, true, 1);
+            BuildContext context = new BuildContext(null, TaskListener.NULL, upServer);
+            int number = upConfiguration.startRemoteBuild(context, "job", "", Collections.singletonList("ID=1"));
+
+            long start = System.currentTimeMillis();
+            RemoteBuildStatus status = upConfiguration.watchRemoteBuild(upServer,
+                    upConfiguration.getJobUrl(upServer, "job"), number, null, context,
+                    upConfiguration.getPollIntervalPolicy()).get(20, TimeUnit.SECONDS);
+            assertEquals("SUCCESS", status.getStatus());
+            long elapsed = System.currentTimeMillis() - start;
+            assertTrue("took " + elapsed + " ms", elapsed < 10000);
+
+            // none of them was retried yet
+            assertEquals(requests, this.down.getRequestCount());
+            for (ListenableFuture<RemoteBuildStatus> watch : waiting) {
+                assertFalse(watch.isDone());
+            }
+        } finally {
+            for (ListenableFuture<RemoteBuildStatus> watch : waiting) {
+                watch.cancel(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+import net.sf.json.JSONObject;
+
+import org.jenkinsci.plugins.ParameterizedRemoteTrigger.RemoteCallMetrics.Endpoint;
+
+public class RemoteCallMetricsTest extends TestCase {
+
+    private static long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    public void testEndpointForUrl() {
+        assertEquals(Endpoint.TRIGGER, Endpoint.forUrl("http://host/job/a/build?delay=0"));
+        assertEquals(Endpoint.TRIGGER, Endpoint.forUrl("http://host/job/a/buildWithParameters?x=1"));
+        assertEquals(Endpoint.TRIGGER, Endpoint.forUrl("http://host/buildByToken/buildWithParameters?job=a"));
+        assertEquals(Endpoint.QUEUE, Endpoint.forUrl("http://host/queue/item/12/api/json"));
+        assertEquals(Endpoint.CONSOLE, Endpoint.forUrl("http://host/job/a/3/consoleText"));
+        assertEquals(Endpoint.CONSOLE, Endpoint.forUrl("http://host/job/a/3/logText/progressiveText?start=0"));
+        assertEquals(Endpoint.STATUS, Endpoint.forUrl("http://host/job/a/3/api/json?tree=result"));
+        assertEquals(Endpoint.STATUS, Endpoint.forUrl("http://host/job/build-tools/api/json"));
+    }
+
+    public void testHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentile(50));
+        assertEquals(0, histogram.getMean());
+
+        for (int i = 0; i < 90; i++) {
+            histogram.record(millis(3));
+        }
+        for (int i = 0; i < 9; i++) {
+            histogram.record(millis(200));
+        }
+        histogram.record(millis(4000));
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(5, histogram.getPercentile(50));
+        assertEquals(5, histogram.getPercentile(90));
+        assertEquals(250, histogram.getPercentile(99));
+        assertEquals(4000, histogram.getPercentile(100));
+        assertEquals(4000, histogram.getMax());
+        assertEquals((90 * 3 + 9 * 200 + 4000) / 100, histogram.getMean());
+
+        // whatever is above the last bound ends up in the last bucket
+        histogram.record(millis(120000));
+        long[] buckets = histogram.getBuckets();
+        assertEquals(LatencyHistogram.BOUNDS.length + 1, buckets.length);
+        assertEquals(1, buckets[buckets.length - 1]);
+        assertEquals(120000, histogram.getPercentile(100));
+    }
+
+    public void testCounters() {
+        RemoteCallMetrics metrics = new RemoteCallMetrics("http://host:8080");
+        metrics.onStart();
+        metrics.onStart();
+        assertEquals(2, metrics.getInFlight());
+
+        metrics.onDone(Endpoint.TRIGGER, millis(20), 0, false);
+        metrics.onRetry(Endpoint.STATUS);
+        metrics.onDone(Endpoint.STATUS, millis(40), 512, true);
+        assertEquals(0, metrics.getInFlight());
+
+        assertEquals(1, metrics.get(Endpoint.TRIGGER).getRequests());
+        assertEquals(0, metrics.get(Endpoint.TRIGGER).getErrors());
+        assertEquals(1, metrics.get(Endpoint.STATUS).getErrors());
+        assertEquals(1, metrics.get(Endpoint.STATUS).getRetries());
+        assertEquals(512, metrics.get(Endpoint.STATUS).getBytes());
+        assertEquals(0, metrics.get(Endpoint.CONSOLE).getRequests());
+
+        JSONObject status = metrics.toJSON().getJSONObject("endpoints").getJSONObject("status");
+        assertEquals(1, status.getLong("requests"));
+        assertEquals(512, status.getLong("bytes"));
+        assertEquals(40, status.getJSONObject("latency").getLong("max"));
+    }
+}
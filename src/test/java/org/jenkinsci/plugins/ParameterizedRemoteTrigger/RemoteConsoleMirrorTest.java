@@ -0,0 +1,72 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.HashMap;
+
+import junit.framework.TestCase;
+
+public class RemoteConsoleMirrorTest extends TestCase {
+
+    public void testMirrorsWhileRunning() throws Exception {
+        FakeRemoteJenkins remote = new FakeRemoteJenkins();
+        try {
+            FakeRemoteJenkins.FakeJob job = remote.addJob("job");
+            job.setTiming(0, 1500);
+            // setting up the transport can take a while, the remote build should not be over by then
+            HttpTransport transport = HttpTransport.forAddress(remote.getURL());
+            int number = job.trigger(new HashMap<String, String>());
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            RemoteConsoleMirror console = new RemoteConsoleMirror(transport, remote.getURL() + "/job/job/" + number,
+                    null, new PrintStream(out, true, "UTF-8"), 0, false);
+            console.start(50);
+            Thread.sleep(500);
+            // polled on its own while the remote build runs
+            assertTrue(console.getRequests() > 1);
+            assertTrue(out.toString("UTF-8").contains("Started by remote host"));
+
+            console.finish(50, 40);
+            String log = out.toString("UTF-8");
+            assertEquals(log, log.indexOf("Started by remote host"), log.lastIndexOf("Started by remote host"));
+            assertTrue(log, log.contains("Finished: SUCCESS"));
+        } finally {
+            remote.stop();
+        }
+    }
+
+    private static String contents(RemoteConsoleMirror.TailBuffer tail) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        tail.writeTo(new PrintStream(out, true, "UTF-8"));
+        return out.toString("UTF-8");
+    }
+
+    public void testTailKeepsEverythingThatFits() throws Exception {
+        RemoteConsoleMirror.TailBuffer tail = new RemoteConsoleMirror.TailBuffer(8);
+        tail.write("abc".getBytes("UTF-8"), 3);
+        tail.write("de".getBytes("UTF-8"), 2);
+
+        assertEquals("abcde", contents(tail));
+        assertEquals(0, tail.getDropped());
+    }
+
+    public void testTailDropsTheOldestBytes() throws Exception {
+        RemoteConsoleMirror.TailBuffer tail = new RemoteConsoleMirror.TailBuffer(4);
+        tail.write("abc".getBytes("UTF-8"), 3);
+        tail.write("def".getBytes("UTF-8"), 3);
+        tail.write("g".getBytes("UTF-8"), 1);
+
+        assertEquals("defg", contents(tail));
+        assertEquals(3, tail.getDropped());
+        assertEquals('g', tail.getLastByte());
+    }
+
+    public void testTailOfAWriteLargerThanTheBuffer() throws Exception {
+        RemoteConsoleMirror.TailBuffer tail = new RemoteConsoleMirror.TailBuffer(4);
+        tail.write("ab".getBytes("UTF-8"), 2);
+        tail.write("cdefghij".getBytes("UTF-8"), 6);
+
+        assertEquals("efgh", contents(tail));
+        assertEquals(4, tail.getDropped());
+    }
+}
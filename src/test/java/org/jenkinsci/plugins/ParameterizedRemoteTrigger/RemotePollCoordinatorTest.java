@@ -0,0 +1,152 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import hudson.model.TaskListener;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+import net.sf.json.JSONObject;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+public class RemotePollCoordinatorTest extends TestCase {
+
+    private FakeRemoteJenkins   remote;
+    private RemoteJenkinsServer remoteServer;
+
+    @Override
+    protected void setUp() throws Exception {
+        this.remote = new FakeRemoteJenkins();
+        this.remote.addJob("job", "ID").setTiming(0, 1500);
+
+        JSONObject authenticationMode = new JSONObject();
+        authenticationMode.put("value", "none");
+        JSONObject auth = new JSONObject();
+        auth.put("authenticationMode", authenticationMode);
+        this.remoteServer = new RemoteJenkinsServer(this.remote.getURL().toString(), "BATCH", false, auth);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        this.remote.stop();
+    }
+
+    public void testListSize() {
+        // the batch itself, and the builds that may have been started since
+        assertEquals(3 + 10, RemotePollCoordinator.getListSize(Arrays.asList(7, 5, 6)));
+        assertEquals(1 + 10, RemotePollCoordinator.getListSize(Collections.singletonList(5)));
+    }
+
+    public void testBatchTells() {
+        Map<Integer, RemoteBuildStatus> statuses = new HashMap<Integer, RemoteBuildStatus>();
+        statuses.put(5, RemoteBuildStatus.fromJSON(null));
+        statuses.put(6, RemoteBuildStatus.fromJSON(null));
+
+        assertTrue(RemotePollCoordinator.tells(statuses, 5));
+        // not listed yet, so still in the queue
+        assertTrue(RemotePollCoordinator.tells(statuses, 7));
+        // too old to be listed
+        assertFalse(RemotePollCoordinator.tells(statuses, 4));
+    }
+
+    public void testRetain() throws Exception {
+        RemotePollCoordinator coordinator = RemotePollCoordinator.forServer(this.remoteServer);
+        JSONObject authenticationMode = new JSONObject();
+        authenticationMode.put("value", "none");
+        JSONObject auth = new JSONObject();
+        auth.put("authenticationMode", authenticationMode);
+        RemoteJenkinsServer other = new RemoteJenkinsServer(this.remote.getURL().toString(), "OTHER", false, auth);
+
+        RemotePollCoordinator.retain(Collections.singletonList(this.remoteServer));
+        assertSame(coordinator, RemotePollCoordinator.forServer(this.remoteServer));
+        RemotePollCoordinator.retain(Collections.singletonList(other));
+        assertNotSame(coordinator, RemotePollCoordinator.forServer(this.remoteServer));
+    }
+
+    /**
+     * When the batch fails, every build of it is polled on its own, side by side rather than one after the other.
+     */
+    public void testFailedBatchFallsBackSideBySide() throws Exception {
+        final JSONObject finished = new JSONObject();
+        finished.put("building", false);
+        finished.put("result", "SUCCESS");
+
+        List<ListenableFuture<RemoteBuildStatus>> watches = new ArrayList<ListenableFuture<RemoteBuildStatus>>();
+        long start = System.nanoTime();
+        for (int i = 0; i < 4; i++) {
+            final int number = i + 1;
+            watches.add(RemoteBuildWatcher.get().watch(new RemoteBuildWatcher.StatusCheck() {
+                public RemoteJenkinsServer getRemoteServer() {
+                    return remoteServer;
+                }
+
+                public int getBuildNumber() {
+                    return number;
+                }
+
+                public String getBatchKey() {
+                    return "failing";
+                }
+
+                public Map<Integer, RemoteBuildStatus> getBatchStatuses(Collection<Integer> buildNumbers)
+                        throws IOException {
+                    throw new IOException("batch failed");
+                }
+
+                public RemoteBuildStatus getStatus(Map<Integer, RemoteBuildStatus> batchStatuses) throws Exception {
+                    assertNull(batchStatuses);
+                    // a slow remote server
+                    Thread.sleep(500);
+                    return RemoteBuildStatus.fromJSON(finished);
+                }
+
+                public long onFailure(IOException failure) {
+                    return -1;
+                }
+            }, PollIntervalPolicy.fixed(1000)));
+        }
+
+        for (ListenableFuture<RemoteBuildStatus> watch : watches) {
+            assertEquals("SUCCESS", watch.get(10, TimeUnit.SECONDS).getStatus());
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        // the batch window, and a single slow poll rather than four in a row
+        assertTrue("took " + elapsed + " ms", elapsed < 1800);
+        assertEquals(0, RemotePollCoordinator.forServer(this.remoteServer).getPollCount());
+    }
+
+    /**
+     * The polls of both builds are answered by the same calls, which are counted for neither of them.
+     */
+    public void testBatchIsNotCountedForOneBuild() throws Exception {
+        RemoteBuildConfiguration configuration = new RemoteBuildConfiguration("BATCH", false, "job", "", "ID=1",
+                false, null, null, false, true, 1);
+        String jobUrl = configuration.getJobUrl(this.remoteServer, "job");
+
+        BuildContext[] contexts = new BuildContext[2];
+        int[] triggerRequests = new int[2];
+        @SuppressWarnings("unchecked")
+        ListenableFuture<RemoteBuildStatus>[] watches = new ListenableFuture[2];
+        for (int i = 0; i < 2; i++) {
+            contexts[i] = new BuildContext(null, TaskListener.NULL, this.remoteServer);
+            int number = configuration.startRemoteBuild(contexts[i], "job", "", Collections.singletonList("ID=1"));
+            contexts[i].getTrace().begin(RemoteBuildTrace.Phase.RUN);
+            triggerRequests[i] = contexts[i].getTrace().getRequests();
+            watches[i] = configuration.watchRemoteBuild(this.remoteServer, jobUrl, number, null, contexts[i],
+                    configuration.getPollIntervalPolicy());
+        }
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals("SUCCESS", watches[i].get().getStatus());
+            assertEquals(triggerRequests[i], contexts[i].getTrace().getRequests());
+        }
+    }
+}
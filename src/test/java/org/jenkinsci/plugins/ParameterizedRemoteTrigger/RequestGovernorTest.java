@@ -0,0 +1,175 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+public class RequestGovernorTest extends TestCase {
+
+    public void testNoLimits() throws Exception {
+        RequestGovernor governor = new RequestGovernor();
+        for (int i = 0; i < 100; i++) {
+            governor.release(governor.acquire());
+        }
+        assertEquals(100, governor.getRequests());
+        assertEquals(0, governor.getQueueDepth());
+    }
+
+    public void testConcurrencyLimit() throws Exception {
+        final RequestGovernor governor = new RequestGovernor();
+        governor.configure(2, 0);
+
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(8);
+        for (int i = 0; i < 8; i++) {
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        RequestGovernor.Permit permit = governor.acquire();
+                        try {
+                            int now = inFlight.incrementAndGet();
+                            synchronized (maxInFlight) {
+                                maxInFlight.set(Math.max(maxInFlight.get(), now));
+                            }
+                            Thread.sleep(20);
+                            inFlight.decrementAndGet();
+                        } finally {
+                            governor.release(permit);
+                        }
+                    } catch (InterruptedException e) {
+                        return;
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }.start();
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(2, maxInFlight.get());
+        assertTrue(governor.getDelayedRequests() > 0);
+        assertEquals(0, governor.getQueueDepth());
+    }
+
+    public void testRateLimit() throws Exception {
+        RequestGovernor governor = new RequestGovernor();
+        governor.configure(0, 20);
+
+        long start = System.nanoTime();
+        // the first 20 come out of the full bucket, the next 10 take half a second
+        for (int i = 0; i < 30; i++) {
+            governor.release(governor.acquire());
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue("took " + elapsed + " ms", elapsed >= 400);
+        assertTrue("took " + elapsed + " ms", elapsed < 5000);
+        assertTrue(governor.getMaxWaitMillis() > 0);
+    }
+
+    public void testRateChangeKeepsBucket() throws Exception {
+        RequestGovernor governor = new RequestGovernor();
+        governor.configure(0, 10);
+        for (int i = 0; i < 10; i++) {
+            governor.release(governor.acquire());
+        }
+
+        // i.e.: two remote servers with different rates, taking turns configuring the same governor
+        governor.configure(0, 20);
+        governor.configure(0, 10);
+        governor.configure(0, 20);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            governor.release(governor.acquire());
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // the bucket was empty, so the tokens had to come in at 20 per second
+        assertTrue("took " + elapsed + " ms", elapsed >= 150);
+    }
+
+    public void testConcurrencyTimeout() throws Exception {
+        RequestGovernor governor = new RequestGovernor();
+        governor.configure(1, 0);
+
+        RequestGovernor.Permit permit = governor.acquire();
+        assertNull(governor.acquire(100, TimeUnit.MILLISECONDS));
+        assertEquals(1, governor.getTimedOutRequests());
+
+        governor.release(permit);
+        governor.release(governor.acquire(100, TimeUnit.MILLISECONDS));
+        assertEquals(0, governor.getQueueDepth());
+    }
+
+    public void testRateTimeout() throws Exception {
+        RequestGovernor governor = new RequestGovernor();
+        governor.configure(0, 1);
+        governor.release(governor.acquire());
+
+        long start = System.nanoTime();
+        // the next token is a second away, there is no use waiting for it
+        assertNull(governor.acquire(100, TimeUnit.MILLISECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 100);
+        assertEquals(1, governor.getTimedOutRequests());
+    }
+
+    public void testTokenIsGivenBackOnTimeout() throws Exception {
+        RequestGovernor governor = new RequestGovernor();
+        governor.configure(1, 10);
+
+        RequestGovernor.Permit permit = governor.acquire();
+        // each of these takes a token, but is never sent for want of an in-flight slot
+        for (int i = 0; i < 5; i++) {
+            assertNull(governor.acquire(20, TimeUnit.MILLISECONDS));
+        }
+        assertEquals(5, governor.getTimedOutRequests());
+        governor.release(permit);
+
+        int granted = 0;
+        for (RequestGovernor.Permit next = governor.tryAcquire(); next.isGranted(); next = governor.tryAcquire()) {
+            governor.release(next);
+            granted++;
+        }
+        // the bucket held 10 tokens, only one request was sent
+        assertTrue("granted " + granted, granted >= 8);
+    }
+
+    public void testTryAcquireConcurrencyLimit() throws Exception {
+        RequestGovernor governor = new RequestGovernor();
+        governor.configure(1, 0);
+
+        RequestGovernor.Permit permit = governor.tryAcquire();
+        assertTrue(permit.isGranted());
+        long start = System.nanoTime();
+        RequestGovernor.Permit deferred = governor.tryAcquire();
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 100);
+        assertFalse(deferred.isGranted());
+        assertTrue(deferred.getDelayMillis() > 0);
+        governor.release(deferred);
+        assertEquals(1, governor.getDeferredRequests());
+
+        governor.release(permit);
+        assertTrue(governor.tryAcquire().isGranted());
+        assertEquals(2, governor.getRequests());
+    }
+
+    public void testTryAcquireRateLimit() throws Exception {
+        RequestGovernor governor = new RequestGovernor();
+        governor.configure(0, 2);
+        governor.release(governor.tryAcquire());
+        governor.release(governor.tryAcquire());
+
+        RequestGovernor.Permit deferred = governor.tryAcquire();
+        assertFalse(deferred.isGranted());
+        assertTrue(deferred.getDelayMillis() > 0);
+        assertTrue(deferred.getDelayMillis() <= 500);
+
+        // the request that was told to come back later did not reserve the next token
+        assertNotNull(governor.acquire(600, TimeUnit.MILLISECONDS));
+    }
+}
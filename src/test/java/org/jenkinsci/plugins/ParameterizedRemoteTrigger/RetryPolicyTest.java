@@ -0,0 +1,175 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+
+public class RetryPolicyTest extends TestCase {
+
+    private static class Recorder implements RetryPolicy.Listener {
+        final List<Integer> attempts = new ArrayList<Integer>();
+        final List<Long>    delays   = new ArrayList<Long>();
+        int                 failures;
+
+        public void onAttempt(int attempt, long latencyNanos, IOException failure) {
+            this.attempts.add(attempt);
+            if (failure != null) {
+                this.failures++;
+            }
+        }
+
+        public void onRetry(int attempt, long delayMillis) {
+            this.delays.add(delayMillis);
+        }
+    }
+
+    private static RetryPolicy.Attempt<String> failing(final int times, final IOException failure) {
+        return new RetryPolicy.Attempt<String>() {
+            private int calls;
+
+            public String call() throws IOException {
+                if (this.calls++ < times) {
+                    throw failure;
+                }
+                return "done";
+            }
+        };
+    }
+
+    public void testClassification() {
+        assertTrue(RetryPolicy.isRetryable(new HttpTransport.StatusException(502, "url")));
+        assertTrue(RetryPolicy.isRetryable(new HttpTransport.StatusException(503, "url")));
+        assertTrue(RetryPolicy.isRetryable(new HttpTransport.StatusException(504, "url")));
+        assertTrue(RetryPolicy.isRetryable(new SocketTimeoutException()));
+        assertTrue(RetryPolicy.isRetryable(new ConnectException()));
+        assertTrue(RetryPolicy.isRetryable(new SocketException("Connection reset")));
+        assertTrue(RetryPolicy.isRetryable(new CircuitBreaker.CircuitOpenException("open")));
+
+        assertFalse(RetryPolicy.isRetryable(new HttpTransport.StatusException(401, "url")));
+        assertFalse(RetryPolicy.isRetryable(new HttpTransport.StatusException(500, "url")));
+        assertFalse(RetryPolicy.isRetryable(new UnknownHostException()));
+        assertFalse(RetryPolicy.isRetryable(new IOException("invalid JSON")));
+    }
+
+    public void testClassificationOfCallsThatAreNotIdempotent() {
+        // never sent
+        assertTrue(RetryPolicy.isRetryable(new ConnectException(), false));
+        assertTrue(RetryPolicy.isRetryable(new ConnectTimeoutException(), false));
+        assertTrue(RetryPolicy.isRetryable(new CircuitBreaker.CircuitOpenException("open"), false));
+
+        // may have been acted on by the remote server
+        assertFalse(RetryPolicy.isRetryable(new SocketTimeoutException(), false));
+        assertFalse(RetryPolicy.isRetryable(new NoHttpResponseException("no response"), false));
+        assertFalse(RetryPolicy.isRetryable(new SocketException("Connection reset"), false));
+        assertFalse(RetryPolicy.isRetryable(new HttpTransport.StatusException(503, "url"), false));
+        // only the local pool was full
+        assertFalse(RetryPolicy.isRetryable(new ConnectionPoolTimeoutException(), false));
+    }
+
+    public void testCallThatIsNotIdempotentIsNotRetriedOnceSent() throws Exception {
+        Recorder recorder = new Recorder();
+        try {
+            new RetryPolicy(5, 1, 4, 0).execute(failing(1, new SocketTimeoutException()), 1, false, recorder);
+            fail("the call may have reached the remote server");
+        } catch (SocketTimeoutException e) {
+            // expected
+        }
+        assertEquals(1, recorder.attempts.size());
+
+        recorder = new Recorder();
+        assertEquals("done", new RetryPolicy(5, 1, 4, 0).execute(failing(2, new ConnectException()), 1, false,
+                recorder));
+        assertEquals(3, recorder.attempts.size());
+    }
+
+    public void testRetriesTransientFailures() throws Exception {
+        Recorder recorder = new Recorder();
+        String result = new RetryPolicy(5, 1, 4, 0).execute(failing(3, new ConnectException()), 1, recorder);
+
+        assertEquals("done", result);
+        assertEquals(4, recorder.attempts.size());
+        assertEquals(3, recorder.failures);
+        assertEquals(3, recorder.delays.size());
+    }
+
+    public void testPermanentFailureIsNotRetried() throws Exception {
+        Recorder recorder = new Recorder();
+        try {
+            new RetryPolicy(5, 1, 4, 0).execute(failing(1, new HttpTransport.StatusException(401, "url")), 1,
+                    recorder);
+            fail("a 401 is not retried");
+        } catch (HttpTransport.StatusException e) {
+            assertEquals(401, e.getStatusCode());
+        }
+        assertEquals(1, recorder.attempts.size());
+    }
+
+    public void testRetryLimit() throws Exception {
+        Recorder recorder = new Recorder();
+        try {
+            new RetryPolicy(2, 1, 1, 0).execute(failing(10, new ConnectException()), 1, recorder);
+            fail("out of retries");
+        } catch (ConnectException e) {
+            // expected
+        }
+        assertEquals(3, recorder.attempts.size());
+
+        // attempts that were made before count against the limit
+        recorder = new Recorder();
+        try {
+            new RetryPolicy(2, 1, 1, 0).execute(failing(10, new ConnectException()), 2, recorder);
+            fail("out of retries");
+        } catch (ConnectException e) {
+            // expected
+        }
+        assertEquals(2, recorder.attempts.size());
+    }
+
+    public void testDeadline() throws Exception {
+        Recorder recorder = new Recorder();
+        try {
+            new RetryPolicy(100, 50, 50, 120).execute(failing(100, new ConnectException()), 1, recorder);
+            fail("past the deadline");
+        } catch (ConnectException e) {
+            // expected
+        }
+        assertTrue(recorder.attempts.size() < 5);
+    }
+
+    public void testRetryDelay() {
+        RetryPolicy policy = new RetryPolicy(2, 1000, 1000, 10000);
+        assertTrue(policy.getRetryDelay(new ConnectException(), 1, true, 0) > 0);
+        assertTrue(policy.getRetryDelay(new ConnectException(), 2, true, 0) > 0);
+
+        // out of retries, past the deadline, not worth retrying, and not safe to retry
+        assertEquals(-1, policy.getRetryDelay(new ConnectException(), 3, true, 0));
+        assertEquals(-1, policy.getRetryDelay(new ConnectException(), 1, true, 9500));
+        assertEquals(-1, policy.getRetryDelay(new HttpTransport.StatusException(401, "url"), 1, true, 0));
+        assertEquals(-1, policy.getRetryDelay(new SocketTimeoutException(), 1, false, 0));
+    }
+
+    public void testBackoff() {
+        RetryPolicy policy = new RetryPolicy(10, 1000, 8000, 0);
+        long previous = 0;
+        for (int attempt = 1; attempt <= 3; attempt++) {
+            long delay = policy.getDelay(attempt);
+            long expected = 1000L << (attempt - 1);
+            assertTrue(delay >= expected * (1 - RetryPolicy.JITTER) - 1);
+            assertTrue(delay <= expected * (1 + RetryPolicy.JITTER) + 1);
+            assertTrue(delay > previous * (1 - RetryPolicy.JITTER) / (1 + RetryPolicy.JITTER));
+            previous = delay;
+        }
+        assertTrue(policy.getDelay(10) <= 8000);
+        assertTrue(policy.getDelay(1000) <= 8000);
+    }
+}
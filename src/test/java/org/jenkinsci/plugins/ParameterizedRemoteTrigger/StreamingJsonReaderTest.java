@@ -0,0 +1,74 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import net.sf.json.JSONSerializer;
+import net.sf.json.util.JSONUtils;
+
+import junit.framework.TestCase;
+
+public class StreamingJsonReaderTest extends TestCase {
+
+    private static JSONObject read(String json, String tree) throws IOException {
+        return StreamingJsonReader.read(new ByteArrayInputStream(json.getBytes("UTF-8")), tree);
+    }
+
+    public void testKeepsOnlyTheRequestedFields() throws IOException {
+        JSONObject build = read("{\"building\":false,\"result\":\"SUCCESS\",\"changeSet\":{\"items\":[1,2,3]},"
+                + "\"url\":\"http://remote/job/foo/12/\",\"culprits\":[]}", ApiQuery.BUILD_STATUS.getTree());
+
+        assertEquals(3, build.size());
+        assertFalse(build.getBoolean("building"));
+        assertEquals("SUCCESS", build.getString("result"));
+        assertEquals("http://remote/job/foo/12/", build.getString("url"));
+    }
+
+    public void testKeepsNestedFieldsOfEveryElement() throws IOException {
+        JSONObject build = read("{\"actions\":[{\"causes\":[{\"shortDescription\":\"x\"}]},"
+                + "{\"parameters\":[{\"name\":\"a\",\"value\":\"b\",\"_class\":\"p\"}]}],\"number\":12}",
+                ApiQuery.BUILD_PARAMETERS.getTree());
+
+        JSONArray actions = build.getJSONArray("actions");
+        assertEquals(2, actions.size());
+        assertTrue(actions.getJSONObject(0).isEmpty());
+        JSONObject parameter = actions.getJSONObject(1).getJSONArray("parameters").getJSONObject(0);
+        assertEquals(2, parameter.size());
+        assertEquals("a", parameter.getString("name"));
+        assertEquals("b", parameter.getString("value"));
+        assertFalse(build.has("number"));
+    }
+
+    public void testSameAsJsonSerializer() throws IOException {
+        String json = "{\"number\":12,\"timestamp\":1476662400000,\"big\":123456789012345678901234567890,"
+                + "\"ratio\":0.5,\"building\":false,\"result\":null,\"description\":\"[skip ci]\","
+                + "\"displayName\":\"{not:json}\",\"json\":\"{\\\"a\\\":1}\",\"list\":\"[1,2]\",\"text\":\"null\","
+                + "\"values\":[1,\"a\",null,\"null\",\"[1,2]\",\"[x]\",{\"b\":[]}],\"empty\":{}}";
+
+        assertEquals(JSONSerializer.toJSON(json), read(json, null));
+    }
+
+    public void testNullResult() throws IOException {
+        JSONObject build = read("{\"building\":true,\"result\":null}", null);
+
+        assertTrue(JSONUtils.isNull(build.get("result")));
+        assertEquals(RemoteBuildStatus.RUNNING, RemoteBuildStatus.fromJSON(build).getStatus());
+    }
+
+    public void testEmptyOrPlainTextResponse() throws IOException {
+        assertNull(read("", null));
+        assertNull(read("Scheduled for execution", null));
+        assertNull(read("[1,2]", null));
+    }
+
+    public void testTruncatedResponse() {
+        try {
+            read("{\"building\":true,\"res", ApiQuery.BUILD_STATUS.getTree());
+            fail("a response that was cut off should not be taken for a valid one");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+}
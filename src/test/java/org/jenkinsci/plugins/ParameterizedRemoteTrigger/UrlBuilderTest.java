@@ -0,0 +1,29 @@
+package org.jenkinsci.plugins.ParameterizedRemoteTrigger;
+
+import junit.framework.TestCase;
+
+public class UrlBuilderTest extends TestCase {
+
+    public void testPathAndParameters() {
+        String url = new UrlBuilder("http://remote:8080").path("/job/").encodedPath("my job").path("/buildWithParameters")
+                .parameter("token", "s&cret").parameter("delay", "0").build();
+
+        assertEquals("http://remote:8080/job/my%20job/buildWithParameters?token=s%26cret&delay=0", url);
+    }
+
+    public void testRawParameterKeepsTheEqualsSigns() {
+        String url = new UrlBuilder("http://remote").parameter("A=b c").parameter("EXPR=x=1").parameter("EMPTY=").build();
+
+        assertEquals("http://remote?A=b%20c&EXPR=x=1&EMPTY=", url);
+    }
+
+    public void testNoPathAfterParameters() {
+        UrlBuilder builder = new UrlBuilder("http://remote").parameter("a", "b");
+        try {
+            builder.path("/job/");
+            fail("the path can not follow the query");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+}